@@ -0,0 +1,63 @@
+package github.myc;
+
+import github.myc.enums.ServerInvokerEnum;
+import github.myc.remoting.handler.invoker.MethodInvoker;
+import github.myc.remoting.handler.invoker.MethodInvokers;
+import github.myc.remoting.handler.invoker.MethodKey;
+
+import java.util.Map;
+
+/**
+ * 比较服务端几种方法调用方式（反射、MethodHandle、生成的分发类）的开销，
+ * 只测量调用器本身，不包括网络传输和序列化
+ */
+public class InvokerBenchmark {
+
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int ROUNDS = 5;
+    private static final int CALLS_PER_ROUND = 10_000_000;
+
+    public static void main(String[] args) throws Throwable {
+        CalculatorService service = new CalculatorService();
+        for (ServerInvokerEnum mode : ServerInvokerEnum.values()) {
+            Map<MethodKey, MethodInvoker> invokers = MethodInvokers.forService(service, mode);
+            MethodInvoker add = invokers.get(new MethodKey("add", new Class<?>[]{int.class, int.class}));
+            MethodInvoker echo = invokers.get(new MethodKey("echo", new Class<?>[]{String.class}));
+            for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                run(add, echo);
+            }
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < ROUNDS; i++) {
+                best = Math.min(best, run(add, echo));
+            }
+            System.out.printf("%-12s %6.2f ns/call%n", mode.getName(), (double) best / (CALLS_PER_ROUND * 2L));
+        }
+    }
+
+    private static long run(MethodInvoker add, MethodInvoker echo) throws Throwable {
+        Object[] addArgs = {1, 2};
+        Object[] echoArgs = {"hello"};
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS_PER_ROUND; i++) {
+            sink += (Integer) add.invoke(addArgs);
+            sink += ((String) echo.invoke(echoArgs)).length();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println(sink);
+        }
+        return elapsed;
+    }
+
+    public static class CalculatorService {
+
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        public String echo(String message) {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package github.myc;
+
+import github.myc.config.RpcServiceConfig;
+import github.myc.helloservice.HelloService;
+import github.myc.remoting.transport.shm.ShmRpcServer;
+import github.myc.serviceimpl.HelloServiceImpl;
+
+public class ShmServerMain {
+    public static void main(String[] args) {
+        // 先启动服务端创建共享内存段，再在同一台机器上启动 ShmClientMain
+        HelloService helloService = new HelloServiceImpl();
+        ShmRpcServer shmRpcServer = new ShmRpcServer();
+        RpcServiceConfig rpcServiceConfig = new RpcServiceConfig();
+        rpcServiceConfig.setService(helloService);
+        shmRpcServer.registerService(rpcServiceConfig);
+        shmRpcServer.start();
+    }
+}
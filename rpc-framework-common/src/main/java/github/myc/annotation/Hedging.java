@@ -0,0 +1,29 @@
+package github.myc.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 对冲请求注解，标记在服务接口的方法上，只能用于幂等的方法
+ * 请求发出后如果在 delay 时间内还没有收到响应，就把同样的请求发给负载均衡选出的另一个服务端，
+ * 使用最先返回的成功响应，其余的响应直接丢弃。用来减少个别服务端 GC 停顿等原因造成的长尾延迟。
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface Hedging {
+
+    /**
+     * 发送对冲请求前等待的时间（毫秒）
+     */
+    long delayMs() default 100;
+
+    /**
+     * 大于 0 时使用该方法最近调用延迟的百分位数（例如 95 表示 P95）作为等待时间，样本不足时使用 delayMs
+     */
+    double percentile() default 0;
+
+    /**
+     * 一次调用最多发送的对冲请求数量（不包括第一次请求）
+     */
+    int maxHedges() default 1;
+}
@@ -0,0 +1,14 @@
+package github.myc.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 幂等方法注解，标记在服务接口的方法上，表示重复执行这个方法不会产生副作用
+ * failover 策略默认只在确定服务端没有执行请求时（连接失败、发送失败、服务端过载或者正在关闭）重试，
+ * 标记了这个注解的方法在等待响应超时或者连接断开时也会换一个服务端重试
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface Idempotent {
+}
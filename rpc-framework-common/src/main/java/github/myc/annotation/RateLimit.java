@@ -0,0 +1,28 @@
+package github.myc.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 服务端限流注解，标记在服务实现类上时限制整个服务，标记在实现类的方法上时限制这个方法。
+ * 超过限制的请求不会执行，直接返回 RATE_LIMITED 响应。服务发布后可以通过 RateLimiterRegistry#setLimit 调整
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RateLimit {
+
+    /**
+     * 每秒允许的请求数
+     */
+    double permitsPerSecond();
+
+    /**
+     * 允许的突发请求数（令牌桶的容量），小于等于 0 时等于每秒允许的请求数
+     */
+    int burst() default 0;
+
+    /**
+     * 只限制这个调用方应用（见 rpc.application.name）的请求，空字符串表示所有调用方共用一个限制
+     */
+    String application() default "";
+}
@@ -0,0 +1,20 @@
+package github.myc.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 服务端响应缓存注解，标记在服务实现类的方法上，只能用于幂等、结果只取决于参数的方法
+ * 方法成功返回后，序列化并压缩好的响应按 rpc 服务名称、方法和序列化后的参数缓存在服务端，
+ * 有效期内参数相同的请求直接写出缓存的字节，既不执行方法，也不再序列化结果。
+ * 缓存占用的内存由 rpc.server.response.cache.max.mb 限制，超过时淘汰最久没有被访问的响应
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface ResponseCacheable {
+
+    /**
+     * 缓存有效期（毫秒）
+     */
+    long ttlMs() default 60000;
+}
@@ -0,0 +1,19 @@
+package github.myc.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 清除客户端结果缓存注解，标记在服务接口中会修改数据的方法上
+ * 方法调用完成后清除同一个服务（包括 group 和 version）中 methods 指定方法的缓存，methods 为空时清除这个服务的所有缓存
+ * 调用失败或者超时时服务端也可能已经修改了数据，所以不论调用是否成功都会清除缓存
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface RpcCacheEvict {
+
+    /**
+     * 要清除缓存的方法名
+     */
+    String[] methods() default {};
+}
@@ -0,0 +1,24 @@
+package github.myc.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 客户端结果缓存注解，标记在服务接口的方法上，只能用于读多写少、可以容忍短时间旧数据的读方法
+ * 调用成功的结果按 rpc 服务名称（包括 group 和 version）、方法和参数缓存在本地，缓存有效期内的相同调用不再发送请求。
+ * 参数通过 equals 比较；缓存命中时返回的是缓存中的同一个对象，调用方不应该修改它。
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface RpcCacheable {
+
+    /**
+     * 缓存有效期（毫秒）
+     */
+    long ttlMs() default 60000;
+
+    /**
+     * 这个方法最多缓存的结果数量，超过时淘汰最久没有被访问的结果
+     */
+    int maxSize() default 1000;
+}
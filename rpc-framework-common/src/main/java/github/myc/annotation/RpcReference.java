@@ -24,4 +24,29 @@ public @interface RpcReference {
      */
     String group() default "";
 
+    /**
+     * 集群容错策略：failover、failfast 或 forking，见 ClusterInvokerEnum。默认 failfast，失败后不重试
+     */
+    String cluster() default "failfast";
+
+    /**
+     * failover 策略下失败后的重试次数，不包括第一次调用。超时后只有标记了 @Idempotent 的方法才会重试
+     */
+    int retries() default 2;
+
+    /**
+     * forking 策略下同时调用的服务端数量
+     */
+    int forks() default 2;
+
+    /**
+     * 每次调用等待响应的超时时间（毫秒），小于等于 0 时使用配置文件中的 rpc.client.timeout.ms
+     */
+    long timeout() default 0;
+
+    /**
+     * 请求的优先级，服务端过载时先丢弃优先级低的请求：小于 0 为可丢弃，0 为普通，大于 0 为关键请求
+     */
+    int priority() default 0;
+
 }
@@ -21,4 +21,24 @@ public @interface RpcService {
      */
     String group() default "";
 
+    /**
+     * 服务独占的线程池的核心线程数，0 表示不使用独占的线程池，与其他服务共用服务端的线程池
+     */
+    int threads() default 0;
+
+    /**
+     * 服务独占的线程池的最大线程数，小于核心线程数时等于核心线程数
+     */
+    int maxThreads() default 0;
+
+    /**
+     * 服务独占的线程池的队列长度，0 表示不排队
+     */
+    int queueSize() default 100;
+
+    /**
+     * 服务独占的线程池满时的处理方式：abort 或 callerRuns，见 RejectPolicyEnum
+     */
+    String rejectPolicy() default "abort";
+
 }
@@ -0,0 +1,16 @@
+package github.myc.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 合并相同的并发调用，标记在服务接口的方法上，只能用于没有副作用的读方法
+ * 同一个服务（包括 group 和 version）的同一个方法、参数相等的调用，如果已经有一个请求在途，
+ * 后来的调用不再发送请求，而是等待在途请求的结果。在途请求失败或者超时时，等待它的调用都以同样的异常结束。
+ * 参数通过 equals 比较，参数类型没有重写 equals 时只有同一个对象才会被合并。
+ * 被合并的调用方拿到的是同一个返回值对象，调用方不应该修改它。
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface SingleFlight {
+}
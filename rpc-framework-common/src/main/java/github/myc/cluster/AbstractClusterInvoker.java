@@ -0,0 +1,110 @@
+package github.myc.cluster;
+
+import github.myc.enums.RpcErrorMessageEnum;
+import github.myc.enums.RpcResponseCodeEnum;
+import github.myc.enums.ServiceDiscoveryEnum;
+import github.myc.exception.RpcConnectionLostException;
+import github.myc.exception.RpcException;
+import github.myc.extension.ExtensionLoader;
+import github.myc.registry.ServiceDiscovery;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.transport.ResponseFutures;
+import github.myc.remoting.transport.RpcRequestTransport;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 集群容错策略的抽象类，提供选择服务端和发送请求的公共方法
+ */
+public abstract class AbstractClusterInvoker implements ClusterInvoker {
+
+    protected final ServiceDiscovery serviceDiscovery;
+
+    protected AbstractClusterInvoker() {
+        this.serviceDiscovery = ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension(ServiceDiscoveryEnum.ZK.getName());
+    }
+
+    /**
+     * 通过负载均衡选择一个服务端，跳过已经失败或者已经发送过请求的服务端
+     */
+    protected InetSocketAddress select(RpcRequest rpcRequest, Collection<InetSocketAddress> excludedAddresses) {
+        return serviceDiscovery.lookupService(rpcRequest, excludedAddresses);
+    }
+
+    /**
+     * 向指定的服务端发送请求，发送过程中的异常也转换为以异常结束的 future
+     * @param timeoutMillis 等待响应的超时时间，小于等于 0 表示一直等待；请求带有客户端截止时间时只等待剩余的时间，截止时间已过时不再发送
+     */
+    protected CompletableFuture<RpcResponse<Object>> send(RpcRequestTransport rpcRequestTransport, RpcRequest rpcRequest,
+                                                          InetSocketAddress inetSocketAddress, long timeoutMillis) {
+        long timeout = timeoutMillis;
+        if (rpcRequest.getClientDeadlineNanos() != 0) {
+            // 所有重试共用一个截止时间，每次只等待剩下的时间
+            timeout = rpcRequest.getClientRemainingMillis();
+            if (timeout <= 0) {
+                CompletableFuture<RpcResponse<Object>> expired = new CompletableFuture<>();
+                expired.completeExceptionally(new RpcException(RpcErrorMessageEnum.DEADLINE_EXCEEDED, rpcRequest.getRpcServiceName()));
+                return expired;
+            }
+        }
+        CompletableFuture<RpcResponse<Object>> future;
+        try {
+            future = ResponseFutures.toFuture(rpcRequestTransport.sendRpcRequest(rpcRequest, inetSocketAddress));
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        if (timeout > 0) {
+            future = future.orTimeout(timeout, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * 重试或者并行发送的请求使用新的 requestId，避免前一次请求迟到的响应和本次请求混淆；timeout 改为客户端剩余的时间
+     */
+    protected RpcRequest copyWithNewRequestId(RpcRequest rpcRequest) {
+        return rpcRequest.copyWithRequestId(UUID.randomUUID().toString());
+    }
+
+    /**
+     * 把响应的 requestId 还原为原请求的 requestId，调用方据此校验请求和响应是否对应
+     */
+    protected RpcResponse<Object> restoreRequestId(RpcResponse<Object> rpcResponse, RpcRequest rpcRequest) {
+        if (rpcResponse != null) {
+            rpcResponse.setRequestId(rpcRequest.getRequestId());
+        }
+        return rpcResponse;
+    }
+
+    /**
+     * 请求失败后能否换一个服务端重试：等待响应超时或者请求发出后连接断开时，服务端可能已经执行了请求，
+     * 只有幂等的方法才能重试；其他失败（连接失败、发送失败、熔断等）说明请求没有到达服务端，可以重试
+     */
+    protected boolean isRetryable(Throwable throwable, RpcRequest rpcRequest) {
+        if (rpcRequest.isIdempotent()) {
+            return true;
+        }
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        return !(cause instanceof TimeoutException) && !(cause instanceof RpcConnectionLostException);
+    }
+
+    /**
+     * 服务端返回了响应，但是响应表明这个服务端没有处理请求，可以换一个服务端重试
+     */
+    protected boolean isRetryable(RpcResponse<Object> rpcResponse) {
+        // 服务端过载或者正在关闭时在执行前就丢弃了请求
+        if (rpcResponse == null || rpcResponse.getCode() == null) {
+            return false;
+        }
+        int code = rpcResponse.getCode();
+        return code == RpcResponseCodeEnum.OVERLOADED.getCode() || code == RpcResponseCodeEnum.SHUTTING_DOWN.getCode();
+    }
+}
@@ -0,0 +1,25 @@
+package github.myc.cluster;
+
+import github.myc.annotation.SPI;
+import github.myc.config.RpcServiceConfig;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.transport.RpcRequestTransport;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 集群容错策略接口，位于代理对象和网络传输之间，决定一次调用发给哪些服务端以及失败之后怎么处理
+ */
+@SPI
+public interface ClusterInvoker {
+    /**
+     * 按照容错策略发送请求
+     * @param rpcRequest          rpc 请求
+     * @param rpcServiceConfig    引用服务的配置，包括重试次数、并行数以及超时时间
+     * @param rpcRequestTransport 用来发送请求的传输方式
+     * @return                    调用结果
+     */
+    CompletableFuture<RpcResponse<Object>> invoke(RpcRequest rpcRequest, RpcServiceConfig rpcServiceConfig,
+                                                  RpcRequestTransport rpcRequestTransport);
+}
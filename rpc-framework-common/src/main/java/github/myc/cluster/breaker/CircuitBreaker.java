@@ -0,0 +1,179 @@
+package github.myc.cluster.breaker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个服务端地址的熔断器
+ * CLOSED：统计最近 windowSize 次调用，调用次数达到 minimumCalls 之后，失败率或者慢调用率超过阈值就进入 OPEN
+ * OPEN：拒绝所有调用，等待 openWaitMillis 之后进入 HALF_OPEN
+ * HALF_OPEN：只放行 halfOpenProbes 个探测调用，全部成功则回到 CLOSED，有一个失败或者慢调用就重新进入 OPEN
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final String address;
+    private final CircuitBreakerConfig config;
+    // 滑动窗口，记录最近每次调用的结果
+    private final byte[] window;
+    private int windowIndex;
+    private int windowCalls;
+    private int windowFailures;
+    private int windowSlowCalls;
+    private State state = State.CLOSED;
+    private long openUntilNanos;
+    // 半开状态下已经放行和已经成功的探测调用数量
+    private int probesPermitted;
+    private int probesSucceeded;
+
+    public CircuitBreaker(String address, CircuitBreakerConfig config) {
+        this.address = address;
+        this.config = config;
+        this.window = new byte[config.getWindowSize()];
+    }
+
+    /**
+     * 在发送请求前调用，获取调用许可。获取到许可后必须调用 onSuccess、onError 或 releasePermission 之一
+     * @return 熔断器打开或者半开状态下的探测名额已经用完时返回 false
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openUntilNanos < 0) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesPermitted >= config.getHalfOpenProbes()) {
+                return false;
+            }
+            probesPermitted++;
+        }
+        return true;
+    }
+
+    /**
+     * 负载均衡前判断这个地址能否被选中，不会改变熔断器的状态
+     */
+    public synchronized boolean isCallPermitted() {
+        switch (state) {
+            case OPEN:
+                return System.nanoTime() - openUntilNanos >= 0;
+            case HALF_OPEN:
+                return probesPermitted < config.getHalfOpenProbes();
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 服务端返回了响应
+     * @param durationNanos 调用耗时
+     */
+    public synchronized void onSuccess(long durationNanos) {
+        record(durationNanos >= config.getSlowCallNanos() ? SLOW : SUCCESS);
+    }
+
+    /**
+     * 连接失败、发送失败或者等待响应超时
+     */
+    public synchronized void onError() {
+        record(FAILURE);
+    }
+
+    /**
+     * 调用方主动放弃了请求（例如对冲请求中落后的那个），这次调用不计入统计，只归还半开状态下的探测名额
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && probesPermitted > 0) {
+            probesPermitted--;
+        }
+    }
+
+    /**
+     * 服务端通知正在关闭，不等统计结果直接打开，等待时间过后再通过探测调用确认服务端是否可用
+     */
+    public synchronized void forceOpen() {
+        transitionTo(State.OPEN);
+    }
+
+    public synchronized State getState() {
+        // OPEN 状态超过等待时间后实际上已经可以探测了，但要等到下一次调用才会转换，这里如实返回 OPEN
+        return state;
+    }
+
+    public synchronized double getFailureRate() {
+        return windowCalls == 0 ? 0 : (double) windowFailures / windowCalls;
+    }
+
+    public synchronized double getSlowCallRate() {
+        return windowCalls == 0 ? 0 : (double) windowSlowCalls / windowCalls;
+    }
+
+    private void record(byte outcome) {
+        if (state == State.HALF_OPEN) {
+            if (outcome == SUCCESS) {
+                probesSucceeded++;
+                if (probesSucceeded >= config.getHalfOpenProbes()) {
+                    transitionTo(State.CLOSED);
+                }
+            } else {
+                transitionTo(State.OPEN);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // 打开之前就已经发出去的请求，结果不再统计
+            return;
+        }
+        if (windowCalls == window.length) {
+            // 窗口已满，移出最老的结果
+            byte oldest = window[windowIndex];
+            if (oldest == FAILURE) {
+                windowFailures--;
+            } else if (oldest == SLOW) {
+                windowSlowCalls--;
+            }
+        } else {
+            windowCalls++;
+        }
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % window.length;
+        if (outcome == FAILURE) {
+            windowFailures++;
+        } else if (outcome == SLOW) {
+            windowSlowCalls++;
+        }
+        if (windowCalls >= config.getMinimumCalls()
+                && (getFailureRate() >= config.getFailureRateThreshold() || getSlowCallRate() >= config.getSlowCallRateThreshold())) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State newState) {
+        log.warn("circuit breaker of [{}] changed from [{}] to [{}], failure rate [{}], slow call rate [{}]",
+                address, state, newState, getFailureRate(), getSlowCallRate());
+        state = newState;
+        probesPermitted = 0;
+        probesSucceeded = 0;
+        if (newState == State.OPEN) {
+            openUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getOpenWaitMillis());
+        }
+        if (newState != State.HALF_OPEN) {
+            // 打开或者关闭后重新开始统计
+            windowIndex = 0;
+            windowCalls = 0;
+            windowFailures = 0;
+            windowSlowCalls = 0;
+        }
+    }
+}
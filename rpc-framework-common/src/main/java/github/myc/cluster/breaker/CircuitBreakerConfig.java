@@ -0,0 +1,36 @@
+package github.myc.cluster.breaker;
+
+import github.myc.enums.RpcConfigEnum;
+import github.myc.utils.RpcConfigUtil;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 熔断器的参数，从配置文件中读取
+ */
+@Getter
+public class CircuitBreakerConfig {
+
+    private final boolean enabled;
+    // 滑动窗口的大小（调用次数）
+    private final int windowSize;
+    // 窗口中至少有这么多次调用才计算失败率
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openWaitMillis;
+    private final int halfOpenProbes;
+
+    public CircuitBreakerConfig() {
+        this.enabled = RpcConfigUtil.getBoolean(RpcConfigEnum.CLIENT_BREAKER_ENABLED, false);
+        this.windowSize = Math.max(1, RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_BREAKER_WINDOW_SIZE, 50));
+        this.minimumCalls = Math.max(1, Math.min(windowSize, RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_BREAKER_MINIMUM_CALLS, 20)));
+        this.failureRateThreshold = RpcConfigUtil.getDouble(RpcConfigEnum.CLIENT_BREAKER_FAILURE_RATE, 0.5);
+        this.slowCallRateThreshold = RpcConfigUtil.getDouble(RpcConfigEnum.CLIENT_BREAKER_SLOW_CALL_RATE, 0.8);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_BREAKER_SLOW_CALL_MS, 2000));
+        this.openWaitMillis = RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_BREAKER_OPEN_WAIT_MS, 5000);
+        this.halfOpenProbes = Math.max(1, RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_BREAKER_HALF_OPEN_PROBES, 3));
+    }
+}
@@ -0,0 +1,56 @@
+package github.myc.cluster.breaker;
+
+import github.myc.factory.SingletonFactory;
+import github.myc.metrics.RpcMetrics;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 保存每个服务端地址的熔断器，通过 SingletonFactory 获取，客户端和服务发现共用同一份状态
+ */
+public class CircuitBreakerRegistry {
+
+    private final CircuitBreakerConfig config;
+    private final RpcMetrics rpcMetrics;
+    // key：host:port，与 zookeeper 上保存的地址格式一致
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRegistry() {
+        this.config = new CircuitBreakerConfig();
+        this.rpcMetrics = SingletonFactory.getInstance(RpcMetrics.class);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public CircuitBreaker get(InetSocketAddress inetSocketAddress) {
+        return get(inetSocketAddress.getHostString() + ":" + inetSocketAddress.getPort());
+    }
+
+    public CircuitBreaker get(String serviceUrl) {
+        return circuitBreakers.computeIfAbsent(serviceUrl, this::create);
+    }
+
+    /**
+     * 服务发现时判断地址能否被选中，没有调用过的地址不创建熔断器
+     */
+    public boolean isCallPermitted(String serviceUrl) {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        CircuitBreaker circuitBreaker = circuitBreakers.get(serviceUrl);
+        return circuitBreaker == null || circuitBreaker.isCallPermitted();
+    }
+
+    private CircuitBreaker create(String serviceUrl) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(serviceUrl, config);
+        String tag = "{address=" + serviceUrl + "}";
+        rpcMetrics.registerGauge("rpc.client.circuit_breaker.state" + tag, circuitBreaker::getState);
+        rpcMetrics.registerGauge("rpc.client.circuit_breaker.failure_rate" + tag, circuitBreaker::getFailureRate);
+        rpcMetrics.registerGauge("rpc.client.circuit_breaker.slow_call_rate" + tag, circuitBreaker::getSlowCallRate);
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,60 @@
+package github.myc.cluster.health;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个服务端地址的连接健康状况，由客户端的心跳维护
+ * RTT 是心跳往返时间的指数加权移动平均（EWMA）；存活分数取值 [0, 1]，收到心跳响应时向 1 靠近，
+ * 发送下一个心跳时上一个心跳还没有响应则减半，连接断开时归零。
+ */
+public class EndpointHealth {
+
+    private static final double RTT_ALPHA = 0.3;
+    private static final double LIVENESS_ALPHA = 0.2;
+    private static final double MISSED_PONG_PENALTY = 0.5;
+
+    // 还没有测量过 RTT 时为 -1
+    private double ewmaRttNanos = -1;
+    private double liveness = 1.0;
+    private boolean awaitingPong;
+
+    public synchronized void onPingSent() {
+        if (awaitingPong) {
+            liveness *= MISSED_PONG_PENALTY;
+        }
+        awaitingPong = true;
+    }
+
+    /**
+     * 收到心跳响应
+     * @param rttNanos 心跳的往返时间
+     */
+    public synchronized void onPong(long rttNanos) {
+        awaitingPong = false;
+        liveness += LIVENESS_ALPHA * (1 - liveness);
+        ewmaRttNanos = ewmaRttNanos < 0 ? rttNanos : ewmaRttNanos + RTT_ALPHA * (rttNanos - ewmaRttNanos);
+    }
+
+    public synchronized void onDisconnect() {
+        awaitingPong = false;
+        liveness = 0;
+    }
+
+    public synchronized long getEwmaRttMicros() {
+        return ewmaRttNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros((long) ewmaRttNanos);
+    }
+
+    public synchronized double getLiveness() {
+        return liveness;
+    }
+
+    /**
+     * 负载均衡使用的代价，越小越好：RTT 除以存活分数，还没有测量过 RTT 的地址代价为 0，让它有机会被选中
+     */
+    public synchronized double cost() {
+        if (ewmaRttNanos < 0) {
+            return 0;
+        }
+        return ewmaRttNanos / Math.max(liveness, 0.01);
+    }
+}
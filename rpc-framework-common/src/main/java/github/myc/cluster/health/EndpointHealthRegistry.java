@@ -0,0 +1,41 @@
+package github.myc.cluster.health;
+
+import github.myc.factory.SingletonFactory;
+import github.myc.metrics.RpcMetrics;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 保存每个服务端地址的连接健康状况，通过 SingletonFactory 获取，客户端的心跳和负载均衡共用同一份状态
+ */
+public class EndpointHealthRegistry {
+
+    private final RpcMetrics rpcMetrics;
+    // key：host:port，与 zookeeper 上保存的地址格式一致
+    private final Map<String, EndpointHealth> endpoints = new ConcurrentHashMap<>();
+
+    public EndpointHealthRegistry() {
+        this.rpcMetrics = SingletonFactory.getInstance(RpcMetrics.class);
+    }
+
+    public EndpointHealth get(InetSocketAddress inetSocketAddress) {
+        return endpoints.computeIfAbsent(inetSocketAddress.getHostString() + ":" + inetSocketAddress.getPort(), this::create);
+    }
+
+    /**
+     * @return 地址的健康状况，还没有连接过的地址返回 null
+     */
+    public EndpointHealth find(String serviceUrl) {
+        return endpoints.get(serviceUrl);
+    }
+
+    private EndpointHealth create(String serviceUrl) {
+        EndpointHealth endpointHealth = new EndpointHealth();
+        String tag = "{address=" + serviceUrl + "}";
+        rpcMetrics.registerGauge("rpc.client.endpoint.rtt_micros" + tag, endpointHealth::getEwmaRttMicros);
+        rpcMetrics.registerGauge("rpc.client.endpoint.liveness" + tag, endpointHealth::getLiveness);
+        return endpointHealth;
+    }
+}
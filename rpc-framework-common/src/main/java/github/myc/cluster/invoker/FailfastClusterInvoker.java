@@ -0,0 +1,31 @@
+package github.myc.cluster.invoker;
+
+import github.myc.cluster.AbstractClusterInvoker;
+import github.myc.config.RpcServiceConfig;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.transport.RpcRequestTransport;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 快速失败：只调用一次，失败后立即返回，适用于非幂等的写操作
+ */
+public class FailfastClusterInvoker extends AbstractClusterInvoker {
+
+    @Override
+    public CompletableFuture<RpcResponse<Object>> invoke(RpcRequest rpcRequest, RpcServiceConfig rpcServiceConfig,
+                                                         RpcRequestTransport rpcRequestTransport) {
+        InetSocketAddress inetSocketAddress;
+        try {
+            inetSocketAddress = select(rpcRequest, Collections.emptyList());
+        } catch (RuntimeException e) {
+            CompletableFuture<RpcResponse<Object>> result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+            return result;
+        }
+        return send(rpcRequestTransport, rpcRequest, inetSocketAddress, rpcServiceConfig.getTimeout());
+    }
+}
@@ -0,0 +1,72 @@
+package github.myc.cluster.invoker;
+
+import github.myc.cluster.AbstractClusterInvoker;
+import github.myc.config.RpcServiceConfig;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.transport.RpcRequestTransport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 失败自动切换：调用失败后换一个服务端重试，已经失败过的服务端不会再被选中，适用于幂等的读操作
+ * 只有发送失败、连接失败以及服务端明确表示没有处理请求（过载、正在关闭）时才会重试，服务方法本身执行失败不会重试；
+ * 超时和请求发出后连接断开时服务端可能已经执行了请求，只有标记了 @Idempotent 的方法才会重试
+ */
+@Slf4j
+public class FailoverClusterInvoker extends AbstractClusterInvoker {
+
+    @Override
+    public CompletableFuture<RpcResponse<Object>> invoke(RpcRequest rpcRequest, RpcServiceConfig rpcServiceConfig,
+                                                         RpcRequestTransport rpcRequestTransport) {
+        CompletableFuture<RpcResponse<Object>> result = new CompletableFuture<>();
+        int attempts = Math.max(0, rpcServiceConfig.getRetries()) + 1;
+        doInvoke(rpcRequest, rpcRequest, rpcServiceConfig, rpcRequestTransport, new ArrayList<>(), attempts, null, result);
+        return result;
+    }
+
+    /**
+     * 发送一次请求，失败时递归地发起下一次重试，重试是串行的，所以 failedAddresses 不需要同步
+     * @param attemptRequest  本次发送的请求，重试时使用新的 requestId
+     * @param failedAddresses 已经失败的服务端
+     * @param attemptsLeft    包括本次在内还能尝试的次数
+     * @param lastFailure     上一次失败的原因，没有可选的服务端时作为调用结果
+     */
+    private void doInvoke(RpcRequest rpcRequest, RpcRequest attemptRequest, RpcServiceConfig rpcServiceConfig,
+                          RpcRequestTransport rpcRequestTransport, List<InetSocketAddress> failedAddresses,
+                          int attemptsLeft, Throwable lastFailure, CompletableFuture<RpcResponse<Object>> result) {
+        InetSocketAddress inetSocketAddress;
+        try {
+            inetSocketAddress = select(rpcRequest, failedAddresses);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(lastFailure != null ? lastFailure : e);
+            return;
+        }
+        send(rpcRequestTransport, attemptRequest, inetSocketAddress, rpcServiceConfig.getTimeout()).whenComplete((rpcResponse, throwable) -> {
+            if (throwable == null && !isRetryable(rpcResponse)) {
+                result.complete(restoreRequestId(rpcResponse, rpcRequest));
+                return;
+            }
+            if (throwable != null && !isRetryable(throwable, rpcRequest)) {
+                result.completeExceptionally(throwable);
+                return;
+            }
+            failedAddresses.add(inetSocketAddress);
+            if (attemptsLeft <= 1) {
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(restoreRequestId(rpcResponse, rpcRequest));
+                }
+                return;
+            }
+            log.warn("invoke [{}] on [{}] failed, retry on another provider", rpcRequest.getRpcServiceName(), inetSocketAddress, throwable);
+            doInvoke(rpcRequest, copyWithNewRequestId(rpcRequest), rpcServiceConfig, rpcRequestTransport, failedAddresses,
+                    attemptsLeft - 1, throwable, result);
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package github.myc.cluster.invoker;
+
+import github.myc.cluster.AbstractClusterInvoker;
+import github.myc.config.RpcServiceConfig;
+import github.myc.enums.RpcResponseCodeEnum;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.transport.RpcRequestTransport;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行调用：同时调用多个服务端，最先返回的成功结果作为调用结果，其余请求被取消，适用于实时性要求高的读操作
+ * 所有服务端都失败时，以最后一个失败作为调用结果
+ */
+public class ForkingClusterInvoker extends AbstractClusterInvoker {
+
+    @Override
+    public CompletableFuture<RpcResponse<Object>> invoke(RpcRequest rpcRequest, RpcServiceConfig rpcServiceConfig,
+                                                         RpcRequestTransport rpcRequestTransport) {
+        CompletableFuture<RpcResponse<Object>> result = new CompletableFuture<>();
+        int forks = Math.max(1, rpcServiceConfig.getForks());
+        List<InetSocketAddress> selectedAddresses = new ArrayList<>(forks);
+        RuntimeException selectFailure = null;
+        while (selectedAddresses.size() < forks) {
+            try {
+                selectedAddresses.add(select(rpcRequest, selectedAddresses));
+            } catch (RuntimeException e) {
+                // 可用的服务端数量少于 forks
+                selectFailure = e;
+                break;
+            }
+        }
+        if (selectedAddresses.isEmpty()) {
+            result.completeExceptionally(selectFailure);
+            return result;
+        }
+        AtomicInteger remaining = new AtomicInteger(selectedAddresses.size());
+        List<CompletableFuture<RpcResponse<Object>>> attempts = new ArrayList<>(selectedAddresses.size());
+        for (int i = 0; i < selectedAddresses.size(); i++) {
+            RpcRequest attemptRequest = i == 0 ? rpcRequest : copyWithNewRequestId(rpcRequest);
+            CompletableFuture<RpcResponse<Object>> attempt = send(rpcRequestTransport, attemptRequest, selectedAddresses.get(i), rpcServiceConfig.getTimeout());
+            attempts.add(attempt);
+            attempt.whenComplete((rpcResponse, throwable) -> {
+                boolean success = throwable == null && rpcResponse != null && rpcResponse.getCode() != null
+                        && rpcResponse.getCode() == RpcResponseCodeEnum.SUCCESS.getCode();
+                if (success) {
+                    result.complete(restoreRequestId(rpcResponse, rpcRequest));
+                } else if (remaining.decrementAndGet() == 0) {
+                    if (throwable != null) {
+                        result.completeExceptionally(throwable);
+                    } else {
+                        result.complete(restoreRequestId(rpcResponse, rpcRequest));
+                    }
+                }
+            });
+        }
+        // 有结果之后取消其他还在等待的请求
+        result.whenComplete((rpcResponse, throwable) -> attempts.forEach(attempt -> attempt.cancel(false)));
+        return result;
+    }
+}
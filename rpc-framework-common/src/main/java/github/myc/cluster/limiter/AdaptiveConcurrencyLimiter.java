@@ -0,0 +1,104 @@
+package github.myc.cluster.limiter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应并发限制，使用 AIMD 算法根据观测到的 RTT 调整允许同时在途的请求数量
+ * 以最近一段时间内的最小 RTT 作为服务端没有负载时的基准：
+ * RTT 没有超过基准的 rttTolerance 倍、并且在途请求已经用到限制的一半以上时，限制加 1；
+ * RTT 超过基准的 rttTolerance 倍或者请求失败（超时、连接断开）时，限制乘以 backoffRatio，每个 RTT 内最多减小一次。
+ * 服务端开始饱和时排队时间增加，RTT 变大，限制随之减小，从而使延迟保持在基准附近。
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    // 每隔这么多个样本重新测量一次基准 RTT，避免服务端变慢后基准一直停留在旧的最小值
+    private static final int BASELINE_PERIOD_SAMPLES = 1000;
+
+    private final LimiterConfig config;
+    private double limit;
+    private int inflight;
+    private long baselineRttNanos = Long.MAX_VALUE;
+    private long periodMinRttNanos = Long.MAX_VALUE;
+    private int periodSamples;
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(LimiterConfig config) {
+        this.config = config;
+        this.limit = config.getInitialLimit();
+    }
+
+    /**
+     * 获取一个在途名额，获取成功后必须调用 onSuccess、onDropped 或 release 之一
+     * @return 在途请求已经达到限制时返回 false
+     */
+    public synchronized boolean tryAcquire() {
+        if (inflight >= (int) limit) {
+            return false;
+        }
+        inflight++;
+        return true;
+    }
+
+    /**
+     * 收到响应
+     * @param rttNanos 从发送到收到响应的时间
+     */
+    public synchronized void onSuccess(long rttNanos) {
+        int inflightAtCompletion = inflight;
+        inflight--;
+        updateBaseline(rttNanos);
+        if (rttNanos > baselineRttNanos * config.getRttTolerance()) {
+            decrease(rttNanos);
+        } else if (inflightAtCompletion * 2 >= limit) {
+            limit = Math.min(config.getMaxLimit(), limit + 1);
+        }
+    }
+
+    /**
+     * 请求超时或者失败，说明服务端已经过载或者不可用
+     */
+    public synchronized void onDropped() {
+        inflight--;
+        decrease(0);
+    }
+
+    /**
+     * 调用方主动取消了请求，只归还名额，不作为样本
+     */
+    public synchronized void release() {
+        inflight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInflight() {
+        return inflight;
+    }
+
+    public synchronized long getBaselineRttMicros() {
+        return baselineRttNanos == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMicros(baselineRttNanos);
+    }
+
+    private void updateBaseline(long rttNanos) {
+        periodMinRttNanos = Math.min(periodMinRttNanos, rttNanos);
+        baselineRttNanos = Math.min(baselineRttNanos, rttNanos);
+        if (++periodSamples >= BASELINE_PERIOD_SAMPLES) {
+            baselineRttNanos = periodMinRttNanos;
+            periodMinRttNanos = Long.MAX_VALUE;
+            periodSamples = 0;
+        }
+    }
+
+    private void decrease(long rttNanos) {
+        long now = System.nanoTime();
+        // 同一个 RTT 内的多个慢样本来自同一次拥塞，只减小一次
+        long interval = Math.max(rttNanos, baselineRttNanos == Long.MAX_VALUE ? 0 : baselineRttNanos);
+        if (now - lastDecreaseNanos < interval) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+    }
+}
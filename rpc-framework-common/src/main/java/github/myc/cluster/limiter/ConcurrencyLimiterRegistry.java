@@ -0,0 +1,51 @@
+package github.myc.cluster.limiter;
+
+import github.myc.factory.SingletonFactory;
+import github.myc.metrics.RpcMetrics;
+import github.myc.remoting.dto.RpcRequest;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 保存每个服务端地址上每个方法的并发限制，通过 SingletonFactory 获取
+ */
+public class ConcurrencyLimiterRegistry {
+
+    private final LimiterConfig config;
+    private final RpcMetrics rpcMetrics;
+    // key：host:port + rpc 服务名称 + 方法名
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimiterRegistry() {
+        this.config = new LimiterConfig();
+        this.rpcMetrics = SingletonFactory.getInstance(RpcMetrics.class);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public AdaptiveConcurrencyLimiter get(InetSocketAddress inetSocketAddress, RpcRequest rpcRequest) {
+        String key = "{address=" + inetSocketAddress.getHostString() + ":" + inetSocketAddress.getPort()
+                + ",method=" + rpcRequest.getRpcServiceName() + "#" + rpcRequest.getMethodName() + "}";
+        return limiters.computeIfAbsent(key, this::create);
+    }
+
+    /**
+     * @return 被拒绝的请求数量的计数器
+     */
+    public LongAdder rejectedCounter(InetSocketAddress inetSocketAddress) {
+        return rpcMetrics.counter("rpc.client.limiter.rejected{address=" + inetSocketAddress.getHostString() + ":" + inetSocketAddress.getPort() + "}");
+    }
+
+    private AdaptiveConcurrencyLimiter create(String key) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config);
+        rpcMetrics.registerGauge("rpc.client.limiter.limit" + key, limiter::getLimit);
+        rpcMetrics.registerGauge("rpc.client.limiter.inflight" + key, limiter::getInflight);
+        rpcMetrics.registerGauge("rpc.client.limiter.baseline_rtt_micros" + key, limiter::getBaselineRttMicros);
+        return limiter;
+    }
+}
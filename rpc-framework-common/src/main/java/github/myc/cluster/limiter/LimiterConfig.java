@@ -0,0 +1,30 @@
+package github.myc.cluster.limiter;
+
+import github.myc.enums.RpcConfigEnum;
+import github.myc.utils.RpcConfigUtil;
+import lombok.Getter;
+
+/**
+ * 自适应并发限制的参数，从配置文件中读取
+ */
+@Getter
+public class LimiterConfig {
+
+    private final boolean enabled;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    // 限制减小时乘以的比例，取值 (0, 1)
+    private final double backoffRatio;
+    // RTT 超过基准的这么多倍时认为服务端开始排队
+    private final double rttTolerance;
+
+    public LimiterConfig() {
+        this.enabled = RpcConfigUtil.getBoolean(RpcConfigEnum.CLIENT_LIMITER_ENABLED, false);
+        this.minLimit = Math.max(1, RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_LIMITER_MIN_LIMIT, 5));
+        this.maxLimit = Math.max(minLimit, RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_LIMITER_MAX_LIMIT, 1000));
+        this.initialLimit = Math.max(minLimit, Math.min(maxLimit, RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_LIMITER_INITIAL_LIMIT, 50)));
+        this.backoffRatio = RpcConfigUtil.getDouble(RpcConfigEnum.CLIENT_LIMITER_BACKOFF_RATIO, 0.9);
+        this.rttTolerance = RpcConfigUtil.getDouble(RpcConfigEnum.CLIENT_LIMITER_RTT_TOLERANCE, 2.0);
+    }
+}
@@ -1,5 +1,10 @@
 package github.myc.config;
 
+import github.myc.enums.RpcConfigEnum;
+import github.myc.factory.SingletonFactory;
+import github.myc.remoting.handler.RequestDrainer;
+import github.myc.utils.RpcConfigUtil;
+import github.myc.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
 import lombok.extern.slf4j.Slf4j;
 import github.myc.remoting.transport.netty.server.NettyRpcServer;
 import github.myc.utils.CuratorUtils;
@@ -7,10 +12,21 @@ import github.myc.utils.CuratorUtils;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 自定义关闭钩子
- * 当服务器关闭的时候，执行一些操作，例如注销所有服务
+ * 当服务器关闭的时候，按顺序执行以下操作，保证客户端不会被路由到正在关闭的服务端，已经接收的请求也不会被中断：
+ * <ol>
+ *     <li>注销本台服务器在 zookeeper 上注册的所有服务</li>
+ *     <li>等待客户端收到服务地址的变化</li>
+ *     <li>拒绝新的请求，返回 SHUTTING_DOWN 响应，客户端收到后立即换一个服务端</li>
+ *     <li>等待已经接收的请求处理完，最多等待 rpc.server.shutdown.drain.timeout.ms</li>
+ *     <li>关闭服务端的 EventLoopGroup 和线程池</li>
+ * </ol>
  */
 @Slf4j
 public class CustomShutdownHook {
@@ -21,6 +37,10 @@ public class CustomShutdownHook {
      */
     private static final CustomShutdownHook CUSTOM_SHUTDOWN_HOOK = new CustomShutdownHook();
 
+    private final AtomicBoolean hookAdded = new AtomicBoolean();
+    // 请求处理完之后执行的关闭操作，例如关闭 EventLoopGroup
+    private final List<Runnable> closeActions = new CopyOnWriteArrayList<>();
+
     /**
      * 私有构造函数，确保只能在类内部实例化
      */
@@ -32,18 +52,53 @@ public class CustomShutdownHook {
     }
 
     /**
-     * 清除本台服务器在 zookeeper 上注册的服务
+     * 注册关闭钩子，JVM 关闭时按顺序注销服务、拒绝新的请求、等待请求处理完并关闭服务端，多次调用只注册一次
      */
     public void clearAll() {
+        if (!hookAdded.compareAndSet(false, true)) {
+            return;
+        }
         log.info("addShutdownHook for clearAll");
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdownGracefully, "rpc-shutdown-hook"));
+    }
+
+    /**
+     * 添加在请求处理完之后执行的关闭操作，按添加的顺序执行
+     */
+    public void addCloseAction(Runnable closeAction) {
+        closeActions.add(closeAction);
+    }
+
+    private void shutdownGracefully() {
+        try {
+            InetSocketAddress inetSocketAddress = new InetSocketAddress(InetAddress.getLocalHost().getHostAddress(), NettyRpcServer.PORT);
+            CuratorUtils.clearRegistry(CuratorUtils.getZkClient(), inetSocketAddress);
+        } catch (UnknownHostException e) {
+            e.printStackTrace();
+        }
+        RequestDrainer requestDrainer = SingletonFactory.getInstance(RequestDrainer.class);
+        try {
+            // 客户端通过 zookeeper 的监听得知服务地址被删除，在这之前仍然会有请求发过来，正常处理
+            TimeUnit.MILLISECONDS.sleep(RpcConfigUtil.getInt(RpcConfigEnum.SERVER_SHUTDOWN_DEREGISTER_WAIT_MS, 2000));
+            requestDrainer.startShutdown();
+            long drainTimeout = RpcConfigUtil.getInt(RpcConfigEnum.SERVER_SHUTDOWN_DRAIN_TIMEOUT_MS, 10000);
+            if (requestDrainer.awaitDrained(drainTimeout, TimeUnit.MILLISECONDS)) {
+                log.info("all requests are drained");
+            } else {
+                log.warn("[{}] requests are still in flight after [{}] ms, close anyway", requestDrainer.getInflight(), drainTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            requestDrainer.startShutdown();
+        }
+        for (Runnable closeAction : closeActions) {
             try {
-                InetSocketAddress inetSocketAddress = new InetSocketAddress(InetAddress.getLocalHost().getHostAddress(), NettyRpcServer.PORT);
-                CuratorUtils.clearRegistry(CuratorUtils.getZkClient(), inetSocketAddress);
-            } catch (UnknownHostException e) {
-                e.printStackTrace();
+                closeAction.run();
+            } catch (Exception e) {
+                log.error("close action failed", e);
             }
-        }));
+        }
+        ThreadPoolFactoryUtil.shutDownAllThreadPool();
     }
 
 }
@@ -1,5 +1,7 @@
 package github.myc.config;
 
+import github.myc.enums.ClusterInvokerEnum;
+import github.myc.enums.RejectPolicyEnum;
 import lombok.*;
 
 @AllArgsConstructor
@@ -16,6 +18,27 @@ public class RpcServiceConfig {
     private String group = "";
     // 目标服务对象
     private Object service;
+    // 集群容错策略，只对服务引用方有效
+    @Builder.Default
+    private String cluster = ClusterInvokerEnum.FAILFAST.getName();
+    // failover 策略的重试次数
+    @Builder.Default
+    private int retries = 2;
+    // forking 策略同时调用的服务端数量
+    @Builder.Default
+    private int forks = 2;
+    // 每次调用的超时时间（毫秒），小于等于 0 表示一直等待
+    private long timeout;
+    // 请求的优先级，只对服务调用方有效，见 RpcReference#priority
+    private int priority;
+    // 服务独占的线程池（隔离舱）的核心线程数、最大线程数和队列长度，只对服务提供方有效，threads 为 0 表示不使用独占的线程池
+    private int threads;
+    private int maxThreads;
+    @Builder.Default
+    private int queueSize = 100;
+    // 独占的线程池满时的处理方式，见 RejectPolicyEnum
+    @Builder.Default
+    private String rejectPolicy = RejectPolicyEnum.ABORT.getName();
 
     /**
      * @return rpc 服务的名称
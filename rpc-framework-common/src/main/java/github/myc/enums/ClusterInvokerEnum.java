@@ -0,0 +1,15 @@
+package github.myc.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public enum ClusterInvokerEnum {
+
+    FAILOVER("failover"),
+    FAILFAST("failfast"),
+    FORKING("forking");
+
+    private final String name;
+}
@@ -7,7 +7,11 @@ import lombok.Getter;
 @AllArgsConstructor
 @Getter
 public enum LoadBalanceEnum {
-    LOADBALANCE("loadBalance");
+    // 一致性哈希
+    LOADBALANCE("loadBalance"),
+    RANDOM("random"),
+    // 按心跳 RTT 和存活分数选择
+    SHORTEST_RTT("shortestRtt");
 
     private final String name;
 }
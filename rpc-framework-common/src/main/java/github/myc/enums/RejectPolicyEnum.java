@@ -0,0 +1,27 @@
+package github.myc.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 服务独占的线程池满时的处理方式
+ */
+@AllArgsConstructor
+@Getter
+public enum RejectPolicyEnum {
+    // 不执行请求，直接返回 OVERLOADED 响应
+    ABORT("abort"),
+    // 在提交请求的线程上执行
+    CALLER_RUNS("callerRuns");
+
+    private final String name;
+
+    public static RejectPolicyEnum of(String name) {
+        for (RejectPolicyEnum value : values()) {
+            if (value.name.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -7,7 +7,101 @@ import lombok.Getter;
 @Getter
 public enum RpcConfigEnum {
     RPC_CONFIG_PATH("rpc.properties"),
-    ZK_ADDRESS("rpc.zookeeper.address");
+    ZK_ADDRESS("rpc.zookeeper.address"),
+    // 当前应用的名称，作为调用方发出请求时带给服务端，服务端可以按调用方应用限流
+    APPLICATION_NAME("rpc.application.name"),
+    // 服务端监听端口
+    SERVER_PORT("rpc.server.port"),
+    // 服务端调用服务方法的方式：reflection、methodhandle 或 generated（默认），见 ServerInvokerEnum
+    SERVER_INVOKER("rpc.server.invoker"),
+    // 服务端 bossGroup、workerGroup 以及业务线程池的线程数，0 表示使用 Netty 默认值（CPU 核心数 * 2）
+    NETTY_SERVER_BOSS_THREADS("rpc.netty.server.boss.threads"),
+    NETTY_SERVER_WORKER_THREADS("rpc.netty.server.worker.threads"),
+    NETTY_SERVER_BUSINESS_THREADS("rpc.netty.server.business.threads"),
+    // 服务端执行请求的方式：pinned 或 shared，见 ServerExecutorModeEnum
+    SERVER_EXECUTOR_MODE("rpc.server.executor.mode"),
+    // shared 模式下业务线程池的队列长度，队列满时请求直接返回失败
+    SERVER_EXECUTOR_QUEUE_CAPACITY("rpc.server.executor.queue.capacity"),
+    // 是否开启服务端准入控制（默认关闭）：过载时优先丢弃低优先级的请求
+    SERVER_ADMISSION_ENABLED("rpc.server.admission.enabled"),
+    // 请求排队时间的目标值（毫秒），一个观察周期内的最小排队时间都超过它时认为服务端过载
+    SERVER_ADMISSION_TARGET_DELAY_MS("rpc.server.admission.target.delay.ms"),
+    // 准入控制观察排队时间的周期（毫秒）
+    SERVER_ADMISSION_INTERVAL_MS("rpc.server.admission.interval.ms"),
+    // 服务端同时处理（包括排队）的请求数上限，0 表示不限制
+    SERVER_ADMISSION_MAX_INFLIGHT("rpc.server.admission.max.inflight"),
+    // 服务端关闭时注销服务之后等待客户端收到地址变化的时间（毫秒）
+    SERVER_SHUTDOWN_DEREGISTER_WAIT_MS("rpc.server.shutdown.deregister.wait.ms"),
+    // 服务端关闭时等待已经接收的请求处理完的最长时间（毫秒）
+    SERVER_SHUTDOWN_DRAIN_TIMEOUT_MS("rpc.server.shutdown.drain.timeout.ms"),
+    // 服务端响应缓存（见 @ResponseCacheable）最多占用的内存（MB），0 表示不缓存
+    SERVER_RESPONSE_CACHE_MAX_MB("rpc.server.response.cache.max.mb"),
+    // 服务端缓存的响应是否存放在堆外
+    SERVER_RESPONSE_CACHE_OFF_HEAP("rpc.server.response.cache.off.heap"),
+    // 服务端连接队列的最大长度
+    NETTY_SERVER_BACKLOG("rpc.netty.server.backlog"),
+    // 客户端 EventLoopGroup 的线程数，0 表示使用 Netty 默认值
+    NETTY_CLIENT_WORKER_THREADS("rpc.netty.client.worker.threads"),
+    // ByteBuf 分配器：pooled 或 unpooled
+    NETTY_ALLOCATOR("rpc.netty.allocator"),
+    // 分配器是否优先分配堆外内存
+    NETTY_ALLOCATOR_DIRECT("rpc.netty.allocator.direct"),
+    // 是否关闭 Nagle 算法，同时作用于客户端和服务端接受的连接
+    NETTY_TCP_NODELAY("rpc.netty.tcp.nodelay"),
+    // socket 发送缓冲区和接收缓冲区大小，0 表示使用操作系统默认值
+    NETTY_SO_SNDBUF("rpc.netty.so.sndbuf"),
+    NETTY_SO_RCVBUF("rpc.netty.so.rcvbuf"),
+    // 是否合并 flush：使用 Netty 的 FlushConsolidationHandler，连续的多次写出只触发一次 flush 系统调用
+    NETTY_FLUSH_CONSOLIDATION("rpc.netty.flush.consolidation"),
+    // 合并 flush 时最多攒多少次 flush 就必须真正 flush 一次
+    NETTY_FLUSH_EXPLICIT_AFTER_FLUSHES("rpc.netty.flush.explicit.after.flushes"),
+    // 对冲请求的预算：对冲请求数量最多占普通请求数量的比例
+    CLIENT_HEDGE_BUDGET_RATIO("rpc.client.hedge.budget.ratio"),
+    // 是否在启动时预热 @RpcReference 引用的服务：查询服务地址、建立连接、初始化序列化和压缩组件
+    CLIENT_WARMUP_ENABLED("rpc.client.warmup.enabled"),
+    // 启动时等待预热完成的最长时间
+    CLIENT_WARMUP_TIMEOUT_MS("rpc.client.warmup.timeout.ms"),
+    // 客户端调用的默认超时时间（毫秒），@RpcReference 没有指定 timeout 时使用，0 表示一直等待
+    CLIENT_TIMEOUT_MS("rpc.client.timeout.ms"),
+    // 客户端回调线程池的队列长度，队列满时回调在完成响应的线程上执行
+    CLIENT_CALLBACK_QUEUE_CAPACITY("rpc.client.callback.queue.capacity"),
+    // 服务端地址的熔断器：是否启用（默认关闭）、滑动窗口大小、计算失败率需要的最少调用次数
+    CLIENT_BREAKER_ENABLED("rpc.client.breaker.enabled"),
+    CLIENT_BREAKER_WINDOW_SIZE("rpc.client.breaker.window.size"),
+    CLIENT_BREAKER_MINIMUM_CALLS("rpc.client.breaker.minimum.calls"),
+    // 熔断器打开的失败率和慢调用率阈值，取值 (0, 1]
+    CLIENT_BREAKER_FAILURE_RATE("rpc.client.breaker.failure.rate"),
+    CLIENT_BREAKER_SLOW_CALL_RATE("rpc.client.breaker.slow.call.rate"),
+    // 耗时超过这个值的调用算作慢调用
+    CLIENT_BREAKER_SLOW_CALL_MS("rpc.client.breaker.slow.call.ms"),
+    // 熔断器打开后等待多久进入半开状态，以及半开状态下放行的探测调用数量
+    CLIENT_BREAKER_OPEN_WAIT_MS("rpc.client.breaker.open.wait.ms"),
+    CLIENT_BREAKER_HALF_OPEN_PROBES("rpc.client.breaker.half.open.probes"),
+    // 每个服务端地址、每个方法的自适应并发限制：是否启用（默认关闭）、初始值、下限和上限
+    CLIENT_LIMITER_ENABLED("rpc.client.limiter.enabled"),
+    CLIENT_LIMITER_INITIAL_LIMIT("rpc.client.limiter.initial.limit"),
+    CLIENT_LIMITER_MIN_LIMIT("rpc.client.limiter.min.limit"),
+    CLIENT_LIMITER_MAX_LIMIT("rpc.client.limiter.max.limit"),
+    // 限制减小时乘以的比例，以及判断服务端开始排队的 RTT 倍数
+    CLIENT_LIMITER_BACKOFF_RATIO("rpc.client.limiter.backoff.ratio"),
+    CLIENT_LIMITER_RTT_TOLERANCE("rpc.client.limiter.rtt.tolerance"),
+    // 客户端发送带时间戳心跳的间隔，用来测量每个连接的 RTT 和存活分数
+    CLIENT_HEARTBEAT_INTERVAL_MS("rpc.client.heartbeat.interval.ms"),
+    // 客户端的负载均衡策略，见 LoadBalanceEnum
+    CLIENT_LOADBALANCE("rpc.client.loadbalance"),
+    // 服务在本 JVM 中发布时是否直接调用本地的服务对象，以及参数和返回值的传递方式：serialize（复制）或 reference（引用）
+    INJVM_ENABLED("rpc.injvm.enabled"),
+    INJVM_COPY("rpc.injvm.copy"),
+    // 是否启用 Unix domain socket 传输（只在支持 epoll 的 Linux 上生效），以及服务端监听的 socket 文件路径
+    UDS_ENABLED("rpc.uds.enabled"),
+    UDS_PATH("rpc.uds.path"),
+    // socket 传输客户端的建连超时时间（毫秒）
+    SOCKET_CONNECT_TIMEOUT_MS("rpc.socket.connect.timeout.ms"),
+    // 实验性的共享内存传输：内存映射文件的路径，以及每个方向环形缓冲区的大小（字节，必须是 2 的幂）
+    SHM_PATH("rpc.shm.path"),
+    SHM_RING_BYTES("rpc.shm.ring.bytes"),
+    // 定期把指标打印到日志的间隔，0 表示不打印
+    METRICS_LOG_INTERVAL_SECONDS("rpc.metrics.log.interval.seconds");
 
     private final String propertyValue;
 }
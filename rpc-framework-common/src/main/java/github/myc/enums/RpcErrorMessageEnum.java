@@ -12,7 +12,10 @@ public enum RpcErrorMessageEnum {
     SERVICE_INVOCATION_FAILURE("服务调用失败"),
     SERVICE_CAN_NOT_BE_FOUND("没有找到指定的服务"),
     SERVICE_NOT_IMPLEMENT_ANY_INTERFACE("注册的服务没有实现任何接口"),
-    REQUEST_NOT_MATCH_RESPONSE("返回结果错误！请求和返回的结果不匹配");
+    REQUEST_NOT_MATCH_RESPONSE("返回结果错误！请求和返回的结果不匹配"),
+    CIRCUIT_BREAKER_OPEN("服务端的熔断器已打开"),
+    CONCURRENCY_LIMIT_EXCEEDED("发往服务端的并发请求数超过限制"),
+    DEADLINE_EXCEEDED("调用的截止时间已过");
 
     private final String message;
 }
@@ -8,7 +8,11 @@ import lombok.Getter;
 public enum RpcRequestTransportEnum {
 
     NETTY("netty"),
-    SOCKET("socket");
+    SOCKET("socket"),
+    // 服务提供方和调用方在同一个 JVM 中
+    INJVM("injvm"),
+    // 实验性的共享内存传输
+    SHM("shm");
 
     private final String name;
 }
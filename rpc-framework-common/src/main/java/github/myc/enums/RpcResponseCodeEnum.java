@@ -9,7 +9,15 @@ import lombok.ToString;
 @ToString
 public enum RpcResponseCodeEnum {
     SUCCESS(200, "The remote call is successful"),  // 注意这里是用逗号隔开
-    FAIL(500, "The remote call is fail");
+    FAIL(500, "The remote call is fail"),
+    // 服务端资源不足，请求没有执行，可以换一个服务端重试
+    OVERLOADED(503, "The server is overloaded"),
+    // 服务端正在关闭，请求没有执行，应当换一个服务端重试
+    SHUTTING_DOWN(410, "The server is shutting down"),
+    // 请求超过了服务端对服务、方法或者调用方应用的限流，没有执行
+    RATE_LIMITED(429, "The remote call is rate limited"),
+    // 请求在服务端开始执行之前已经超过了调用方的截止时间，没有执行
+    DEADLINE_EXCEEDED(504, "The deadline of the remote call has passed");
 
     // 枚举类常量中的参数，对应上面括号中的数据
     private final int code;
@@ -0,0 +1,27 @@
+package github.myc.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 服务端执行请求的方式
+ */
+@AllArgsConstructor
+@Getter
+public enum ServerExecutorModeEnum {
+    // 每个连接固定由 DefaultEventExecutorGroup 中的一个线程处理，同一连接上的请求串行执行
+    PINNED("pinned"),
+    // 每个请求提交到共享的业务线程池，同一连接上的请求并行执行，响应按完成顺序写回
+    SHARED("shared");
+
+    private final String name;
+
+    public static ServerExecutorModeEnum of(String name) {
+        for (ServerExecutorModeEnum value : values()) {
+            if (value.name.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,29 @@
+package github.myc.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 服务端调用服务方法的方式
+ */
+@AllArgsConstructor
+@Getter
+public enum ServerInvokerEnum {
+    // Method.invoke 反射调用
+    REFLECTION("reflection"),
+    // 预先解析好的 MethodHandle
+    METHOD_HANDLE("methodhandle"),
+    // 为每个服务生成的分发类，按方法编号直接调用服务方法
+    GENERATED("generated");
+
+    private final String name;
+
+    public static ServerInvokerEnum of(String name) {
+        for (ServerInvokerEnum value : values()) {
+            if (value.name.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
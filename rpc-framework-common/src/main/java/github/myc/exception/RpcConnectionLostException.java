@@ -0,0 +1,13 @@
+package github.myc.exception;
+
+/**
+ * 请求已经发出之后连接断开，服务端可能已经执行了请求，只有幂等的方法才能重试
+ */
+public class RpcConnectionLostException extends RpcException {
+
+    private static final long serialVersionUID = -3529087715641573826L;
+
+    public RpcConnectionLostException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
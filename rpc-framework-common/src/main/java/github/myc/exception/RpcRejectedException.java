@@ -0,0 +1,20 @@
+package github.myc.exception;
+
+import github.myc.enums.RpcResponseCodeEnum;
+import lombok.Getter;
+
+/**
+ * 服务端没有执行就拒绝了请求，响应码说明拒绝的原因
+ */
+@Getter
+public class RpcRejectedException extends RpcException {
+
+    private static final long serialVersionUID = 4102657342138953641L;
+
+    private final RpcResponseCodeEnum responseCode;
+
+    public RpcRejectedException(RpcResponseCodeEnum responseCode, String detail) {
+        super(responseCode.getMessage() + ":" + detail, null);
+        this.responseCode = responseCode;
+    }
+}
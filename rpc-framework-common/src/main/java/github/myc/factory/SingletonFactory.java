@@ -30,16 +30,23 @@ public final class SingletonFactory {
             throw new IllegalArgumentException();
         }
         String key = c.toString();
-        if(OBJECT_MAP.containsKey(key)){
-            return c.cast(OBJECT_MAP.get(key));
-        } else {
-            return c.cast(OBJECT_MAP.computeIfAbsent(key, k -> {
+        Object instance = OBJECT_MAP.get(key);
+        if (instance != null) {
+            return c.cast(instance);
+        }
+        // 单例的构造方法中经常会获取其他单例，不能在 computeIfAbsent 中创建（嵌套调用会抛出 Recursive update），
+        // 这里用可重入的锁保证只创建一次
+        synchronized (SingletonFactory.class) {
+            instance = OBJECT_MAP.get(key);
+            if (instance == null) {
                 try {
-                    return c.getDeclaredConstructor().newInstance();
+                    instance = c.getDeclaredConstructor().newInstance();
                 } catch (InvocationTargetException | InstantiationException | IllegalAccessException |NoSuchMethodException e) {
                     throw new RuntimeException(e.getMessage(), e);
                 }
-            }));
+                OBJECT_MAP.put(key, instance);
+            }
         }
+        return c.cast(instance);
     }
 }
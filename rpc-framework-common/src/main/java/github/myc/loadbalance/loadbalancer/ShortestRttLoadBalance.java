@@ -0,0 +1,41 @@
+package github.myc.loadbalance.loadbalancer;
+
+import github.myc.cluster.health.EndpointHealth;
+import github.myc.cluster.health.EndpointHealthRegistry;
+import github.myc.factory.SingletonFactory;
+import github.myc.loadbalance.AbstractLoadBalance;
+import github.myc.remoting.dto.RpcRequest;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最短 RTT 负载均衡策略（power of two choices）
+ * 随机选出两个地址，选择心跳 RTT 除以存活分数更小的那个，这样既能避开已经变慢或者丢失心跳的连接，
+ * 又不会让所有客户端同时涌向同一个最快的服务端
+ */
+public class ShortestRttLoadBalance extends AbstractLoadBalance {
+
+    private final EndpointHealthRegistry endpointHealthRegistry;
+
+    public ShortestRttLoadBalance() {
+        this.endpointHealthRegistry = SingletonFactory.getInstance(EndpointHealthRegistry.class);
+    }
+
+    @Override
+    protected String doSelect(List<String> serviceAddress, RpcRequest rpcRequest) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int size = serviceAddress.size();
+        int first = random.nextInt(size);
+        // 在其余的 size - 1 个地址中选第二个，保证两个地址不同
+        int second = (first + 1 + random.nextInt(size - 1)) % size;
+        String firstAddress = serviceAddress.get(first);
+        String secondAddress = serviceAddress.get(second);
+        return cost(secondAddress) < cost(firstAddress) ? secondAddress : firstAddress;
+    }
+
+    private double cost(String serviceUrl) {
+        EndpointHealth endpointHealth = endpointHealthRegistry.find(serviceUrl);
+        return endpointHealth == null ? 0 : endpointHealth.cost();
+    }
+}
@@ -0,0 +1,68 @@
+package github.myc.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录最近一段调用的延迟并计算百分位数
+ * 使用固定大小的环形数组保存最近的样本，百分位数的计算结果会缓存一小段时间，避免每次调用都排序
+ */
+public class LatencyRecorder {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final long PERCENTILE_CACHE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final long[] samples;
+    // 已经记录的样本总数，samples 中的有效样本数为 min(count, samples.length)
+    private long count;
+    private double cachedPercentile = -1;
+    private long cachedPercentileValue;
+    private long cachedAtNanos;
+
+    public LatencyRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * 记录一次调用的延迟
+     * @param latencyMillis 延迟（毫秒）
+     */
+    public synchronized void record(long latencyMillis) {
+        samples[(int) (count % samples.length)] = latencyMillis;
+        count++;
+    }
+
+    /**
+     * @return 当前保存的样本数量
+     */
+    public synchronized int size() {
+        return (int) Math.min(count, samples.length);
+    }
+
+    /**
+     * 计算最近样本的百分位数
+     * @param percentile 百分位，取值 (0, 100]
+     * @return 对应的延迟（毫秒），没有样本时返回 0
+     */
+    public synchronized long percentile(double percentile) {
+        int size = size();
+        if (size == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (percentile == cachedPercentile && now - cachedAtNanos < PERCENTILE_CACHE_NANOS) {
+            return cachedPercentileValue;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        cachedPercentileValue = sorted[Math.max(0, Math.min(size - 1, index))];
+        cachedPercentile = percentile;
+        cachedAtNanos = now;
+        return cachedPercentileValue;
+    }
+}
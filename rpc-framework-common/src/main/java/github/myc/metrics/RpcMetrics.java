@@ -0,0 +1,70 @@
+package github.myc.metrics;
+
+import github.myc.enums.RpcConfigEnum;
+import github.myc.utils.RpcConfigUtil;
+import github.myc.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 框架内部的指标，通过 SingletonFactory 获取
+ * gauge 在读取时才计算当前值，counter 是累加的计数。指标名称中用 {key=value} 的形式附带标签。
+ * 配置了 rpc.metrics.log.interval.seconds 时会定期把所有指标打印到日志中
+ */
+@Slf4j
+public class RpcMetrics {
+
+    private final Map<String, Supplier<?>> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public RpcMetrics() {
+        int logIntervalSeconds = RpcConfigUtil.getInt(RpcConfigEnum.METRICS_LOG_INTERVAL_SECONDS, 0);
+        if (logIntervalSeconds > 0) {
+            ScheduledExecutorService reporter = new ScheduledThreadPoolExecutor(1, ThreadPoolFactoryUtil.createThreadFactory("rpc-metrics-reporter", true));
+            reporter.scheduleAtFixedRate(() -> log.info("rpc metrics: {}", snapshot()), logIntervalSeconds, logIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 注册一个 gauge，同名的 gauge 会被替换
+     */
+    public void registerGauge(String name, Supplier<?> gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public void removeGauge(String name) {
+        gauges.remove(name);
+    }
+
+    /**
+     * 获取一个 counter，不存在时创建
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    /**
+     * @return 所有指标当前的值，按名称排序
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        gauges.forEach((name, gauge) -> {
+            try {
+                snapshot.put(name, gauge.get());
+            } catch (RuntimeException e) {
+                snapshot.put(name, "error: " + e.getMessage());
+            }
+        });
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+}
@@ -19,6 +19,12 @@ public interface ServiceProvider {
      */
     Object getService(String rpcServiceName);
 
+    /**
+     * @param rpcServiceName rpc 服务名称
+     * @return 本地是否保存了这个服务的对象
+     */
+    boolean containsService(String rpcServiceName);
+
     /**
      * @param rpcServiceConfig 服务的相关属性
      */
@@ -5,9 +5,14 @@ import github.myc.enums.RpcErrorMessageEnum;
 import github.myc.enums.ServiceRegistryEnum;
 import github.myc.exception.RpcException;
 import github.myc.extension.ExtensionLoader;
+import github.myc.factory.SingletonFactory;
 import lombok.extern.slf4j.Slf4j;
 import github.myc.provider.ServiceProvider;
 import github.myc.registry.ServiceRegistry;
+import github.myc.remoting.handler.ServiceExecutorRegistry;
+import github.myc.remoting.handler.invoker.MethodInvokerRegistry;
+import github.myc.remoting.handler.cache.ResponseCache;
+import github.myc.remoting.handler.ratelimit.RateLimiterRegistry;
 import github.myc.remoting.transport.netty.server.NettyRpcServer;
 
 
@@ -33,11 +38,19 @@ public class ZkServiceProviderImpl implements ServiceProvider {
     private final Set<String> registeredService;
     // ServiceRegistry 接口定义了服务注册和服务获取的方法。
     private final ServiceRegistry serviceRegistry;
+    private final MethodInvokerRegistry methodInvokerRegistry;
+    private final ServiceExecutorRegistry serviceExecutorRegistry;
+    private final RateLimiterRegistry rateLimiterRegistry;
+    private final ResponseCache responseCache;
 
     public ZkServiceProviderImpl() {
         serviceMap = new ConcurrentHashMap<>();
         registeredService = ConcurrentHashMap.newKeySet();
         serviceRegistry = ExtensionLoader.getExtensionLoader(ServiceRegistry.class).getExtension(ServiceRegistryEnum.ZK.getName());
+        methodInvokerRegistry = SingletonFactory.getInstance(MethodInvokerRegistry.class);
+        serviceExecutorRegistry = SingletonFactory.getInstance(ServiceExecutorRegistry.class);
+        rateLimiterRegistry = SingletonFactory.getInstance(RateLimiterRegistry.class);
+        responseCache = SingletonFactory.getInstance(ResponseCache.class);
     }
 
     @Override
@@ -48,6 +61,14 @@ public class ZkServiceProviderImpl implements ServiceProvider {
         }
         registeredService.add(rpcServiceName);
         serviceMap.put(rpcServiceName, rpcServiceConfig.getService());
+        // 提前为服务的每个方法创建调用器，处理请求时不再反射查找方法
+        methodInvokerRegistry.register(rpcServiceName, rpcServiceConfig.getService());
+        // 读取服务实现类上的限流配置
+        rateLimiterRegistry.register(rpcServiceName, rpcServiceConfig.getService());
+        // 读取服务实现类上的响应缓存配置
+        responseCache.register(rpcServiceName, rpcServiceConfig.getService());
+        // 配置了独占线程池的服务创建自己的线程池
+        serviceExecutorRegistry.register(rpcServiceConfig);
         log.info("Add service: {} and interfaces: {}", rpcServiceName, rpcServiceConfig.getService().getClass().getInterfaces());
     }
 
@@ -60,13 +81,19 @@ public class ZkServiceProviderImpl implements ServiceProvider {
         return service;
     }
 
+    @Override
+    public boolean containsService(String rpcServiceName) {
+        return serviceMap.containsKey(rpcServiceName);
+    }
+
     @Override
     public void publishService(RpcServiceConfig rpcServiceConfig) {
         try {
             // 因为是发布服务，所以服务的地址就是本台服务器的地址
             String host = InetAddress.getLocalHost().getHostAddress();
             this.addService(rpcServiceConfig);
-            serviceRegistry.registerService(rpcServiceConfig.getRpcServiceName(), new InetSocketAddress(host, NettyRpcServer.PORT));
+            serviceRegistry.registerService(rpcServiceConfig.getRpcServiceName(), new InetSocketAddress(host, NettyRpcServer.PORT),
+                    NettyRpcServer.DOMAIN_SOCKET_PATH);
         } catch (UnknownHostException e) {
             log.error("occur github.myc.exception when getHostAddress", e);
         }
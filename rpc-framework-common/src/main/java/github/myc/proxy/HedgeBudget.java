@@ -0,0 +1,41 @@
+package github.myc.proxy;
+
+import github.myc.enums.RpcConfigEnum;
+import github.myc.utils.RpcConfigUtil;
+
+/**
+ * 对冲请求的预算，限制对冲请求在所有请求中的占比，避免服务端整体变慢时对冲请求成倍放大流量
+ * 每发出一个普通请求积累 ratio 个令牌，每发出一个对冲请求消耗一个令牌，令牌数有上限
+ */
+public class HedgeBudget {
+
+    private static final double DEFAULT_RATIO = 0.1;
+    private static final double MAX_TOKENS = 10;
+
+    private final double ratio;
+    private double tokens;
+
+    public HedgeBudget() {
+        this.ratio = RpcConfigUtil.getDouble(RpcConfigEnum.CLIENT_HEDGE_BUDGET_RATIO, DEFAULT_RATIO);
+        this.tokens = MAX_TOKENS;
+    }
+
+    /**
+     * 发出一个普通请求时调用
+     */
+    public synchronized void onRequest() {
+        tokens = Math.min(MAX_TOKENS, tokens + ratio);
+    }
+
+    /**
+     * 尝试获取发送一个对冲请求的令牌
+     * @return 预算不足时返回 false
+     */
+    public synchronized boolean tryAcquire() {
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+}
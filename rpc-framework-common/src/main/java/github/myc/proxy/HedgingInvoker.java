@@ -0,0 +1,275 @@
+package github.myc.proxy;
+
+import github.myc.annotation.Hedging;
+import github.myc.enums.RpcErrorMessageEnum;
+import github.myc.enums.RpcResponseCodeEnum;
+import github.myc.enums.ServiceDiscoveryEnum;
+import github.myc.exception.RpcException;
+import github.myc.extension.ExtensionLoader;
+import github.myc.factory.SingletonFactory;
+import github.myc.metrics.LatencyRecorder;
+import github.myc.registry.ServiceDiscovery;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.transport.ResponseFutures;
+import github.myc.remoting.transport.RpcRequestTransport;
+import github.myc.utils.concurrent.threadpool.CustomThreadPoolConfig;
+import github.myc.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对冲请求的调用方式
+ * 第一次请求发出后，如果在等待时间内没有收到成功的响应，就把请求复制一份（使用新的 requestId）发给另一个服务端，
+ * 最先到达的成功响应作为调用结果，其余还未完成的请求会被取消，它们的响应到达后直接丢弃。
+ * 所有已发出的请求都失败时，如果还能发送对冲请求就立即发送，否则以最后一次失败作为调用结果。
+ * 所有请求共用调用的截止时间，截止时间到达时调用以 TimeoutException 结束，之后不再发送对冲请求。
+ */
+@Slf4j
+public class HedgingInvoker {
+
+    // 使用百分位数作为等待时间时至少需要的样本数
+    private static final int MIN_PERCENTILE_SAMPLES = 20;
+    private static final ScheduledThreadPoolExecutor HEDGE_TIMER = createHedgeTimer();
+    // 发送对冲请求可能要等待建立连接，不能在定时器线程和 IO 线程上执行，否则一个连不上的服务端会拖住所有对冲请求
+    private static final ExecutorService HEDGE_SENDER = ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent(
+            new CustomThreadPoolConfig(), "rpc-hedge-sender", true);
+    // 每个方法的调用延迟，key：rpc 服务名称 + 方法名
+    private static final Map<String, LatencyRecorder> LATENCY_RECORDERS = new ConcurrentHashMap<>();
+
+    private final RpcRequestTransport rpcRequestTransport;
+    private final ServiceDiscovery serviceDiscovery;
+    private final HedgeBudget hedgeBudget;
+
+    public HedgingInvoker(RpcRequestTransport rpcRequestTransport) {
+        this(rpcRequestTransport, ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension(ServiceDiscoveryEnum.ZK.getName()));
+    }
+
+    HedgingInvoker(RpcRequestTransport rpcRequestTransport, ServiceDiscovery serviceDiscovery) {
+        this.rpcRequestTransport = rpcRequestTransport;
+        this.serviceDiscovery = serviceDiscovery;
+        this.hedgeBudget = SingletonFactory.getInstance(HedgeBudget.class);
+    }
+
+    /**
+     * @param timeoutMillis 等待响应的超时时间，小于等于 0 表示一直等待；请求带有客户端截止时间时以截止时间为准
+     */
+    public CompletableFuture<RpcResponse<Object>> invoke(RpcRequest rpcRequest, Hedging hedging, long timeoutMillis) {
+        long timeout = rpcRequest.getClientDeadlineNanos() != 0 ? rpcRequest.getClientRemainingMillis() : timeoutMillis;
+        if (rpcRequest.getClientDeadlineNanos() != 0 && timeout <= 0) {
+            CompletableFuture<RpcResponse<Object>> expired = new CompletableFuture<>();
+            expired.completeExceptionally(new RpcException(RpcErrorMessageEnum.DEADLINE_EXCEEDED, rpcRequest.getRpcServiceName()));
+            return expired;
+        }
+        hedgeBudget.onRequest();
+        String methodKey = rpcRequest.getRpcServiceName() + "#" + rpcRequest.getMethodName();
+        LatencyRecorder latencyRecorder = LATENCY_RECORDERS.computeIfAbsent(methodKey, k -> new LatencyRecorder());
+        HedgedCall hedgedCall = new HedgedCall(rpcRequest, hedging, latencyRecorder);
+        if (timeout > 0) {
+            // 截止时间到达时结束整个调用，随后取消所有还未完成的请求和还未触发的对冲
+            hedgedCall.result.orTimeout(timeout, TimeUnit.MILLISECONDS);
+        }
+        hedgedCall.start();
+        return hedgedCall.result;
+    }
+
+    private static ScheduledThreadPoolExecutor createHedgeTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, ThreadPoolFactoryUtil.createThreadFactory("rpc-hedge-timer", true));
+        // 调用结束后取消的定时任务要及时从队列中移除
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /**
+     * 一次对冲调用的状态
+     */
+    private final class HedgedCall {
+
+        private final RpcRequest rpcRequest;
+        private final Hedging hedging;
+        private final LatencyRecorder latencyRecorder;
+        private final CompletableFuture<RpcResponse<Object>> result = new CompletableFuture<>();
+        // 以下状态都需要在 synchronized (this) 中访问
+        private final List<InetSocketAddress> triedAddresses = new ArrayList<>();
+        private final List<CompletableFuture<RpcResponse<Object>>> attempts = new ArrayList<>();
+        private int outstanding;
+        private int hedgesSent;
+        private ScheduledFuture<?> hedgeTimer;
+
+        private HedgedCall(RpcRequest rpcRequest, Hedging hedging, LatencyRecorder latencyRecorder) {
+            this.rpcRequest = rpcRequest;
+            this.hedging = hedging;
+            this.latencyRecorder = latencyRecorder;
+        }
+
+        private void start() {
+            // 调用结束后取消还未触发的对冲和还未完成的请求
+            result.whenComplete((rpcResponse, throwable) -> cancelOutstanding());
+            InetSocketAddress inetSocketAddress;
+            try {
+                inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            sendAttempt(rpcRequest, inetSocketAddress);
+            scheduleHedge();
+        }
+
+        private void sendAttempt(RpcRequest request, InetSocketAddress inetSocketAddress) {
+            synchronized (this) {
+                triedAddresses.add(inetSocketAddress);
+                outstanding++;
+            }
+            long startNanos = System.nanoTime();
+            CompletableFuture<RpcResponse<Object>> attempt;
+            try {
+                attempt = ResponseFutures.toFuture(rpcRequestTransport.sendRpcRequest(request, inetSocketAddress));
+            } catch (RuntimeException e) {
+                attempt = new CompletableFuture<>();
+                attempt.completeExceptionally(e);
+            }
+            synchronized (this) {
+                attempts.add(attempt);
+            }
+            attempt.whenComplete((rpcResponse, throwable) -> onAttemptComplete(rpcResponse, throwable, startNanos));
+        }
+
+        private void onAttemptComplete(RpcResponse<Object> rpcResponse, Throwable throwable, long startNanos) {
+            if (result.isDone()) {
+                return;
+            }
+            if (throwable == null && rpcResponse != null && rpcResponse.getCode() != null
+                    && rpcResponse.getCode() == RpcResponseCodeEnum.SUCCESS.getCode()) {
+                latencyRecorder.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                // 对冲请求的 requestId 与原请求不同，统一改为原请求的 requestId
+                rpcResponse.setRequestId(rpcRequest.getRequestId());
+                result.complete(rpcResponse);
+                return;
+            }
+            boolean allFailed;
+            synchronized (this) {
+                outstanding--;
+                allFailed = outstanding == 0;
+            }
+            // 已发出的请求都失败了，如果还能对冲就立即发给其他服务端，否则以这次失败作为结果
+            if (allFailed) {
+                Runnable fail = () -> {
+                    if (rpcResponse != null) {
+                        rpcResponse.setRequestId(rpcRequest.getRequestId());
+                        result.complete(rpcResponse);
+                    } else {
+                        result.completeExceptionally(throwable);
+                    }
+                };
+                executeHedge(() -> {
+                    if (!sendHedge()) {
+                        fail.run();
+                    }
+                }, fail);
+            }
+        }
+
+        private void scheduleHedge() {
+            long delay = hedgeDelayMillis();
+            // 定时器线程只负责触发，发送在 HEDGE_SENDER 上执行
+            ScheduledFuture<?> timer = HEDGE_TIMER.schedule(() -> executeHedge(() -> {
+                if (sendHedge()) {
+                    scheduleHedge();
+                }
+            }, () -> { }), delay, TimeUnit.MILLISECONDS);
+            synchronized (this) {
+                hedgeTimer = timer;
+            }
+            // 调度期间调用可能已经结束
+            if (result.isDone()) {
+                timer.cancel(false);
+            }
+        }
+
+        /**
+         * 发送一个对冲请求
+         * @return 没有发送（调用已结束、截止时间已过、达到次数上限、没有其他服务端或者预算不足）时返回 false
+         */
+        private boolean sendHedge() {
+            List<InetSocketAddress> excludedAddresses;
+            synchronized (this) {
+                if (result.isDone() || hedgesSent >= hedging.maxHedges()) {
+                    return false;
+                }
+                if (rpcRequest.getClientDeadlineNanos() != 0 && rpcRequest.getClientRemainingMillis() <= 0) {
+                    // 已经没有剩余的时间，发出去的请求也等不到响应
+                    return false;
+                }
+                excludedAddresses = new ArrayList<>(triedAddresses);
+            }
+            InetSocketAddress inetSocketAddress;
+            try {
+                inetSocketAddress = serviceDiscovery.lookupService(rpcRequest, excludedAddresses);
+            } catch (RpcException e) {
+                log.debug("no other provider for hedging [{}]", rpcRequest.getRpcServiceName());
+                return false;
+            }
+            synchronized (this) {
+                if (hedgesSent >= hedging.maxHedges()) {
+                    return false;
+                }
+                if (!hedgeBudget.tryAcquire()) {
+                    log.debug("hedge budget exhausted, skip hedging [{}]", rpcRequest.getRpcServiceName());
+                    return false;
+                }
+                hedgesSent++;
+            }
+            RpcRequest hedgeRequest = rpcRequest.copyWithRequestId(UUID.randomUUID().toString());
+            log.info("send hedged request [{}] of [{}] to [{}]", hedgeRequest.getRequestId(), rpcRequest.getRequestId(), inetSocketAddress);
+            sendAttempt(hedgeRequest, inetSocketAddress);
+            return true;
+        }
+
+        /**
+         * 在 HEDGE_SENDER 上发送对冲请求，线程池满时放弃这次对冲，执行 onRejected
+         */
+        private void executeHedge(Runnable send, Runnable onRejected) {
+            try {
+                HEDGE_SENDER.execute(send);
+            } catch (RejectedExecutionException e) {
+                log.debug("hedge sender is busy, skip hedging [{}]", rpcRequest.getRpcServiceName());
+                onRejected.run();
+            }
+        }
+
+        private long hedgeDelayMillis() {
+            if (hedging.percentile() > 0 && latencyRecorder.size() >= MIN_PERCENTILE_SAMPLES) {
+                return Math.max(1, latencyRecorder.percentile(hedging.percentile()));
+            }
+            return hedging.delayMs();
+        }
+
+        private void cancelOutstanding() {
+            List<CompletableFuture<RpcResponse<Object>>> pending;
+            ScheduledFuture<?> timer;
+            synchronized (this) {
+                pending = new ArrayList<>(attempts);
+                timer = hedgeTimer;
+            }
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            for (CompletableFuture<RpcResponse<Object>> attempt : pending) {
+                attempt.cancel(false);
+            }
+        }
+    }
+}
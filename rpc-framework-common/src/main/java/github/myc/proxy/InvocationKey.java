@@ -0,0 +1,52 @@
+package github.myc.proxy;
+
+import github.myc.remoting.dto.RpcRequest;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 一次调用的标识：rpc 服务名称（包括 group 和 version）、方法名、参数类型以及参数，参数数组按内容比较
+ */
+final class InvocationKey {
+
+    private final String rpcServiceName;
+    private final String methodName;
+    private final Class<?>[] paramTypes;
+    private final Object[] parameters;
+    private final int hashCode;
+
+    InvocationKey(RpcRequest rpcRequest) {
+        this.rpcServiceName = rpcRequest.getRpcServiceName();
+        this.methodName = rpcRequest.getMethodName();
+        this.paramTypes = rpcRequest.getParamTypes();
+        this.parameters = rpcRequest.getParameters();
+        this.hashCode = Objects.hash(rpcServiceName, methodName, Arrays.hashCode(paramTypes), Arrays.deepHashCode(parameters));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof InvocationKey)) {
+            return false;
+        }
+        InvocationKey that = (InvocationKey) o;
+        return hashCode == that.hashCode
+                && rpcServiceName.equals(that.rpcServiceName)
+                && methodName.equals(that.methodName)
+                && Arrays.equals(paramTypes, that.paramTypes)
+                && Arrays.deepEquals(parameters, that.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return rpcServiceName + "#" + methodName + Arrays.deepToString(parameters);
+    }
+}
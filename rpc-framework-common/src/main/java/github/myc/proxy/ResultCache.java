@@ -0,0 +1,101 @@
+package github.myc.proxy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个方法的结果缓存，按访问顺序淘汰（LRU），每个结果在 ttl 之后过期
+ */
+final class ResultCache {
+
+    private final long ttlNanos;
+    private final int maxSize;
+    // accessOrder 为 true 时，get 会把结果移动到链表末尾，链表头部就是最久没有被访问的结果
+    private final LinkedHashMap<InvocationKey, Entry> entries;
+    private long evictions;
+    // 每次 clear 加一，put 时版本不一致说明结果是在清除之前查询的，可能已经过时
+    private long epoch;
+
+    ResultCache(long ttlMillis, int maxSize) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxSize = Math.max(1, maxSize);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @return 缓存的结果，没有缓存或者已经过期时返回 null
+     */
+    synchronized Entry get(InvocationKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expireAtNanos >= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 发送请求之前取得当前版本，得到结果后随结果一起传给 put
+     */
+    synchronized long epoch() {
+        return epoch;
+    }
+
+    /**
+     * @param epoch 发送请求之前通过 epoch() 取得的版本，期间缓存被清除过时不保存这个结果
+     */
+    synchronized void put(InvocationKey key, Object value, long epoch) {
+        if (epoch != this.epoch) {
+            return;
+        }
+        entries.put(key, new Entry(value, System.nanoTime() + ttlNanos));
+        if (entries.size() > maxSize) {
+            evictExpired();
+            Iterator<InvocationKey> iterator = entries.keySet().iterator();
+            while (entries.size() > maxSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictions++;
+            }
+        }
+    }
+
+    synchronized void clear() {
+        epoch++;
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * 淘汰最近最少访问的结果之前先清理已经过期的结果
+     */
+    private void evictExpired() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.expireAtNanos >= 0);
+    }
+
+    /**
+     * 缓存的结果，value 可以是 null
+     */
+    static final class Entry {
+        final Object value;
+        final long expireAtNanos;
+
+        private Entry(Object value, long expireAtNanos) {
+            this.value = value;
+            this.expireAtNanos = expireAtNanos;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package github.myc.proxy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 显式的异步调用 API，用于返回值不是 CompletableFuture 的同步接口：
+ * <pre>
+ *     CompletableFuture&lt;String&gt; future = RpcAsync.call(() -&gt; helloService.hello(hello));
+ * </pre>
+ * 在 call 中通过代理对象调用方法时，代理对象只发送请求而不等待响应，方法本身返回 null（基本类型返回默认值），
+ * 真正的结果通过返回的 CompletableFuture 获取。每次 call 中只能发起一次远程调用。
+ * 方法本身返回 CompletableFuture 时不需要也不能通过 call 调用，代理对象在发送请求之前抛出 IllegalStateException，
+ * 直接使用方法返回的 future 即可。
+ */
+public final class RpcAsync {
+
+    private static final ThreadLocal<AsyncCall> ASYNC_CALL = new ThreadLocal<>();
+
+    private RpcAsync() {
+    }
+
+    /**
+     * 异步调用，回调在代理对象的回调线程池上执行
+     */
+    public static <T> CompletableFuture<T> call(Supplier<T> invocation) {
+        return call(invocation, null);
+    }
+
+    /**
+     * 异步调用，回调在指定的 executor 上执行
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CompletableFuture<T> call(Supplier<T> invocation, Executor executor) {
+        AsyncCall asyncCall = new AsyncCall(executor);
+        ASYNC_CALL.set(asyncCall);
+        try {
+            invocation.get();
+        } finally {
+            ASYNC_CALL.remove();
+        }
+        if (asyncCall.future != null) {
+            return (CompletableFuture<T>) asyncCall.future;
+        }
+        throw new IllegalStateException("No rpc invocation was made in RpcAsync.call");
+    }
+
+    static boolean isAsyncCall() {
+        AsyncCall asyncCall = ASYNC_CALL.get();
+        return asyncCall != null && asyncCall.future == null;
+    }
+
+    static Executor getExecutor(Executor defaultExecutor) {
+        AsyncCall asyncCall = ASYNC_CALL.get();
+        return asyncCall == null || asyncCall.executor == null ? defaultExecutor : asyncCall.executor;
+    }
+
+    static void setFuture(CompletableFuture<Object> future) {
+        ASYNC_CALL.get().future = future;
+    }
+
+    private static final class AsyncCall {
+        private final Executor executor;
+        private CompletableFuture<Object> future;
+
+        private AsyncCall(Executor executor) {
+            this.executor = executor;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package github.myc.proxy;
+
+import github.myc.annotation.RpcCacheable;
+import github.myc.factory.SingletonFactory;
+import github.myc.metrics.RpcMetrics;
+import github.myc.remoting.dto.RpcRequest;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 客户端结果缓存，所有代理对象共用，通过 SingletonFactory 获取
+ * 除了 @RpcCacheEvict 之外，也可以通过 invalidate 方法在收到数据变更通知时主动清除缓存：
+ * <pre>
+ *     SingletonFactory.getInstance(RpcClientCache.class).invalidate(HelloService.class.getName(), "", "", "hello");
+ * </pre>
+ */
+public class RpcClientCache {
+
+    // key：rpc 服务名称，value：这个服务每个方法的缓存，key 为方法名
+    private final Map<String, Map<String, MethodCache>> caches = new ConcurrentHashMap<>();
+    private final RpcMetrics rpcMetrics;
+
+    public RpcClientCache() {
+        this.rpcMetrics = SingletonFactory.getInstance(RpcMetrics.class);
+    }
+
+    /**
+     * 查询缓存
+     * @return 缓存的结果，没有命中时返回 null
+     */
+    ResultCache.Entry get(RpcRequest rpcRequest, RpcCacheable rpcCacheable) {
+        MethodCache methodCache = methodCache(rpcRequest, rpcCacheable);
+        ResultCache.Entry entry = methodCache.resultCache.get(new InvocationKey(rpcRequest));
+        (entry == null ? methodCache.misses : methodCache.hits).increment();
+        return entry;
+    }
+
+    /**
+     * 缓存当前的版本，没有命中缓存时在发送请求之前取得，缓存结果时传给 put
+     */
+    long epoch(RpcRequest rpcRequest, RpcCacheable rpcCacheable) {
+        return methodCache(rpcRequest, rpcCacheable).resultCache.epoch();
+    }
+
+    /**
+     * 缓存调用结果，如果发送请求之后缓存被清除过，结果可能已经过时，不会被缓存
+     */
+    void put(RpcRequest rpcRequest, RpcCacheable rpcCacheable, Object result, long epoch) {
+        methodCache(rpcRequest, rpcCacheable).resultCache.put(new InvocationKey(rpcRequest), result, epoch);
+    }
+
+    /**
+     * 清除一个服务中指定方法的缓存
+     * @param methodNames 方法名，为空时清除这个服务的所有缓存
+     */
+    public void invalidate(String interfaceName, String group, String version, String... methodNames) {
+        invalidate(interfaceName + group + version, Arrays.asList(methodNames));
+    }
+
+    void invalidate(String rpcServiceName, Collection<String> methodNames) {
+        Map<String, MethodCache> serviceCaches = caches.get(rpcServiceName);
+        if (serviceCaches == null) {
+            return;
+        }
+        serviceCaches.forEach((methodName, methodCache) -> {
+            if (methodNames.isEmpty() || methodNames.contains(methodName)) {
+                methodCache.resultCache.clear();
+            }
+        });
+    }
+
+    /**
+     * 清除所有缓存
+     */
+    public void invalidateAll() {
+        caches.values().forEach(serviceCaches -> serviceCaches.values().forEach(methodCache -> methodCache.resultCache.clear()));
+    }
+
+    private MethodCache methodCache(RpcRequest rpcRequest, RpcCacheable rpcCacheable) {
+        String rpcServiceName = rpcRequest.getRpcServiceName();
+        return caches.computeIfAbsent(rpcServiceName, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(rpcRequest.getMethodName(), methodName -> new MethodCache(rpcServiceName, methodName, rpcCacheable));
+    }
+
+    /**
+     * 一个方法的缓存和命中率统计，同名的重载方法共用一个缓存
+     */
+    private final class MethodCache {
+        private final ResultCache resultCache;
+        private final LongAdder hits;
+        private final LongAdder misses;
+
+        private MethodCache(String rpcServiceName, String methodName, RpcCacheable rpcCacheable) {
+            this.resultCache = new ResultCache(rpcCacheable.ttlMs(), rpcCacheable.maxSize());
+            String tag = "{method=" + rpcServiceName + "#" + methodName + "}";
+            this.hits = rpcMetrics.counter("rpc.client.cache.hits" + tag);
+            this.misses = rpcMetrics.counter("rpc.client.cache.misses" + tag);
+            rpcMetrics.registerGauge("rpc.client.cache.size" + tag, resultCache::size);
+            rpcMetrics.registerGauge("rpc.client.cache.evictions" + tag, resultCache::evictions);
+        }
+    }
+}
@@ -1,27 +1,52 @@
 package github.myc.proxy;
 
+import github.myc.annotation.Hedging;
+import github.myc.annotation.Idempotent;
+import github.myc.annotation.RpcCacheEvict;
+import github.myc.annotation.RpcCacheable;
+import github.myc.annotation.SingleFlight;
+import github.myc.cluster.ClusterInvoker;
 import github.myc.config.RpcServiceConfig;
+import github.myc.enums.ClusterInvokerEnum;
+import github.myc.enums.RpcConfigEnum;
 import github.myc.enums.RpcErrorMessageEnum;
+import github.myc.enums.RpcRequestTransportEnum;
 import github.myc.enums.RpcResponseCodeEnum;
 import github.myc.exception.RpcException;
+import github.myc.extension.ExtensionLoader;
+import github.myc.factory.SingletonFactory;
+import github.myc.utils.RpcConfigUtil;
+import github.myc.utils.RuntimeUtil;
+import github.myc.utils.concurrent.threadpool.CustomThreadPoolConfig;
+import github.myc.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import github.myc.remoting.context.RpcContext;
 import github.myc.remoting.dto.RpcRequest;
 import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.transport.LocalTransport;
+import github.myc.remoting.transport.ResponseFutures;
 import github.myc.remoting.transport.RpcRequestTransport;
-import github.myc.remoting.transport.netty.client.NettyRpcClient;
-import github.myc.remoting.transport.socket.SocketRpcClient;
+import github.myc.remoting.transport.injvm.InJvmRpcClient;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.Arrays;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 动态代理类，用来屏蔽复杂的网络传输细节
  * 当动态代理对象调用一个方法时，它实际上调用下面的 invoke 方法。
  * 正是由于动态代理，客户端调用远程方法就像调用本地方法一样(中间过程被屏蔽)。
+ * 返回值为 CompletableFuture 或 CompletionStage 的方法是异步调用，不会阻塞调用线程，结果在 callbackExecutor 上完成。
  */
 @Slf4j
 public class RpcClientProxy implements InvocationHandler {
@@ -33,15 +58,66 @@ public class RpcClientProxy implements InvocationHandler {
      */
     private final RpcRequestTransport rpcRequestTransport;
     private final RpcServiceConfig rpcServiceConfig;
+    /**
+     * 异步调用的回调在这个线程池上执行，避免用户的回调占用 Netty 的 IO 线程
+     */
+    private final Executor callbackExecutor;
+    /**
+     * 处理标记了 @Hedging 的方法
+     */
+    private final HedgingInvoker hedgingInvoker;
+    /**
+     * 其他方法按 @RpcReference 指定的集群容错策略调用
+     */
+    private final ClusterInvoker clusterInvoker;
+    /**
+     * 集群容错策略使用的配置，timeout 没有指定时使用配置文件中的默认值
+     */
+    private final RpcServiceConfig invokeConfig;
+    /**
+     * 合并标记了 @SingleFlight 的方法的相同并发调用
+     */
+    private final SingleFlightGroup singleFlightGroup;
+    /**
+     * 标记了 @RpcCacheable 的方法的结果缓存
+     */
+    private final RpcClientCache rpcClientCache;
+    /**
+     * 服务提供方和调用方在同一个 JVM 中时使用的传输方式
+     */
+    private final InJvmRpcClient inJvmRpcClient;
+    /**
+     * 当前应用的名称，随请求发给服务端，没有配置时为 null
+     */
+    private final String application;
 
-    public RpcClientProxy(RpcRequestTransport rpcRequestTransport, RpcServiceConfig rpcServiceConfig) {
+    public RpcClientProxy(RpcRequestTransport rpcRequestTransport, RpcServiceConfig rpcServiceConfig, Executor callbackExecutor) {
         this.rpcRequestTransport = rpcRequestTransport;
         this.rpcServiceConfig = rpcServiceConfig;
+        this.callbackExecutor = callbackExecutor;
+        this.hedgingInvoker = new HedgingInvoker(rpcRequestTransport);
+        this.singleFlightGroup = SingletonFactory.getInstance(SingleFlightGroup.class);
+        this.rpcClientCache = SingletonFactory.getInstance(RpcClientCache.class);
+        this.inJvmRpcClient = (InJvmRpcClient) ExtensionLoader.getExtensionLoader(RpcRequestTransport.class)
+                .getExtension(RpcRequestTransportEnum.INJVM.getName());
+        this.application = RpcConfigUtil.getProperty(RpcConfigEnum.APPLICATION_NAME, null);
+        String cluster = rpcServiceConfig.getCluster() == null || rpcServiceConfig.getCluster().isEmpty()
+                ? ClusterInvokerEnum.FAILFAST.getName() : rpcServiceConfig.getCluster();
+        this.clusterInvoker = ExtensionLoader.getExtensionLoader(ClusterInvoker.class).getExtension(cluster);
+        this.invokeConfig = RpcServiceConfig.builder()
+                .cluster(cluster)
+                .retries(rpcServiceConfig.getRetries())
+                .forks(rpcServiceConfig.getForks())
+                .timeout(rpcServiceConfig.getTimeout() > 0 ? rpcServiceConfig.getTimeout()
+                        : RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_TIMEOUT_MS, 0)).build();
+    }
+
+    public RpcClientProxy(RpcRequestTransport rpcRequestTransport, RpcServiceConfig rpcServiceConfig) {
+        this(rpcRequestTransport, rpcServiceConfig, defaultCallbackExecutor());
     }
 
     public RpcClientProxy(RpcRequestTransport rpcRequestTransport) {
-        this.rpcRequestTransport = rpcRequestTransport;
-        this.rpcServiceConfig = new RpcServiceConfig();
+        this(rpcRequestTransport, new RpcServiceConfig());
     }
 
     /**
@@ -60,10 +136,15 @@ public class RpcClientProxy implements InvocationHandler {
      * 代理对象是通过 getProxy 方法获得的对象。
      */
     @SneakyThrows
-    @SuppressWarnings("unchecked")
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) {
         log.info("invoked method: [{}]", method.getName());
+        if (isAsync(method) && RpcAsync.isAsyncCall()) {
+            // 在发送请求之前检查，否则调用方拿到异常时服务端已经执行了这次调用
+            throw new IllegalStateException("The rpc method [" + method.getName() + "] invoked in RpcAsync.call already returns a "
+                    + "CompletionStage, call it directly and use the returned future");
+        }
+        long callTimeoutMillis = callTimeoutMillis();
         // 构造 rpc 请求
         RpcRequest rpcRequest = RpcRequest.builder().methodName(method.getName())
                 .parameters(args)
@@ -71,20 +152,178 @@ public class RpcClientProxy implements InvocationHandler {
                 .paramTypes(method.getParameterTypes())
                 .requestId(UUID.randomUUID().toString())
                 .group(rpcServiceConfig.getGroup())
-                .version(rpcServiceConfig.getVersion()).build();
-        RpcResponse<Object> rpcResponse = null;
-        // 通过两种方式之一进行网络传输并获取方法调用结果
-        if (rpcRequestTransport instanceof NettyRpcClient) {
-            CompletableFuture<RpcResponse<Object>> completableFuture = (CompletableFuture<RpcResponse<Object>>) rpcRequestTransport.sendRpcRequest(rpcRequest);
-            rpcResponse = completableFuture.get();
+                .version(rpcServiceConfig.getVersion())
+                .timeout(callTimeoutMillis)
+                .clientDeadlineNanos(callTimeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(callTimeoutMillis) : 0)
+                .application(application)
+                .priority(rpcServiceConfig.getPriority())
+                .idempotent(method.isAnnotationPresent(Idempotent.class)).build();
+        CompletableFuture<RpcResponse<Object>> responseFuture;
+        if (RpcContext.hasDeadline() && RpcContext.remainingMillis() <= 0) {
+            // 当前线程上的截止时间已过（例如上游调用已经超时），不再发送请求
+            responseFuture = new CompletableFuture<>();
+            responseFuture.completeExceptionally(new RpcException(RpcErrorMessageEnum.DEADLINE_EXCEEDED, rpcRequest.getRpcServiceName()));
+        } else {
+            // 通过两种方式之一进行网络传输，得到的是还未完成的响应
+            responseFuture = sendRpcRequest(rpcRequest, method);
+        }
+        if (isAsync(method)) {
+            // 方法本身返回 CompletableFuture，直接把结果 future 交给调用方
+            return toResultFuture(responseFuture, rpcRequest, callbackExecutor);
         }
-        if (rpcRequestTransport instanceof SocketRpcClient) {
-            rpcResponse = (RpcResponse<Object>) rpcRequestTransport.sendRpcRequest(rpcRequest);
+        if (RpcAsync.isAsyncCall()) {
+            // 通过 RpcAsync 发起的异步调用，结果 future 交给 RpcAsync，方法本身返回默认值
+            RpcAsync.setFuture(toResultFuture(responseFuture, rpcRequest, RpcAsync.getExecutor(callbackExecutor)));
+            return defaultValue(method.getReturnType());
+        }
+        RpcResponse<Object> rpcResponse;
+        try {
+            rpcResponse = responseFuture.get();
+        } catch (ExecutionException e) {
+            // 还原调用失败的真实原因，超时等没有对应运行时异常的情况包装为 RpcException
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw cause;
+            }
+            throw new RpcException(RpcErrorMessageEnum.SERVICE_INVOCATION_FAILURE.getMessage() + ":" + rpcRequest.getRpcServiceName(), cause);
         }
         this.check(rpcResponse, rpcRequest);
         return rpcResponse.getData();
     }
 
+    /**
+     * 发送请求，把不同传输方式的返回值统一为 CompletableFuture
+     */
+    private CompletableFuture<RpcResponse<Object>> sendRpcRequest(RpcRequest rpcRequest, Method method) {
+        RpcCacheable rpcCacheable = method.getAnnotation(RpcCacheable.class);
+        long cacheEpoch = 0;
+        if (rpcCacheable != null) {
+            // 先取版本再查缓存，这样请求期间发生的清除都会让这次的结果不被缓存
+            cacheEpoch = rpcClientCache.epoch(rpcRequest, rpcCacheable);
+            ResultCache.Entry entry = rpcClientCache.get(rpcRequest, rpcCacheable);
+            if (entry != null) {
+                // 命中缓存，不发送请求
+                return CompletableFuture.completedFuture(RpcResponse.success(entry.value, rpcRequest.getRequestId()));
+            }
+        }
+        CompletableFuture<RpcResponse<Object>> responseFuture;
+        if (method.isAnnotationPresent(SingleFlight.class)) {
+            // 相同的并发调用共用一个请求
+            responseFuture = singleFlightGroup.execute(rpcRequest, () -> doSendRpcRequest(rpcRequest, method));
+        } else {
+            responseFuture = doSendRpcRequest(rpcRequest, method);
+        }
+        if (rpcCacheable != null) {
+            long epoch = cacheEpoch;
+            responseFuture.thenAccept(rpcResponse -> {
+                if (rpcResponse != null && rpcResponse.getCode() != null && rpcResponse.getCode() == RpcResponseCodeEnum.SUCCESS.getCode()) {
+                    rpcClientCache.put(rpcRequest, rpcCacheable, rpcResponse.getData(), epoch);
+                }
+            });
+        }
+        RpcCacheEvict rpcCacheEvict = method.getAnnotation(RpcCacheEvict.class);
+        if (rpcCacheEvict != null) {
+            // 调用失败或者超时时服务端也可能已经修改了数据，所以不论结果如何都清除缓存
+            responseFuture.whenComplete((rpcResponse, throwable) ->
+                    rpcClientCache.invalidate(rpcRequest.getRpcServiceName(), Arrays.asList(rpcCacheEvict.methods())));
+        }
+        return responseFuture;
+    }
+
+    /**
+     * 服务在本 JVM 中时直接调用，否则按 @Hedging 或者集群容错策略发送请求
+     */
+    private CompletableFuture<RpcResponse<Object>> doSendRpcRequest(RpcRequest rpcRequest, Method method) {
+        if (inJvmRpcClient.isLocal(rpcRequest)) {
+            // 服务就在本 JVM 中，直接调用本地的服务对象
+            return ResponseFutures.toFuture(inJvmRpcClient.sendRpcRequest(rpcRequest));
+        }
+        if (rpcRequestTransport instanceof LocalTransport) {
+            // 只能连接本机固定服务端的传输方式，不经过服务发现
+            return ResponseFutures.toFuture(rpcRequestTransport.sendRpcRequest(rpcRequest));
+        }
+        Hedging hedging = method.getAnnotation(Hedging.class);
+        if (hedging != null) {
+            return hedgingInvoker.invoke(rpcRequest, hedging, invokeConfig.getTimeout());
+        }
+        return clusterInvoker.invoke(rpcRequest, invokeConfig, rpcRequestTransport);
+    }
+
+    /**
+     * 在响应到达之后校验响应并取出结果，校验和后续回调都在 executor 上执行
+     */
+    private CompletableFuture<Object> toResultFuture(CompletableFuture<RpcResponse<Object>> responseFuture,
+                                                     RpcRequest rpcRequest, Executor executor) {
+        return responseFuture.thenApplyAsync(rpcResponse -> {
+            this.check(rpcResponse, rpcRequest);
+            return rpcResponse.getData();
+        }, executor);
+    }
+
+    /**
+     * 本次调用的超时时间：配置的超时时间和当前线程上下文中剩余时间较小的一个，0 表示一直等待。
+     * 服务方法中发起的调用因此不会超过上游调用方剩余的时间
+     */
+    private long callTimeoutMillis() {
+        long configured = invokeConfig.getTimeout();
+        if (!RpcContext.hasDeadline()) {
+            return configured;
+        }
+        long remaining = RpcContext.remainingMillis();
+        return configured > 0 ? Math.min(configured, remaining) : remaining;
+    }
+
+    private static boolean isAsync(Method method) {
+        Class<?> returnType = method.getReturnType();
+        return returnType == CompletableFuture.class || returnType == CompletionStage.class;
+    }
+
+    /**
+     * 异步调用时方法本身的返回值，基本类型不能返回 null
+     */
+    private static Object defaultValue(Class<?> returnType) {
+        if (!returnType.isPrimitive() || returnType == void.class) {
+            return null;
+        }
+        if (returnType == boolean.class) {
+            return false;
+        }
+        if (returnType == char.class) {
+            return '\0';
+        }
+        if (returnType == long.class) {
+            return 0L;
+        }
+        if (returnType == float.class) {
+            return 0F;
+        }
+        if (returnType == double.class) {
+            return 0D;
+        }
+        if (returnType == byte.class) {
+            return (byte) 0;
+        }
+        if (returnType == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+
+    /**
+     * 默认的回调线程池，所有代理对象共用。队列长度由 rpc.client.callback.queue.capacity 限制，
+     * 队列满时由完成响应的线程自己执行回调（CallerRunsPolicy），结果不会丢失，同时对响应的处理形成背压
+     */
+    private static Executor defaultCallbackExecutor() {
+        CustomThreadPoolConfig customThreadPoolConfig = new CustomThreadPoolConfig();
+        customThreadPoolConfig.setCorePoolSize(RuntimeUtil.cpus() * 2);
+        customThreadPoolConfig.setMaximumPoolSize(RuntimeUtil.cpus() * 2);
+        customThreadPoolConfig.setWorkQueue(new ArrayBlockingQueue<>(
+                Math.max(1, RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_CALLBACK_QUEUE_CAPACITY, 1024))));
+        // 回调堆积时由完成响应的线程自己执行回调，不丢弃结果，同时减缓新响应的处理速度
+        customThreadPoolConfig.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent(customThreadPoolConfig, "rpc-client-callback", true);
+    }
+
     /**
      * 判断请求和响应是否对应
      */
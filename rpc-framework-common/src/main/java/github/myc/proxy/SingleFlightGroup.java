@@ -0,0 +1,60 @@
+package github.myc.proxy;
+
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 合并标记了 @SingleFlight 的方法的相同并发调用，所有代理对象共用，通过 SingletonFactory 获取
+ */
+@Slf4j
+public class SingleFlightGroup {
+
+    // 在途的调用，请求完成后立即移除，之后相同的调用会重新发送请求
+    private final Map<InvocationKey, CompletableFuture<RpcResponse<Object>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 如果有相同的调用在途就等待它的结果，否则通过 sender 发送请求
+     * @return 每个调用方各自的 future，取消它不会影响其他等待同一个请求的调用方；响应的 requestId 是调用方自己的 requestId
+     */
+    public CompletableFuture<RpcResponse<Object>> execute(RpcRequest rpcRequest, Supplier<CompletableFuture<RpcResponse<Object>>> sender) {
+        InvocationKey key = new InvocationKey(rpcRequest);
+        CompletableFuture<RpcResponse<Object>> leader = new CompletableFuture<>();
+        CompletableFuture<RpcResponse<Object>> shared = inFlight.putIfAbsent(key, leader);
+        if (shared == null) {
+            shared = leader;
+            leader.whenComplete((rpcResponse, throwable) -> inFlight.remove(key, leader));
+            try {
+                sender.get().whenComplete((rpcResponse, throwable) -> {
+                    if (throwable != null) {
+                        leader.completeExceptionally(throwable);
+                    } else {
+                        leader.complete(rpcResponse);
+                    }
+                });
+            } catch (RuntimeException e) {
+                leader.completeExceptionally(e);
+            }
+        } else {
+            log.debug("join in-flight invocation [{}]", key);
+        }
+        // 多个调用方共用一个响应对象，复制一份再改为各自的 requestId
+        return shared.thenApply(rpcResponse -> copyFor(rpcResponse, rpcRequest));
+    }
+
+    private static RpcResponse<Object> copyFor(RpcResponse<Object> rpcResponse, RpcRequest rpcRequest) {
+        if (rpcResponse == null) {
+            return null;
+        }
+        return RpcResponse.builder()
+                .requestId(rpcRequest.getRequestId())
+                .code(rpcResponse.getCode())
+                .message(rpcResponse.getMessage())
+                .data(rpcResponse.getData()).build();
+    }
+}
@@ -4,6 +4,8 @@ import github.myc.annotation.SPI;
 import github.myc.remoting.dto.RpcRequest;
 
 import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 服务查询
@@ -16,4 +18,27 @@ public interface ServiceDiscovery {
      * @return  服务地址
      */
     InetSocketAddress lookupService(RpcRequest rpcRequest);
+
+    /**
+     * 通过 rpc 服务的名称查询服务的地址，负载均衡时跳过指定的地址
+     * @param rpcRequest        rpc 服务类
+     * @param excludedAddresses 不参与负载均衡的地址，例如已经调用失败或者已经发送过请求的地址
+     * @return  服务地址
+     */
+    InetSocketAddress lookupService(RpcRequest rpcRequest, Collection<InetSocketAddress> excludedAddresses);
+
+    /**
+     * 查询 rpc 服务的所有地址，不经过负载均衡
+     * @param rpcRequest rpc 服务类
+     * @return  所有服务地址，没有可用地址时返回空列表
+     */
+    List<InetSocketAddress> lookupAllServices(RpcRequest rpcRequest);
+
+    /**
+     * 查询服务端公布的 Unix domain socket 路径
+     * @param rpcServiceName    rpc 服务名称
+     * @param inetSocketAddress 服务端地址
+     * @return  socket 文件路径，服务端没有公布时返回 null
+     */
+    String getDomainSocketPath(String rpcServiceName, InetSocketAddress inetSocketAddress);
 }
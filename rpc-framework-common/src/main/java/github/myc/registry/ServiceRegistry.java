@@ -16,4 +16,12 @@ public interface ServiceRegistry {
      * @param inetSocketAddress 服务所在服务端地址
      */
     void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress);
+
+    /**
+     * 注册服务，同时公布服务端监听的 Unix domain socket 路径，同一台机器上的客户端可以通过它连接
+     * @param rpcServiceName rpc 服务名称
+     * @param inetSocketAddress 服务所在服务端地址
+     * @param domainSocketPath Unix domain socket 文件路径，为 null 表示不支持
+     */
+    void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress, String domainSocketPath);
 }
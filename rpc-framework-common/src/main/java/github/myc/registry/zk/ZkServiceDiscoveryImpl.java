@@ -1,18 +1,27 @@
 package github.myc.registry.zk;
 
+import github.myc.cluster.breaker.CircuitBreakerRegistry;
 import github.myc.enums.LoadBalanceEnum;
+import github.myc.enums.RpcConfigEnum;
 import github.myc.enums.RpcErrorMessageEnum;
 import github.myc.exception.RpcException;
 import github.myc.extension.ExtensionLoader;
+import github.myc.factory.SingletonFactory;
 import github.myc.loadbalance.LoadBalance;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.framework.CuratorFramework;
 import github.myc.registry.ServiceDiscovery;
 import github.myc.remoting.dto.RpcRequest;
 import github.myc.utils.CuratorUtils;
+import github.myc.utils.RpcConfigUtil;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 基于 Zookeeper 查询服务
@@ -21,23 +30,80 @@ import java.util.List;
 public class ZkServiceDiscoveryImpl implements ServiceDiscovery {
 
     private final LoadBalance loadBalance;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
 
     public ZkServiceDiscoveryImpl() {
-        this.loadBalance = ExtensionLoader.getExtensionLoader(LoadBalance.class).getExtension(LoadBalanceEnum.LOADBALANCE.getName());
+        String loadBalanceName = RpcConfigUtil.getProperty(RpcConfigEnum.CLIENT_LOADBALANCE, LoadBalanceEnum.LOADBALANCE.getName());
+        this.loadBalance = ExtensionLoader.getExtensionLoader(LoadBalance.class).getExtension(loadBalanceName);
+        this.circuitBreakerRegistry = SingletonFactory.getInstance(CircuitBreakerRegistry.class);
     }
 
     @Override
     public InetSocketAddress lookupService(RpcRequest rpcRequest) {
+        return lookupService(rpcRequest, Collections.emptyList());
+    }
+
+    @Override
+    public InetSocketAddress lookupService(RpcRequest rpcRequest, Collection<InetSocketAddress> excludedAddresses) {
         String rpcServiceName = rpcRequest.getRpcServiceName();
         CuratorFramework zkClient = CuratorUtils.getZkClient();
         List<String> serviceUrlList = CuratorUtils.getChildrenNodes(zkClient, rpcServiceName);
         if(serviceUrlList == null || serviceUrlList.isEmpty()){
             throw new RpcException(RpcErrorMessageEnum.SERVICE_CAN_NOT_BE_FOUND, rpcServiceName);
         }
+        // 跳过熔断器已经打开的服务端，只有确实需要过滤时才复制列表，避免一致性哈希频繁重建
+        if (serviceUrlList.stream().anyMatch(url -> !circuitBreakerRegistry.isCallPermitted(url))) {
+            serviceUrlList = serviceUrlList.stream().filter(circuitBreakerRegistry::isCallPermitted).collect(Collectors.toList());
+            if (serviceUrlList.isEmpty()) {
+                throw new RpcException(RpcErrorMessageEnum.CIRCUIT_BREAKER_OPEN, rpcServiceName);
+            }
+        }
+        if (!excludedAddresses.isEmpty()) {
+            // 注意不能修改缓存中的地址列表，要复制一份再过滤
+            Set<String> excludedUrls = excludedAddresses.stream().map(ZkServiceDiscoveryImpl::toServiceUrl).collect(Collectors.toSet());
+            serviceUrlList = serviceUrlList.stream().filter(url -> !excludedUrls.contains(url)).collect(Collectors.toList());
+            if (serviceUrlList.isEmpty()) {
+                throw new RpcException(RpcErrorMessageEnum.SERVICE_CAN_NOT_BE_FOUND, rpcServiceName);
+            }
+        }
         // 负载均衡
         String targetServiceUrl = loadBalance.selectServiceAddress(serviceUrlList, rpcRequest);
         log.info("Successfully found the service address: [{}]", targetServiceUrl);
-        String[] socketAddressArray = targetServiceUrl.split(":");
+        return toInetSocketAddress(targetServiceUrl);
+    }
+
+    @Override
+    public List<InetSocketAddress> lookupAllServices(RpcRequest rpcRequest) {
+        String rpcServiceName = rpcRequest.getRpcServiceName();
+        List<String> serviceUrlList = CuratorUtils.getChildrenNodes(CuratorUtils.getZkClient(), rpcServiceName);
+        if(serviceUrlList == null || serviceUrlList.isEmpty()){
+            return Collections.emptyList();
+        }
+        List<InetSocketAddress> addresses = new ArrayList<>(serviceUrlList.size());
+        for (String serviceUrl : serviceUrlList) {
+            addresses.add(toInetSocketAddress(serviceUrl));
+        }
+        return addresses;
+    }
+
+    @Override
+    public String getDomainSocketPath(String rpcServiceName, InetSocketAddress inetSocketAddress) {
+        String path = CuratorUtils.getNodeData(CuratorUtils.getZkClient(), rpcServiceName, toServiceUrl(inetSocketAddress));
+        return path.isEmpty() ? null : path;
+    }
+
+    /**
+     * 将 InetSocketAddress 转换为 zookeeper 上保存的 host:port 形式的地址
+     */
+    private static String toServiceUrl(InetSocketAddress inetSocketAddress) {
+        return inetSocketAddress.getHostString() + ":" + inetSocketAddress.getPort();
+    }
+
+    /**
+     * 将 zookeeper 上保存的 host:port 形式的地址转换为 InetSocketAddress
+     */
+    private InetSocketAddress toInetSocketAddress(String serviceUrl) {
+        String[] socketAddressArray = serviceUrl.split(":");
         String host = socketAddressArray[0];
         int port = Integer.parseInt(socketAddressArray[1]);
         return new InetSocketAddress(host, port);
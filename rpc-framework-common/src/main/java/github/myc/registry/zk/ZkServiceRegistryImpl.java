@@ -3,6 +3,7 @@ package github.myc.registry.zk;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.framework.CuratorFramework;
 import github.myc.registry.ServiceRegistry;
+import github.myc.remoting.constants.RpcConstants;
 import github.myc.utils.CuratorUtils;
 
 import java.net.InetSocketAddress;
@@ -15,6 +16,11 @@ public class ZkServiceRegistryImpl implements ServiceRegistry {
 
     @Override
     public void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress) {
+        registerService(rpcServiceName, inetSocketAddress, null);
+    }
+
+    @Override
+    public void registerService(String rpcServiceName, InetSocketAddress inetSocketAddress, String domainSocketPath) {
         /**
          * 这里 rpcServiceName 后面应该是要再加上一个 "/" ？
          * 答案：不用，inetSocketAddress.toString() 返回的就有斜杠了
@@ -22,6 +28,8 @@ public class ZkServiceRegistryImpl implements ServiceRegistry {
         String ServicePath = CuratorUtils.ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName + inetSocketAddress.toString();
         log.info("The address of service [{}] is [{}]", rpcServiceName, inetSocketAddress.toString());
         CuratorFramework zkClient = CuratorUtils.getZkClient();
-        CuratorUtils.createPersistentNode(zkClient, ServicePath);
+        // Unix domain socket 路径保存为地址节点的数据
+        byte[] data = domainSocketPath == null ? new byte[0] : domainSocketPath.getBytes(RpcConstants.DEFAULT_CHARSET);
+        CuratorUtils.createPersistentNode(zkClient, ServicePath, data);
     }
 }
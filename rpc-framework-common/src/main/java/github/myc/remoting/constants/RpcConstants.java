@@ -8,7 +8,9 @@ public class RpcConstants {
     // 魔数，用来验证 RpcMessage
     public static final byte[] MAGIC_NUMBER = {(byte) 'g', (byte)'r', (byte)'p', (byte)'c'};
     public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
-    public static final byte VERSION = 1;
+    // 协议版本，Kryo 按字段顺序序列化，RpcRequest、RpcResponse 增减字段后旧版本无法解码，必须升级版本号
+    // 2：RpcRequest 增加了 timeout、application 和 priority
+    public static final byte VERSION = 2;
     public static final byte TOTAL_LENGTH = 16;
     public static final byte REQUEST_TYPE = 1;
     public static final byte RESPONSE_TYPE = 2;
@@ -16,8 +18,8 @@ public class RpcConstants {
     public static final byte HEARTBEAT_REQUEST_TYPE = 3;
     // pong
     public static final byte HEARTBEAT_RESPONSE_TYPE = 4;
+    // 服务端缓存的响应：body 是 2 字节的 requestId 长度、requestId 和缓存的响应，客户端解码为普通的响应
+    public static final byte CACHED_RESPONSE_TYPE = 5;
     public static final int HEAD_LENGTH = 16;
-    public static final String PING = "ping";
-    public static final String PONG = "pong";
     public static final int MAX_FRAME_LENGTH = 8 * 1024 * 1024;
 }
@@ -0,0 +1,63 @@
+package github.myc.remoting.context;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 当前线程上的调用上下文，目前保存调用的截止时间（System.nanoTime）。
+ * 服务端执行服务方法时会设置为请求的截止时间，服务方法中发起的 rpc 调用的超时时间不会超过剩余的时间；
+ * 调用方也可以自己设置截止时间，约束之后在这个线程上发起的所有调用。
+ * 上下文只在同步执行的线程上有效，异步方法切换到其他线程后需要自己传递截止时间
+ */
+public final class RpcContext {
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private RpcContext() {
+    }
+
+    /**
+     * 设置当前线程的截止时间
+     * @return 之前的截止时间，没有时返回 null，用于 restoreDeadline
+     */
+    public static Long setDeadline(long timeout, TimeUnit unit) {
+        return setDeadlineNanos(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * @param deadlineNanos 以 System.nanoTime 表示的截止时间
+     * @return 之前的截止时间，没有时返回 null，用于 restoreDeadline
+     */
+    public static Long setDeadlineNanos(long deadlineNanos) {
+        Long previous = DEADLINE_NANOS.get();
+        DEADLINE_NANOS.set(deadlineNanos);
+        return previous;
+    }
+
+    /**
+     * 恢复为 setDeadline 之前的截止时间
+     */
+    public static void restoreDeadline(Long previous) {
+        if (previous == null) {
+            DEADLINE_NANOS.remove();
+        } else {
+            DEADLINE_NANOS.set(previous);
+        }
+    }
+
+    public static boolean hasDeadline() {
+        return DEADLINE_NANOS.get() != null;
+    }
+
+    /**
+     * @return 距离截止时间剩余的毫秒数，已经过期时小于等于 0，没有截止时间时返回 Long.MAX_VALUE
+     */
+    public static long remainingMillis() {
+        Long deadlineNanos = DEADLINE_NANOS.get();
+        if (deadlineNanos == null) {
+            return Long.MAX_VALUE;
+        }
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        // 不足 1 毫秒的剩余时间向上取整，避免还没过期的调用被当作过期
+        return remainingNanos <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(remainingNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+    }
+}
@@ -0,0 +1,17 @@
+package github.myc.remoting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 服务端缓存的响应，body 是已经序列化并压缩好的、不包含 requestId 的 RpcResponse，
+ * 编码时在 body 前面写上本次请求的 requestId，见 RpcConstants.CACHED_RESPONSE_TYPE
+ */
+@AllArgsConstructor
+@Getter
+public class CachedResponse {
+    private final String requestId;
+    private final ByteBuffer body;
+}
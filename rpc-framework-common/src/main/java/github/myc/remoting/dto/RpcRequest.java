@@ -3,6 +3,7 @@ package github.myc.remoting.dto;
 import lombok.*;
 
 import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 请求实体类
@@ -10,7 +11,7 @@ import java.io.Serializable;
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
-@Builder
+@Builder(toBuilder = true)
 @ToString
 public class RpcRequest implements Serializable {
     private static final long serialVersionUID = 1905122041950251207L;
@@ -21,8 +22,53 @@ public class RpcRequest implements Serializable {
     private Class<?>[] paramTypes;
     private String version;     // version 字段主要是为后续不兼容升级提供可能
     private String group;       // group 字段主要用于处理一个接口有多个实现类的情况
+    private long timeout;       // 发送时调用方剩余的时间（毫秒），服务端据此计算截止时间，0 表示没有截止时间
+    private String application; // 调用方应用的名称，见 rpc.application.name，服务端据此按调用方限流
+    private int priority;       // 请求的优先级，服务端过载时先丢弃优先级低的请求：小于 0 为可丢弃，0 为普通，大于 0 为关键请求
+    // 服务端解码出请求的时间（System.nanoTime），不参与序列化
+    @Setter
+    private transient long receivedNanos;
+    // 调用的方法是否标记了 @Idempotent，只在客户端决定能否重试时使用，不参与序列化
+    @Setter
+    private transient boolean idempotent;
+    // 客户端的截止时间（System.nanoTime），重试和对冲的请求共用，0 表示没有截止时间，不参与序列化
+    @Setter
+    private transient long clientDeadlineNanos;
 
     public String getRpcServiceName(){
         return this.getInterfaceName() + this.getGroup() + this.getVersion();
     }
+
+    /**
+     * @return 客户端剩余的时间（毫秒），已经超时时小于等于 0；没有截止时间时返回 Long.MAX_VALUE
+     */
+    public long getClientRemainingMillis() {
+        if (clientDeadlineNanos == 0) {
+            return Long.MAX_VALUE;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(clientDeadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * 复制一份请求用于重试或者对冲，timeout 改为客户端剩余的时间，服务端按剩余的时间而不是整个调用的超时时间计算截止时间
+     * @param newRequestId 新请求的 requestId，避免前一次请求迟到的响应和新请求混淆
+     */
+    public RpcRequest copyWithRequestId(String newRequestId) {
+        RpcRequestBuilder builder = toBuilder().requestId(newRequestId);
+        if (clientDeadlineNanos != 0) {
+            // timeout 为 0 表示没有截止时间，所以剩余时间不足 1 毫秒时也至少是 1
+            builder.timeout(Math.max(1, getClientRemainingMillis()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return 服务端的截止时间（System.nanoTime），没有截止时间时返回 0
+     */
+    public long getDeadlineNanos() {
+        if (timeout <= 0 || receivedNanos == 0) {
+            return 0;
+        }
+        return receivedNanos + TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
 }
@@ -1,9 +1,11 @@
 package github.myc.remoting.dto;
 
 import github.myc.enums.RpcResponseCodeEnum;
+import github.myc.exception.RpcRejectedException;
 import lombok.*;
 
 import java.io.Serializable;
+import java.util.concurrent.CompletionException;
 
 /**
  * 响应实体类
@@ -41,4 +43,20 @@ public class RpcResponse<T> implements Serializable {
         return response;
     }
 
+    // 请求处理失败时调用这个方法，响应带上请求的 requestId，客户端才能找到对应的请求
+    public static <T> RpcResponse<T> fail(RpcResponseCodeEnum rpcResponseCodeEnum, String requestId){
+        RpcResponse<T> response = fail(rpcResponseCodeEnum);
+        response.setRequestId(requestId);
+        return response;
+    }
+
+    // 根据处理请求时的异常选择响应码：服务端主动拒绝的请求使用拒绝的原因，其他异常都是 FAIL
+    public static <T> RpcResponse<T> fail(Throwable throwable, String requestId){
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        if (cause instanceof RpcRejectedException) {
+            return fail(((RpcRejectedException) cause).getResponseCode(), requestId);
+        }
+        return fail(RpcResponseCodeEnum.FAIL, requestId);
+    }
+
 }
@@ -0,0 +1,70 @@
+package github.myc.remoting.handler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 记录服务端正在处理的请求，关闭时先拒绝新的请求，再等待已经接收的请求处理完，通过 SingletonFactory 获取
+ */
+@Slf4j
+public class RequestDrainer {
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile boolean shuttingDown;
+
+    /**
+     * 开始处理一个请求，返回 true 时请求结束后必须调用 exit
+     * @return 服务端正在关闭时返回 false
+     */
+    public boolean tryEnter() {
+        // 先计数再检查状态，保证 awaitDrained 不会漏掉检查状态之前进入的请求
+        inflight.incrementAndGet();
+        if (shuttingDown) {
+            exit();
+            return false;
+        }
+        return true;
+    }
+
+    public void exit() {
+        if (inflight.decrementAndGet() == 0 && shuttingDown) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 之后到达的请求都会被拒绝
+     */
+    public void startShutdown() {
+        shuttingDown = true;
+        log.info("server is shutting down, [{}] requests in flight", inflight.get());
+    }
+
+    public boolean isShuttingDown() {
+        return shuttingDown;
+    }
+
+    /**
+     * 等待正在处理的请求全部结束
+     * @return 超时时还有请求没有结束时返回 false
+     */
+    public synchronized boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        while (inflight.get() > 0) {
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        }
+        return true;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
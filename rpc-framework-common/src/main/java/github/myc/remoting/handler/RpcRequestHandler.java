@@ -1,14 +1,28 @@
 package github.myc.remoting.handler;
 
+import github.myc.enums.RejectPolicyEnum;
+import github.myc.enums.RpcResponseCodeEnum;
 import github.myc.exception.RpcException;
+import github.myc.exception.RpcRejectedException;
 import github.myc.factory.SingletonFactory;
+import github.myc.metrics.RpcMetrics;
 import lombok.extern.slf4j.Slf4j;
 import github.myc.provider.ServiceProvider;
 import github.myc.provider.impl.ZkServiceProviderImpl;
+import github.myc.remoting.context.RpcContext;
 import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.handler.admission.AdmissionController;
+import github.myc.remoting.handler.invoker.MethodInvoker;
+import github.myc.remoting.handler.invoker.MethodInvokerRegistry;
+import github.myc.remoting.handler.invoker.MethodInvokers;
+import github.myc.remoting.handler.invoker.MethodKey;
+import github.myc.remoting.handler.ratelimit.RateLimiterRegistry;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * rpc 请求处理器
@@ -17,40 +31,201 @@ import java.lang.reflect.Method;
 public class RpcRequestHandler {
 
     private final ServiceProvider serviceProvider;
+    private final MethodInvokerRegistry methodInvokerRegistry;
+    private final ServiceExecutorRegistry serviceExecutorRegistry;
+    private final RpcMetrics rpcMetrics;
+    private final AdmissionController admissionController;
+    private final RateLimiterRegistry rateLimiterRegistry;
+    private final RequestDrainer requestDrainer;
 
     public RpcRequestHandler() {
         serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
+        methodInvokerRegistry = SingletonFactory.getInstance(MethodInvokerRegistry.class);
+        serviceExecutorRegistry = SingletonFactory.getInstance(ServiceExecutorRegistry.class);
+        rpcMetrics = SingletonFactory.getInstance(RpcMetrics.class);
+        admissionController = SingletonFactory.getInstance(AdmissionController.class);
+        rateLimiterRegistry = SingletonFactory.getInstance(RateLimiterRegistry.class);
+        requestDrainer = SingletonFactory.getInstance(RequestDrainer.class);
     }
 
     /**
-     * 处理 rpc 请求：调用对应的方法并返回执行结果
+     * 处理 rpc 请求：调用对应的方法并返回执行结果，异步方法会阻塞到结果完成
      * @param rpcRequest rpc 请求
      * @return 方法执行结果
      */
     public Object handle(RpcRequest rpcRequest) {
-        // 从服务端本地获得服务对象，以用来操作方法
-        Object service = serviceProvider.getService(rpcRequest.getRpcServiceName());
-        return invokeTargetMethod(rpcRequest, service);
+        try {
+            return handleAsync(rpcRequest).join();
+        } catch (CompletionException e) {
+            throw (RpcException) e.getCause();
+        }
+    }
+
+    /**
+     * 异步处理 rpc 请求，返回 CompletionStage 的服务方法不会占用调用线程等待结果。
+     * 服务有独占的线程池时，请求提交到这个线程池中执行，线程池满时按服务的拒绝策略处理。
+     * 请求先经过限流和准入控制，超过限流、服务端过载或者正在关闭时被丢弃的请求不会执行
+     * @param rpcRequest rpc 请求
+     * @return 方法执行完成时完成的 future，失败时的异常是 RpcException，被拒绝时是 RpcRejectedException
+     */
+    public CompletableFuture<Object> handleAsync(RpcRequest rpcRequest) {
+        RpcResponseCodeEnum rejectCode = precheck(rpcRequest);
+        if (rejectCode != null) {
+            return rejected(rejectCode, rpcRequest);
+        }
+        return handleChecked(rpcRequest);
+    }
+
+    /**
+     * 请求交给业务线程之前的检查，只做不阻塞的判断，可以在 IO 线程上执行：
+     * 服务端正在关闭时返回 SHUTTING_DOWN，超过限流时返回 RATE_LIMITED，到达时已经超过截止时间返回 DEADLINE_EXCEEDED。
+     * 响应缓存命中的请求也要先经过这些检查。
+     * 在 IO 线程上拒绝的请求不会占用业务线程池的队列，客户端收到的是真实的拒绝原因，而不是队列满之后的 OVERLOADED
+     * @return 通过检查时返回 null，之后调用 handleChecked 处理请求；否则返回拒绝的响应码
+     */
+    public RpcResponseCodeEnum precheck(RpcRequest rpcRequest) {
+        if (rpcRequest.getReceivedNanos() == 0) {
+            // 没有经过解码的请求（例如本 JVM 内的调用）从这里开始计算截止时间
+            rpcRequest.setReceivedNanos(System.nanoTime());
+        }
+        if (requestDrainer.isShuttingDown()) {
+            return RpcResponseCodeEnum.SHUTTING_DOWN;
+        }
+        if (!rateLimiterRegistry.tryAcquire(rpcRequest)) {
+            return RpcResponseCodeEnum.RATE_LIMITED;
+        }
+        if (isExpired(rpcRequest)) {
+            return RpcResponseCodeEnum.DEADLINE_EXCEEDED;
+        }
+        return null;
+    }
+
+    /**
+     * 处理已经通过 precheck 的请求，不会再次限流
+     */
+    public CompletableFuture<Object> handleChecked(RpcRequest rpcRequest) {
+        if (!requestDrainer.tryEnter()) {
+            return rejected(RpcResponseCodeEnum.SHUTTING_DOWN, rpcRequest);
+        }
+        CompletableFuture<Object> resultFuture = admit(rpcRequest);
+        // 服务端关闭时等待这些请求处理完
+        resultFuture.whenComplete((result, throwable) -> requestDrainer.exit());
+        return resultFuture;
+    }
+
+    private CompletableFuture<Object> admit(RpcRequest rpcRequest) {
+        if (!admissionController.tryAcquire(rpcRequest)) {
+            return rejected(RpcResponseCodeEnum.OVERLOADED, rpcRequest);
+        }
+        CompletableFuture<Object> resultFuture = dispatch(rpcRequest);
+        resultFuture.whenComplete((result, throwable) -> admissionController.release());
+        return resultFuture;
+    }
+
+    private CompletableFuture<Object> dispatch(RpcRequest rpcRequest) {
+        ServiceExecutorRegistry.ServiceExecutor serviceExecutor = serviceExecutorRegistry.get(rpcRequest.getRpcServiceName());
+        if (serviceExecutor == null) {
+            return invoke(rpcRequest);
+        }
+        CompletableFuture<Object> resultFuture = new CompletableFuture<>();
+        try {
+            serviceExecutor.getExecutor().execute(() -> invoke(rpcRequest).whenComplete((result, throwable) -> {
+                if (throwable == null) {
+                    resultFuture.complete(result);
+                } else {
+                    resultFuture.completeExceptionally(throwable);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            serviceExecutor.getRejectedCounter().increment();
+            if (serviceExecutor.getRejectPolicy() == RejectPolicyEnum.CALLER_RUNS) {
+                return invoke(rpcRequest);
+            }
+            log.warn("executor of service [{}] is full, reject request [{}]", rpcRequest.getRpcServiceName(), rpcRequest.getRequestId());
+            resultFuture.completeExceptionally(new RpcRejectedException(RpcResponseCodeEnum.OVERLOADED, rpcRequest.getRpcServiceName()));
+        }
+        return resultFuture;
+    }
+
+    private static CompletableFuture<Object> rejected(RpcResponseCodeEnum responseCode, RpcRequest rpcRequest) {
+        CompletableFuture<Object> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(new RpcRejectedException(responseCode, rpcRequest.getRpcServiceName()));
+        return rejected;
+    }
+
+    /**
+     * 调用方已经不再等待这个请求的结果时返回 true，这样的请求不再执行
+     */
+    private boolean isExpired(RpcRequest rpcRequest) {
+        long deadlineNanos = rpcRequest.getDeadlineNanos();
+        if (deadlineNanos == 0 || System.nanoTime() - deadlineNanos < 0) {
+            return false;
+        }
+        rpcMetrics.counter("rpc.server.deadline.expired{service=" + rpcRequest.getRpcServiceName() + "}").increment();
+        log.warn("request [{}] of [{}] has expired before execution, drop it", rpcRequest.getRequestId(), rpcRequest.getRpcServiceName());
+        return true;
+    }
+
+    private CompletableFuture<Object> invoke(RpcRequest rpcRequest) {
+        long deadlineNanos = rpcRequest.getDeadlineNanos();
+        // 排队之后再检查一次截止时间
+        if (isExpired(rpcRequest)) {
+            return rejected(RpcResponseCodeEnum.DEADLINE_EXCEEDED, rpcRequest);
+        }
+        if (!admissionController.admitExecution(rpcRequest)) {
+            // 服务端过载，排队太久或者优先级低的请求不再执行
+            return rejected(RpcResponseCodeEnum.OVERLOADED, rpcRequest);
+        }
+        Object result;
+        // 服务方法中发起的 rpc 调用使用剩余的时间作为超时时间
+        Long previousDeadline = deadlineNanos != 0 ? RpcContext.setDeadlineNanos(deadlineNanos) : null;
+        try {
+            // 从服务端本地获得服务对象，以用来操作方法
+            Object service = serviceProvider.getService(rpcRequest.getRpcServiceName());
+            result = invokeTargetMethod(rpcRequest, service);
+        } catch (Throwable e) {
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e instanceof RpcException ? e : new RpcException(e.getMessage(), e));
+            return failed;
+        } finally {
+            if (deadlineNanos != 0) {
+                RpcContext.restoreDeadline(previousDeadline);
+            }
+        }
+        // 返回 CompletableFuture 的异步方法，结果完成后再把结果返回给客户端，future 本身不能被序列化
+        if (!(result instanceof CompletionStage)) {
+            log.info("service [{}] successfully invoke method: [{}]", rpcRequest.getInterfaceName(), rpcRequest.getMethodName());
+            return CompletableFuture.completedFuture(result);
+        }
+        CompletableFuture<Object> resultFuture = new CompletableFuture<>();
+        ((CompletionStage<?>) result).whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                log.info("service [{}] successfully complete async method: [{}]", rpcRequest.getInterfaceName(), rpcRequest.getMethodName());
+                resultFuture.complete(value);
+            } else {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                resultFuture.completeExceptionally(new RpcException(cause.getMessage(), cause));
+            }
+        });
+        return resultFuture;
     }
 
     /**
      * 获取方法执行结果
      * @param rpcRequest    客户端请求
      * @param service       保存在服务端本地的服务对象
-     * @return              目标方法的执行结果
+     * @return              目标方法的执行结果，异步方法返回的是 CompletionStage
      */
-    private Object invokeTargetMethod(RpcRequest rpcRequest, Object service) {
-        Object result;
-        try {
+    private Object invokeTargetMethod(RpcRequest rpcRequest, Object service) throws Throwable {
+        // 服务发布时已经为每个方法创建好了调用器，查不到时（例如服务没有经过 ServiceProvider 加入）再通过反射查找方法
+        MethodInvoker methodInvoker = methodInvokerRegistry.get(rpcRequest.getRpcServiceName(),
+                new MethodKey(rpcRequest.getMethodName(), rpcRequest.getParamTypes()));
+        if (methodInvoker == null) {
             // getClass() 方法返回的是对象的实际运行时类对象，而不是编译时的类对象。这意味着，在多态的情况下，如果对象是一个子类的实例，那么 getClass() 方法将返回子类的 Class 对象。
             Method method = service.getClass().getMethod(rpcRequest.getMethodName(), rpcRequest.getParamTypes());
-            // service 是要调用方法的服务对象或实例
-            result = method.invoke(service, rpcRequest.getParameters());
-            log.info("service [{}] successfully invoke method: [{}]", rpcRequest.getInterfaceName(), rpcRequest.getMethodName());
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            throw new RpcException(e.getMessage(), e);
+            methodInvoker = MethodInvokers.reflection(service, method);
         }
-        return result;
+        return methodInvoker.invoke(rpcRequest.getParameters());
     }
 
 }
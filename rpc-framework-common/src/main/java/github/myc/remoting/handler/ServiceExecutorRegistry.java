@@ -0,0 +1,85 @@
+package github.myc.remoting.handler;
+
+import github.myc.config.RpcServiceConfig;
+import github.myc.enums.RejectPolicyEnum;
+import github.myc.factory.SingletonFactory;
+import github.myc.metrics.RpcMetrics;
+import github.myc.utils.concurrent.threadpool.CustomThreadPoolConfig;
+import github.myc.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务独占的线程池（隔离舱），在服务加入 ServiceProvider 时按 RpcServiceConfig 创建，通过 SingletonFactory 获取。
+ * 一个慢服务最多占满自己的线程池，不会耗尽其他服务共用的线程。
+ * 每个线程池的队列长度、活跃线程数和拒绝次数记录在 RpcMetrics 中
+ */
+@Slf4j
+public class ServiceExecutorRegistry {
+
+    private final RpcMetrics rpcMetrics;
+    // key：rpc 服务名称 (interface name + group + version)，不同 group、version 的服务各自有线程池
+    private final Map<String, ServiceExecutor> executors = new ConcurrentHashMap<>();
+
+    public ServiceExecutorRegistry() {
+        this.rpcMetrics = SingletonFactory.getInstance(RpcMetrics.class);
+    }
+
+    public void register(RpcServiceConfig rpcServiceConfig) {
+        if (rpcServiceConfig.getThreads() <= 0) {
+            return;
+        }
+        String rpcServiceName = rpcServiceConfig.getRpcServiceName();
+        RejectPolicyEnum rejectPolicy = RejectPolicyEnum.of(rpcServiceConfig.getRejectPolicy());
+        if (rejectPolicy == null) {
+            log.warn("unknown reject policy [{}] of service [{}], use [{}]", rpcServiceConfig.getRejectPolicy(), rpcServiceName,
+                    RejectPolicyEnum.ABORT.getName());
+            rejectPolicy = RejectPolicyEnum.ABORT;
+        }
+        CustomThreadPoolConfig config = new CustomThreadPoolConfig();
+        config.setCorePoolSize(rpcServiceConfig.getThreads());
+        config.setMaximumPoolSize(Math.max(rpcServiceConfig.getThreads(), rpcServiceConfig.getMaxThreads()));
+        config.setWorkQueue(rpcServiceConfig.getQueueSize() > 0
+                ? new ArrayBlockingQueue<>(rpcServiceConfig.getQueueSize()) : new SynchronousQueue<>());
+        ExecutorService executor = ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent("rpc-service-" + rpcServiceName, config);
+        String tag = "{service=" + rpcServiceName + "}";
+        ServiceExecutor serviceExecutor = new ServiceExecutor(executor, rejectPolicy, rpcMetrics.counter("rpc.server.executor.rejected" + tag));
+        executors.put(rpcServiceName, serviceExecutor);
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor threadPool = (ThreadPoolExecutor) executor;
+            rpcMetrics.registerGauge("rpc.server.executor.queue_depth" + tag, () -> threadPool.getQueue().size());
+            rpcMetrics.registerGauge("rpc.server.executor.active_threads" + tag, threadPool::getActiveCount);
+            rpcMetrics.registerGauge("rpc.server.executor.pool_size" + tag, threadPool::getPoolSize);
+        }
+        log.info("service [{}] uses its own executor: threads [{}], max threads [{}], queue size [{}], reject policy [{}]",
+                rpcServiceName, config.getCorePoolSize(), config.getMaximumPoolSize(), rpcServiceConfig.getQueueSize(), rejectPolicy.getName());
+    }
+
+    /**
+     * @return 服务没有独占的线程池时返回 null
+     */
+    public ServiceExecutor get(String rpcServiceName) {
+        return executors.get(rpcServiceName);
+    }
+
+    @Getter
+    public static final class ServiceExecutor {
+        private final ExecutorService executor;
+        private final RejectPolicyEnum rejectPolicy;
+        private final LongAdder rejectedCounter;
+
+        private ServiceExecutor(ExecutorService executor, RejectPolicyEnum rejectPolicy, LongAdder rejectedCounter) {
+            this.executor = executor;
+            this.rejectPolicy = rejectPolicy;
+            this.rejectedCounter = rejectedCounter;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package github.myc.remoting.handler.admission;
+
+import github.myc.enums.RpcConfigEnum;
+import github.myc.utils.RpcConfigUtil;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端准入控制的配置，从 rpc.properties 读取
+ */
+@Getter
+public class AdmissionConfig {
+
+    private final boolean enabled;
+    // 请求排队时间的目标值，一个观察周期内的最小排队时间都超过它时认为服务端过载
+    private final long targetDelayNanos;
+    // 观察周期
+    private final long intervalNanos;
+    // 同时处理（包括排队）的请求数上限，0 表示不限制
+    private final int maxInflight;
+
+    public AdmissionConfig() {
+        this.enabled = RpcConfigUtil.getBoolean(RpcConfigEnum.SERVER_ADMISSION_ENABLED, false);
+        this.targetDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, RpcConfigUtil.getInt(RpcConfigEnum.SERVER_ADMISSION_TARGET_DELAY_MS, 50)));
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, RpcConfigUtil.getInt(RpcConfigEnum.SERVER_ADMISSION_INTERVAL_MS, 100)));
+        this.maxInflight = Math.max(0, RpcConfigUtil.getInt(RpcConfigEnum.SERVER_ADMISSION_MAX_INFLIGHT, 0));
+    }
+}
@@ -0,0 +1,136 @@
+package github.myc.remoting.handler.admission;
+
+import github.myc.factory.SingletonFactory;
+import github.myc.metrics.RpcMetrics;
+import github.myc.remoting.dto.RpcRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 服务端的准入控制，在 RpcRequestHandler 执行请求之前决定是否丢弃请求，通过 SingletonFactory 获取。
+ * <ul>
+ *     <li>请求到达时按在途请求数判断：低优先级请求在在途请求数达到上限的一半时就被拒绝，普通请求在 90% 时被拒绝，高优先级请求在达到上限时才被拒绝</li>
+ *     <li>请求开始执行时按排队时间判断（CoDel）：一个观察周期内的最小排队时间超过目标值说明队列一直没有排空，服务端处于过载状态，
+ *     过载时丢弃所有低优先级请求和排队时间超过目标值的普通请求，高优先级请求不丢弃</li>
+ * </ul>
+ * 被丢弃的请求立即返回 OVERLOADED 响应，客户端据此换一个服务端重试
+ */
+@Slf4j
+public class AdmissionController {
+
+    private final AdmissionConfig config;
+    private final RpcMetrics rpcMetrics;
+    private final AtomicInteger inflight = new AtomicInteger();
+    // 当前观察周期内的最小排队时间，以及周期结束的时间
+    private final AtomicLong minDelayNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong intervalEndNanos = new AtomicLong(System.nanoTime());
+    private volatile boolean overloaded;
+
+    public AdmissionController() {
+        this.config = new AdmissionConfig();
+        this.rpcMetrics = SingletonFactory.getInstance(RpcMetrics.class);
+        if (config.isEnabled()) {
+            rpcMetrics.registerGauge("rpc.server.admission.inflight", inflight::get);
+            rpcMetrics.registerGauge("rpc.server.admission.overloaded", () -> overloaded ? 1 : 0);
+        }
+    }
+
+    /**
+     * 请求到达时调用，返回 true 时请求结束后必须调用 release
+     */
+    public boolean tryAcquire(RpcRequest rpcRequest) {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        // 过载时低优先级请求不会进入执行阶段，所以请求到达时也要检查观察周期是否结束，否则过载状态可能一直不会解除
+        closeIntervalIfDue(System.nanoTime());
+        int priority = rpcRequest.getPriority();
+        if (priority < 0 && overloaded) {
+            shed(rpcRequest, "overloaded");
+            return false;
+        }
+        int current = inflight.incrementAndGet();
+        if (config.getMaxInflight() > 0 && current > inflightLimit(priority)) {
+            inflight.decrementAndGet();
+            shed(rpcRequest, "inflight");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 请求开始执行时调用，记录排队时间并判断是否丢弃；返回 false 时调用方仍然需要调用 release
+     */
+    public boolean admitExecution(RpcRequest rpcRequest) {
+        if (!config.isEnabled() || rpcRequest.getReceivedNanos() == 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long delayNanos = now - rpcRequest.getReceivedNanos();
+        recordQueueDelay(delayNanos, now);
+        if (!overloaded) {
+            return true;
+        }
+        int priority = rpcRequest.getPriority();
+        if (priority < 0 || (priority == 0 && delayNanos > config.getTargetDelayNanos())) {
+            shed(rpcRequest, "queue_delay");
+            return false;
+        }
+        return true;
+    }
+
+    public void release() {
+        if (config.isEnabled()) {
+            inflight.decrementAndGet();
+        }
+    }
+
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    private int inflightLimit(int priority) {
+        int maxInflight = config.getMaxInflight();
+        if (priority < 0) {
+            return Math.max(1, maxInflight / 2);
+        }
+        if (priority == 0) {
+            return Math.max(1, maxInflight * 9 / 10);
+        }
+        return maxInflight;
+    }
+
+    private void recordQueueDelay(long delayNanos, long now) {
+        long min;
+        do {
+            min = minDelayNanos.get();
+        } while (delayNanos < min && !minDelayNanos.compareAndSet(min, delayNanos));
+        closeIntervalIfDue(now);
+    }
+
+    private void closeIntervalIfDue(long now) {
+        long end = intervalEndNanos.get();
+        // 观察周期结束，只有一个线程负责切换到下一个周期
+        if (now - end >= 0 && intervalEndNanos.compareAndSet(end, now + config.getIntervalNanos())) {
+            boolean wasOverloaded = overloaded;
+            long min = minDelayNanos.getAndSet(Long.MAX_VALUE);
+            if (min != Long.MAX_VALUE) {
+                overloaded = min > config.getTargetDelayNanos();
+            } else if (inflight.get() == 0) {
+                // 整个周期没有请求开始执行，也没有在途的请求，说明队列已经空了
+                overloaded = false;
+            }
+            if (overloaded != wasOverloaded) {
+                log.warn("server is {} overloaded", overloaded ? "now" : "no longer");
+            }
+        }
+    }
+
+    private void shed(RpcRequest rpcRequest, String reason) {
+        String priority = rpcRequest.getPriority() < 0 ? "low" : rpcRequest.getPriority() == 0 ? "normal" : "high";
+        rpcMetrics.counter("rpc.server.admission.shed{reason=" + reason + ",priority=" + priority + "}").increment();
+        log.debug("shed request [{}] of [{}], reason [{}]", rpcRequest.getRequestId(), rpcRequest.getRpcServiceName(), reason);
+    }
+}
@@ -0,0 +1,253 @@
+package github.myc.remoting.handler.cache;
+
+import github.myc.annotation.ResponseCacheable;
+import github.myc.compress.Compress;
+import github.myc.enums.CompressTypeEnum;
+import github.myc.enums.RpcConfigEnum;
+import github.myc.enums.SerializationTypeEnum;
+import github.myc.extension.ExtensionLoader;
+import github.myc.factory.SingletonFactory;
+import github.myc.metrics.RpcMetrics;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.handler.invoker.MethodKey;
+import github.myc.serialize.Serializer;
+import github.myc.utils.RpcConfigUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务端响应缓存，缓存标记了 @ResponseCacheable 的方法序列化并压缩好的响应，通过 SingletonFactory 获取。
+ * 所有方法共用一个按访问顺序淘汰（LRU）的缓存，缓存的字节数（响应和参数）不超过 rpc.server.response.cache.max.mb，
+ * rpc.server.response.cache.off.heap 为 true 时响应存放在堆外，不占用堆内存，也不增加 GC 的扫描负担
+ */
+@Slf4j
+public class ResponseCache {
+
+    private final long maxBytes;
+    private final boolean offHeap;
+    // key：rpc 服务名称，value：可以缓存的方法 -> 缓存有效期（纳秒）
+    private final Map<String, Map<MethodKey, Long>> cacheableMethods = new ConcurrentHashMap<>();
+    // 以下状态都需要在 synchronized (this) 中访问
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    public ResponseCache() {
+        this.maxBytes = Math.max(0, RpcConfigUtil.getInt(RpcConfigEnum.SERVER_RESPONSE_CACHE_MAX_MB, 64)) * 1024L * 1024L;
+        this.offHeap = RpcConfigUtil.getBoolean(RpcConfigEnum.SERVER_RESPONSE_CACHE_OFF_HEAP, false);
+        RpcMetrics rpcMetrics = SingletonFactory.getInstance(RpcMetrics.class);
+        this.hits = rpcMetrics.counter("rpc.server.response_cache.hits");
+        this.misses = rpcMetrics.counter("rpc.server.response_cache.misses");
+        this.evictions = rpcMetrics.counter("rpc.server.response_cache.evictions");
+        rpcMetrics.registerGauge("rpc.server.response_cache.bytes", this::bytes);
+        rpcMetrics.registerGauge("rpc.server.response_cache.entries", this::size);
+    }
+
+    /**
+     * 读取服务实现类的 public 方法上的 @ResponseCacheable
+     */
+    public void register(String rpcServiceName, Object service) {
+        Map<MethodKey, Long> methods = new ConcurrentHashMap<>();
+        for (Method method : service.getClass().getMethods()) {
+            ResponseCacheable responseCacheable = method.getAnnotation(ResponseCacheable.class);
+            if (responseCacheable != null && !Modifier.isStatic(method.getModifiers())) {
+                methods.put(MethodKey.of(method), TimeUnit.MILLISECONDS.toNanos(responseCacheable.ttlMs()));
+            }
+        }
+        if (!methods.isEmpty() && maxBytes > 0) {
+            cacheableMethods.put(rpcServiceName, methods);
+            log.info("service [{}] caches responses of methods {}", rpcServiceName, methods.keySet());
+        }
+    }
+
+    /**
+     * 计算请求的缓存 key，参数用服务端响应使用的序列化方式序列化后比较
+     * @return 请求的方法不能缓存或者参数不能序列化时返回 null
+     */
+    public Key keyOf(RpcRequest rpcRequest, byte codec) {
+        Map<MethodKey, Long> methods = cacheableMethods.get(rpcRequest.getRpcServiceName());
+        if (methods == null) {
+            return null;
+        }
+        MethodKey methodKey = new MethodKey(rpcRequest.getMethodName(), rpcRequest.getParamTypes());
+        Long ttlNanos = methods.get(methodKey);
+        if (ttlNanos == null) {
+            return null;
+        }
+        byte[] args;
+        try {
+            args = serializer(codec).serialize(rpcRequest.getParameters() == null ? new Object[0] : rpcRequest.getParameters());
+        } catch (RuntimeException e) {
+            log.warn("can not serialize arguments of [{}#{}], skip response cache", rpcRequest.getRpcServiceName(), rpcRequest.getMethodName(), e);
+            return null;
+        }
+        return new Key(rpcRequest.getRpcServiceName(), methodKey, args, ttlNanos);
+    }
+
+    /**
+     * @return 缓存的响应（只读的视图），没有缓存或者已经过期时返回 null
+     */
+    public synchronized ByteBuffer get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.expireAtNanos >= 0) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.body.asReadOnlyBuffer();
+    }
+
+    /**
+     * 把方法的返回值编码为不包含 requestId 的响应并放入缓存
+     * @return 编码好的响应（只读的视图），编码失败时返回 null
+     */
+    public ByteBuffer encodeAndPut(Key key, Object result, byte codec, byte compress) {
+        byte[] encoded;
+        try {
+            encoded = serializer(codec).serialize(RpcResponse.success(result, null));
+            encoded = ExtensionLoader.getExtensionLoader(Compress.class).getExtension(CompressTypeEnum.getName(compress)).compress(encoded);
+        } catch (RuntimeException e) {
+            log.warn("can not encode response of [{}#{}], skip response cache", key.rpcServiceName, key.methodKey, e);
+            return null;
+        }
+        ByteBuffer body = offHeap ? ByteBuffer.allocateDirect(encoded.length).put(encoded).flip() : ByteBuffer.wrap(encoded);
+        long entryBytes = (long) encoded.length + key.args.length;
+        if (entryBytes <= maxBytes) {
+            synchronized (this) {
+                remove(key);
+                entries.put(key, new Entry(body, entryBytes, System.nanoTime() + key.ttlNanos));
+                bytes += entryBytes;
+                evict();
+            }
+        }
+        return body.asReadOnlyBuffer();
+    }
+
+    /**
+     * 清除一个服务的所有缓存，服务的数据发生变化时调用
+     */
+    public synchronized void invalidate(String rpcServiceName) {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> next = iterator.next();
+            if (next.getKey().rpcServiceName.equals(rpcServiceName)) {
+                bytes -= next.getValue().bytes;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.bytes;
+        }
+    }
+
+    /**
+     * 超过字节数上限时先清理已经过期的响应，再淘汰最久没有被访问的响应
+     */
+    private void evict() {
+        if (bytes <= maxBytes) {
+            return;
+        }
+        long now = System.nanoTime();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.expireAtNanos >= 0) {
+                bytes -= entry.bytes;
+                iterator.remove();
+            }
+        }
+        iterator = entries.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().bytes;
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private static Serializer serializer(byte codec) {
+        return ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(SerializationTypeEnum.getName(codec));
+    }
+
+    /**
+     * 缓存的 key：rpc 服务名称、方法和序列化后的参数
+     */
+    public static final class Key {
+        private final String rpcServiceName;
+        private final MethodKey methodKey;
+        private final byte[] args;
+        private final long ttlNanos;
+        private final int hash;
+
+        private Key(String rpcServiceName, MethodKey methodKey, byte[] args, long ttlNanos) {
+            this.rpcServiceName = rpcServiceName;
+            this.methodKey = methodKey;
+            this.args = args;
+            this.ttlNanos = ttlNanos;
+            this.hash = 31 * (31 * rpcServiceName.hashCode() + methodKey.hashCode()) + Arrays.hashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash && rpcServiceName.equals(key.rpcServiceName)
+                    && methodKey.equals(key.methodKey) && Arrays.equals(args, key.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final ByteBuffer body;
+        private final long bytes;
+        private final long expireAtNanos;
+
+        private Entry(ByteBuffer body, long bytes, long expireAtNanos) {
+            this.body = body;
+            this.bytes = bytes;
+            this.expireAtNanos = expireAtNanos;
+        }
+    }
+}
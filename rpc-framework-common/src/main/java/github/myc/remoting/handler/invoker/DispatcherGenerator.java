@@ -0,0 +1,193 @@
+package github.myc.remoting.handler.invoker;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * 为服务生成分发类，生成的类相当于：
+ * <pre>
+ *     public Object dispatch(int methodId, Object[] args) {
+ *         switch (methodId) {
+ *             case 0: return target.hello((Hello) args[0]);
+ *             case 1: target.ping(((Integer) args[0]).intValue()); return null;
+ *             ...
+ *             default: throw new IllegalArgumentException();
+ *         }
+ *     }
+ * </pre>
+ * 对服务方法是普通的 invokevirtual / invokeinterface 调用，JIT 可以把服务方法内联进来。
+ * 分发类作为 hidden class 定义在本包中，所以服务类、参数和返回值类型都必须是 public 的，并且能被本框架的类加载器加载。
+ */
+final class DispatcherGenerator {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    // hidden class 的类名由 JVM 加上唯一后缀，所以所有分发类可以使用同一个名字
+    private static final String DISPATCHER_NAME = Type.getInternalName(DispatcherGenerator.class) + "$Dispatcher";
+
+    private DispatcherGenerator() {
+    }
+
+    /**
+     * @param service 服务对象
+     * @param methods 要分发的方法，下标就是方法编号
+     * @throws IllegalArgumentException 服务不能通过生成的类调用
+     */
+    static ServiceDispatcher generate(Object service, List<Method> methods) {
+        Class<?> targetType = service.getClass();
+        if (methods.isEmpty()) {
+            throw new IllegalArgumentException("service class " + targetType.getName() + " has no method to dispatch");
+        }
+        if (!isAccessible(targetType)) {
+            throw new IllegalArgumentException("service class " + targetType.getName() + " is not accessible");
+        }
+        for (Method method : methods) {
+            if (!isAccessible(method.getReturnType())) {
+                throw new IllegalArgumentException("return type of " + method + " is not accessible");
+            }
+            for (Class<?> paramType : method.getParameterTypes()) {
+                if (!isAccessible(paramType)) {
+                    throw new IllegalArgumentException("parameter type of " + method + " is not accessible");
+                }
+            }
+        }
+        byte[] bytes = generateClass(targetType, methods);
+        try {
+            MethodHandles.Lookup hiddenLookup = LOOKUP.defineHiddenClass(bytes, true);
+            return (ServiceDispatcher) hiddenLookup.findConstructor(hiddenLookup.lookupClass(),
+                    MethodType.methodType(void.class, Object.class)).invoke(service);
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("define dispatcher for " + targetType.getName() + " failed", e);
+        }
+    }
+
+    private static boolean isAccessible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(type.getName(), false, DispatcherGenerator.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static byte[] generateClass(Class<?> targetType, List<Method> methods) {
+        String target = Type.getInternalName(targetType);
+        String targetDesc = Type.getDescriptor(targetType);
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        String className = DISPATCHER_NAME;
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+                className, null, "java/lang/Object", new String[]{Type.getInternalName(ServiceDispatcher.class)});
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "target", targetDesc, null, null).visitEnd();
+
+        // 构造方法：this.target = (T) target
+        MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "(Ljava/lang/Object;)V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitVarInsn(Opcodes.ALOAD, 1);
+        init.visitTypeInsn(Opcodes.CHECKCAST, target);
+        init.visitFieldInsn(Opcodes.PUTFIELD, className, "target", targetDesc);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        // dispatch(int methodId, Object[] args)
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "dispatch", "(I[Ljava/lang/Object;)Ljava/lang/Object;",
+                null, new String[]{"java/lang/Throwable"});
+        mv.visitCode();
+        Label defaultLabel = new Label();
+        Label[] labels = new Label[methods.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = new Label();
+        }
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitTableSwitchInsn(0, labels.length - 1, defaultLabel, labels);
+        for (int i = 0; i < labels.length; i++) {
+            Method method = methods.get(i);
+            mv.visitLabel(labels[i]);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, className, "target", targetDesc);
+            Class<?>[] paramTypes = method.getParameterTypes();
+            for (int j = 0; j < paramTypes.length; j++) {
+                mv.visitVarInsn(Opcodes.ALOAD, 2);
+                pushInt(mv, j);
+                mv.visitInsn(Opcodes.AALOAD);
+                unbox(mv, paramTypes[j]);
+            }
+            boolean isInterface = targetType.isInterface();
+            mv.visitMethodInsn(isInterface ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL, target,
+                    method.getName(), Type.getMethodDescriptor(method), isInterface);
+            box(mv, method.getReturnType());
+            mv.visitInsn(Opcodes.ARETURN);
+        }
+        mv.visitLabel(defaultLabel);
+        mv.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalArgumentException");
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitLdcInsn("unknown method id");
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>", "(Ljava/lang/String;)V", false);
+        mv.visitInsn(Opcodes.ATHROW);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        }
+    }
+
+    /**
+     * 把栈顶的 Object 转换为参数类型，基本类型先转换为包装类型再拆箱
+     */
+    private static void unbox(MethodVisitor mv, Class<?> type) {
+        if (!type.isPrimitive()) {
+            if (type != Object.class) {
+                mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+            }
+            return;
+        }
+        String wrapper = Type.getInternalName(wrapperOf(type));
+        mv.visitTypeInsn(Opcodes.CHECKCAST, wrapper);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapper, type.getName() + "Value", "()" + Type.getDescriptor(type), false);
+    }
+
+    /**
+     * 把栈顶的返回值转换为 Object，void 方法压入 null
+     */
+    private static void box(MethodVisitor mv, Class<?> type) {
+        if (type == void.class) {
+            mv.visitInsn(Opcodes.ACONST_NULL);
+        } else if (type.isPrimitive()) {
+            String wrapper = Type.getInternalName(wrapperOf(type));
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper, "valueOf",
+                    "(" + Type.getDescriptor(type) + ")L" + wrapper + ";", false);
+        }
+    }
+
+    private static Class<?> wrapperOf(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
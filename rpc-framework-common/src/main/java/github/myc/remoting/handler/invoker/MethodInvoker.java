@@ -0,0 +1,15 @@
+package github.myc.remoting.handler.invoker;
+
+/**
+ * 已经绑定了服务对象的方法调用器
+ */
+@FunctionalInterface
+public interface MethodInvoker {
+
+    /**
+     * @param args 方法参数
+     * @return 方法的返回值，void 方法返回 null
+     * @throws Throwable 方法本身抛出的异常，不会被包装成 InvocationTargetException
+     */
+    Object invoke(Object[] args) throws Throwable;
+}
@@ -0,0 +1,50 @@
+package github.myc.remoting.handler.invoker;
+
+import github.myc.enums.RpcConfigEnum;
+import github.myc.enums.ServerInvokerEnum;
+import github.myc.utils.RpcConfigUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务端的方法调用器表，在服务加入 ServiceProvider 时为服务对象的每个 public 方法创建调用器，
+ * 处理请求时只需按 rpc 服务名称和方法签名查表，不再每次通过 getMethod 查找方法再反射调用。
+ * 调用方式由 rpc.server.invoker 配置，见 ServerInvokerEnum，默认使用生成的分发类。
+ * 保存在调用器字段中的 MethodHandle 不是常量，JIT 不能内联，实测比反射还慢，所以 methodhandle 只作为可选项
+ */
+@Slf4j
+public class MethodInvokerRegistry {
+
+    private final ServerInvokerEnum mode;
+    /**
+     * key：rpc 服务名称 (interface name + group + version)
+     * value：这个服务所有方法的调用器，创建后不再修改
+     */
+    private final Map<String, Map<MethodKey, MethodInvoker>> invokers = new ConcurrentHashMap<>();
+
+    public MethodInvokerRegistry() {
+        String name = RpcConfigUtil.getProperty(RpcConfigEnum.SERVER_INVOKER, ServerInvokerEnum.GENERATED.getName());
+        ServerInvokerEnum configured = ServerInvokerEnum.of(name);
+        if (configured == null) {
+            log.warn("unknown server invoker [{}], use [{}]", name, ServerInvokerEnum.GENERATED.getName());
+            configured = ServerInvokerEnum.GENERATED;
+        }
+        this.mode = configured;
+    }
+
+    public void register(String rpcServiceName, Object service) {
+        Map<MethodKey, MethodInvoker> table = MethodInvokers.forService(service, mode);
+        invokers.put(rpcServiceName, table);
+        log.info("[{}] [{}] method invokers created for service [{}]", table.size(), mode.getName(), rpcServiceName);
+    }
+
+    /**
+     * @return 没有这个方法时返回 null
+     */
+    public MethodInvoker get(String rpcServiceName, MethodKey methodKey) {
+        Map<MethodKey, MethodInvoker> table = invokers.get(rpcServiceName);
+        return table == null ? null : table.get(methodKey);
+    }
+}
@@ -0,0 +1,97 @@
+package github.myc.remoting.handler.invoker;
+
+import github.myc.enums.ServerInvokerEnum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 创建 MethodInvoker 的几种方式
+ */
+@Slf4j
+public final class MethodInvokers {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private MethodInvokers() {
+    }
+
+    /**
+     * 为服务对象的每个 public 方法创建调用器
+     * @param service 服务对象
+     * @param mode    调用方式，不能生成分发类时退回到反射，某个方法不能使用 MethodHandle 时也退回到反射
+     * @return key：方法签名，value：调用器
+     */
+    public static Map<MethodKey, MethodInvoker> forService(Object service, ServerInvokerEnum mode) {
+        List<Method> methods = new ArrayList<>();
+        for (Method method : service.getClass().getMethods()) {
+            if (method.getDeclaringClass() != Object.class && !Modifier.isStatic(method.getModifiers())) {
+                methods.add(method);
+            }
+        }
+        Map<MethodKey, MethodInvoker> invokers = new HashMap<>();
+        if (mode == ServerInvokerEnum.GENERATED) {
+            try {
+                ServiceDispatcher dispatcher = DispatcherGenerator.generate(service, methods);
+                for (int i = 0; i < methods.size(); i++) {
+                    int methodId = i;
+                    invokers.put(MethodKey.of(methods.get(i)), args -> dispatcher.dispatch(methodId, args));
+                }
+                return invokers;
+            } catch (IllegalArgumentException e) {
+                log.warn("generate dispatcher for [{}] failed, fall back to reflection", service.getClass().getName(), e);
+            }
+        }
+        for (Method method : methods) {
+            invokers.put(MethodKey.of(method), mode == ServerInvokerEnum.METHOD_HANDLE
+                    ? methodHandleOrReflection(service, method) : reflection(service, method));
+        }
+        return invokers;
+    }
+
+    /**
+     * 通过 Method.invoke 反射调用
+     */
+    public static MethodInvoker reflection(Object service, Method method) {
+        // 服务实现类不是 public 时，它的方法需要 setAccessible 才能访问
+        method.trySetAccessible();
+        return args -> {
+            try {
+                return method.invoke(service, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    private static MethodInvoker methodHandleOrReflection(Object service, Method method) {
+        try {
+            // 服务实现类不是 public 时，它的方法需要 setAccessible 才能访问
+            method.trySetAccessible();
+            return methodHandle(service, method);
+        } catch (IllegalAccessException | RuntimeException e) {
+            log.warn("create method handle for [{}] failed, fall back to reflection", method, e);
+            return reflection(service, method);
+        }
+    }
+
+    /**
+     * 通过预先解析好的 MethodHandle 调用：服务对象已经绑定，参数从 Object[] 展开，返回值统一为 Object
+     * @throws IllegalAccessException 方法不可访问（例如服务实现类不是 public）
+     */
+    public static MethodInvoker methodHandle(Object service, Method method) throws IllegalAccessException {
+        MethodHandle handle = LOOKUP.unreflect(method).bindTo(service);
+        // (T1, T2, ...)R -> (Object[])Object
+        MethodHandle spreader = handle.asType(handle.type().generic())
+                .asSpreader(Object[].class, method.getParameterCount());
+        return args -> spreader.invokeExact(args);
+    }
+}
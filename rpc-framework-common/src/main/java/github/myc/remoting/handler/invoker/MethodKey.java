@@ -0,0 +1,50 @@
+package github.myc.remoting.handler.invoker;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * 方法签名：方法名和参数类型，用来在服务的调用器表中查找方法
+ */
+public final class MethodKey {
+
+    private static final Class<?>[] NO_PARAM_TYPES = new Class<?>[0];
+
+    private final String methodName;
+    private final Class<?>[] paramTypes;
+    private final int hashCode;
+
+    public MethodKey(String methodName, Class<?>[] paramTypes) {
+        this.methodName = methodName;
+        this.paramTypes = paramTypes == null ? NO_PARAM_TYPES : paramTypes;
+        this.hashCode = 31 * methodName.hashCode() + Arrays.hashCode(this.paramTypes);
+    }
+
+    public static MethodKey of(Method method) {
+        return new MethodKey(method.getName(), method.getParameterTypes());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MethodKey)) {
+            return false;
+        }
+        MethodKey that = (MethodKey) o;
+        return hashCode == that.hashCode
+                && methodName.equals(that.methodName)
+                && Arrays.equals(paramTypes, that.paramTypes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return methodName + Arrays.toString(paramTypes);
+    }
+}
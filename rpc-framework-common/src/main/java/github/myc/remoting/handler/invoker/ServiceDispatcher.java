@@ -0,0 +1,14 @@
+package github.myc.remoting.handler.invoker;
+
+/**
+ * 为服务生成的分发类实现的接口，见 DispatcherGenerator
+ */
+public interface ServiceDispatcher {
+
+    /**
+     * @param methodId 方法在生成分发类时的编号
+     * @param args     方法参数
+     * @return 方法的返回值，基本类型会装箱，void 方法返回 null
+     */
+    Object dispatch(int methodId, Object[] args) throws Throwable;
+}
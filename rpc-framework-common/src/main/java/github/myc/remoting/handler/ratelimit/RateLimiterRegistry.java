@@ -0,0 +1,113 @@
+package github.myc.remoting.handler.ratelimit;
+
+import github.myc.annotation.RateLimit;
+import github.myc.factory.SingletonFactory;
+import github.myc.metrics.RpcMetrics;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.utils.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务端的限流器，通过 SingletonFactory 获取。
+ * 可以按服务、方法和调用方应用分别限流，一个请求需要同时通过所有匹配的限制：
+ * 服务、服务 + 调用方、方法、方法 + 调用方。服务发布时读取实现类上的 @RateLimit，运行时可以通过 setLimit 修改
+ */
+@Slf4j
+public class RateLimiterRegistry {
+
+    // 表示所有方法或者所有调用方
+    private static final String ANY = "*";
+
+    private final RpcMetrics rpcMetrics;
+    // key：rpc 服务名称，value：方法名 + "@" + 调用方应用 -> 令牌桶，没有限流的服务不在其中
+    private final Map<String, Map<String, TokenBucket>> limits = new ConcurrentHashMap<>();
+
+    public RateLimiterRegistry() {
+        this.rpcMetrics = SingletonFactory.getInstance(RpcMetrics.class);
+    }
+
+    /**
+     * 读取服务实现类和它的 public 方法上的 @RateLimit
+     */
+    public void register(String rpcServiceName, Object service) {
+        Class<?> serviceClass = service.getClass();
+        RateLimit serviceLimit = serviceClass.getAnnotation(RateLimit.class);
+        if (serviceLimit != null) {
+            setLimit(rpcServiceName, null, serviceLimit.application(), serviceLimit.permitsPerSecond(), serviceLimit.burst());
+        }
+        for (Method method : serviceClass.getMethods()) {
+            RateLimit methodLimit = method.getAnnotation(RateLimit.class);
+            if (methodLimit != null && !Modifier.isStatic(method.getModifiers())) {
+                setLimit(rpcServiceName, method.getName(), methodLimit.application(), methodLimit.permitsPerSecond(), methodLimit.burst());
+            }
+        }
+    }
+
+    /**
+     * 设置或者修改一个限制
+     * @param rpcServiceName   rpc 服务名称
+     * @param methodName       方法名，为空时限制整个服务
+     * @param application      调用方应用，为空时所有调用方共用这个限制
+     * @param permitsPerSecond 每秒允许的请求数，小于等于 0 时取消这个限制
+     * @param burst            允许的突发请求数，小于等于 0 时等于每秒允许的请求数
+     */
+    public void setLimit(String rpcServiceName, String methodName, String application, double permitsPerSecond, int burst) {
+        String key = key(methodName, application);
+        if (permitsPerSecond <= 0) {
+            Map<String, TokenBucket> serviceLimits = limits.get(rpcServiceName);
+            if (serviceLimits != null && serviceLimits.remove(key) != null) {
+                log.info("remove rate limit [{}] of service [{}]", key, rpcServiceName);
+            }
+            return;
+        }
+        limits.computeIfAbsent(rpcServiceName, k -> new ConcurrentHashMap<>())
+                .compute(key, (k, bucket) -> {
+                    if (bucket == null) {
+                        return new TokenBucket(permitsPerSecond, burst);
+                    }
+                    bucket.setRate(permitsPerSecond, burst);
+                    return bucket;
+                });
+        log.info("set rate limit [{}] of service [{}]: [{}] permits per second, burst [{}]", key, rpcServiceName, permitsPerSecond, burst);
+    }
+
+    /**
+     * @return 请求超过了任意一个匹配的限制时返回 false
+     */
+    public boolean tryAcquire(RpcRequest rpcRequest) {
+        Map<String, TokenBucket> serviceLimits = limits.get(rpcRequest.getRpcServiceName());
+        if (serviceLimits == null || serviceLimits.isEmpty()) {
+            return true;
+        }
+        String methodName = rpcRequest.getMethodName();
+        String application = rpcRequest.getApplication();
+        // 范围小的限制更容易拒绝请求，先检查它们，被拒绝时归还已经取走的令牌
+        TokenBucket[] buckets = {
+                StringUtil.isBlank(application) ? null : serviceLimits.get(key(methodName, application)),
+                serviceLimits.get(key(methodName, null)),
+                StringUtil.isBlank(application) ? null : serviceLimits.get(key(null, application)),
+                serviceLimits.get(key(null, null))};
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != null && !buckets[i].tryAcquire()) {
+                for (int j = 0; j < i; j++) {
+                    if (buckets[j] != null) {
+                        buckets[j].release();
+                    }
+                }
+                rpcMetrics.counter("rpc.server.ratelimit.rejected{service=" + rpcRequest.getRpcServiceName()
+                        + ",method=" + methodName + "}").increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String key(String methodName, String application) {
+        return (StringUtil.isBlank(methodName) ? ANY : methodName) + "@" + (StringUtil.isBlank(application) ? ANY : application);
+    }
+}
@@ -0,0 +1,49 @@
+package github.myc.remoting.handler.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶：令牌按固定速率放入桶中，桶满后不再增加，每个请求取走一个令牌，桶空时拒绝请求。
+ * 速率和容量可以在运行时修改，已有的令牌数不超过新的容量
+ */
+public class TokenBucket {
+
+    private double permitsPerNano;
+    private double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this.lastRefillNanos = System.nanoTime();
+        setRate(permitsPerSecond, burst);
+        this.tokens = capacity;
+    }
+
+    public synchronized void setRate(double permitsPerSecond, int burst) {
+        refill(System.nanoTime());
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = burst > 0 ? burst : Math.max(1, permitsPerSecond);
+        this.tokens = Math.min(tokens, capacity);
+    }
+
+    public synchronized boolean tryAcquire() {
+        refill(System.nanoTime());
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * 归还一个令牌，用于请求通过了这个限制但是被其他限制拒绝的情况
+     */
+    public synchronized void release() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
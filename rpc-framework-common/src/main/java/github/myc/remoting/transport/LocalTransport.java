@@ -0,0 +1,8 @@
+package github.myc.remoting.transport;
+
+/**
+ * 只能连接到本机上固定的服务端的传输方式（例如本 JVM 内调用、共享内存），
+ * 不经过服务发现、负载均衡和集群容错，代理对象直接调用 sendRpcRequest(RpcRequest)
+ */
+public interface LocalTransport {
+}
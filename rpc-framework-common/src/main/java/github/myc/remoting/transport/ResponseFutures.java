@@ -0,0 +1,22 @@
+package github.myc.remoting.transport;
+
+import github.myc.remoting.dto.RpcResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 内置的传输方式都返回 CompletableFuture，自定义的传输方式也可以直接返回 RpcResponse，这里统一转换为 CompletableFuture
+ */
+public final class ResponseFutures {
+
+    private ResponseFutures() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static CompletableFuture<RpcResponse<Object>> toFuture(Object transportResult) {
+        if (transportResult instanceof CompletableFuture) {
+            return (CompletableFuture<RpcResponse<Object>>) transportResult;
+        }
+        return CompletableFuture.completedFuture((RpcResponse<Object>) transportResult);
+    }
+}
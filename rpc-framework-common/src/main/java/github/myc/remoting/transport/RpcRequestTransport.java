@@ -3,6 +3,8 @@ package github.myc.remoting.transport;
 import github.myc.annotation.SPI;
 import github.myc.remoting.dto.RpcRequest;
 
+import java.net.InetSocketAddress;
+
 /**
  * 传输请求的接口
  */
@@ -14,4 +16,12 @@ public interface RpcRequestTransport {
      * @return        响应数据
      */
     Object sendRpcRequest(RpcRequest request);
+
+    /**
+     * 发送 Rpc 请求给指定的服务端并获取结果，不再经过服务发现和负载均衡
+     * @param request           发送的请求
+     * @param inetSocketAddress 服务端地址
+     * @return                  响应数据
+     */
+    Object sendRpcRequest(RpcRequest request, InetSocketAddress inetSocketAddress);
 }
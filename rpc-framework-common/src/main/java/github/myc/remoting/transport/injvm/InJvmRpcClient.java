@@ -0,0 +1,84 @@
+package github.myc.remoting.transport.injvm;
+
+import github.myc.enums.RpcConfigEnum;
+import github.myc.enums.SerializationTypeEnum;
+import github.myc.extension.ExtensionLoader;
+import github.myc.factory.SingletonFactory;
+import github.myc.provider.ServiceProvider;
+import github.myc.provider.impl.ZkServiceProviderImpl;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.handler.RpcRequestHandler;
+import github.myc.remoting.transport.LocalTransport;
+import github.myc.remoting.transport.RpcRequestTransport;
+import github.myc.serialize.Serializer;
+import github.myc.utils.RpcConfigUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 服务提供方和调用方在同一个 JVM 中时使用的传输方式，直接在调用线程上执行本地的服务对象，
+ * 不经过 zookeeper、Netty、序列化和压缩
+ * 参数和返回值默认通过序列化复制一份，保持与远程调用相同的值传递语义；配置 rpc.injvm.copy=reference 时直接传递引用
+ */
+@Slf4j
+public class InJvmRpcClient implements RpcRequestTransport, LocalTransport {
+
+    public static final String COPY_BY_REFERENCE = "reference";
+    public static final String COPY_BY_SERIALIZE = "serialize";
+
+    private final ServiceProvider serviceProvider;
+    private final RpcRequestHandler rpcRequestHandler;
+    private final boolean enabled;
+    private final boolean copyBySerialize;
+    private final Serializer serializer;
+
+    public InJvmRpcClient() {
+        this.serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
+        this.rpcRequestHandler = SingletonFactory.getInstance(RpcRequestHandler.class);
+        this.enabled = RpcConfigUtil.getBoolean(RpcConfigEnum.INJVM_ENABLED, true);
+        this.copyBySerialize = !COPY_BY_REFERENCE.equals(RpcConfigUtil.getProperty(RpcConfigEnum.INJVM_COPY, COPY_BY_SERIALIZE));
+        this.serializer = ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(SerializationTypeEnum.KYRO.getName());
+    }
+
+    /**
+     * @return 启用了本地调用并且本 JVM 中发布了这个服务时返回 true
+     */
+    public boolean isLocal(RpcRequest rpcRequest) {
+        return enabled && serviceProvider.containsService(rpcRequest.getRpcServiceName());
+    }
+
+    @Override
+    public Object sendRpcRequest(RpcRequest rpcRequest) {
+        RpcRequest localRequest = copyBySerialize ? copy(rpcRequest, RpcRequest.class) : rpcRequest;
+        return rpcRequestHandler.handleAsync(localRequest).handle((result, throwable) -> {
+            RpcResponse<Object> rpcResponse;
+            if (throwable == null) {
+                rpcResponse = RpcResponse.success(result, rpcRequest.getRequestId());
+            } else {
+                // 与远程调用一致，服务方法执行失败时返回失败的响应
+                log.error("invoke local service [{}] failed", rpcRequest.getRpcServiceName(), throwable);
+                rpcResponse = RpcResponse.fail(throwable, rpcRequest.getRequestId());
+            }
+            return copyBySerialize ? copyResponse(rpcResponse) : rpcResponse;
+        });
+    }
+
+    /**
+     * 本地调用只有一个“服务端”，忽略指定的地址
+     */
+    @Override
+    public Object sendRpcRequest(RpcRequest rpcRequest, InetSocketAddress inetSocketAddress) {
+        return sendRpcRequest(rpcRequest);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RpcResponse<Object> copyResponse(RpcResponse<Object> rpcResponse) {
+        return copy(rpcResponse, RpcResponse.class);
+    }
+
+    private <T> T copy(T value, Class<T> clazz) {
+        return serializer.deserialize(serializer.serialize(value), clazz);
+    }
+}
@@ -0,0 +1,75 @@
+package github.myc.remoting.transport.netty;
+
+import github.myc.enums.RpcConfigEnum;
+import github.myc.utils.RpcConfigUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Unix domain socket 传输的公共方法
+ * 服务端在监听 TCP 端口的同时监听一个 Unix domain socket，并把 socket 文件路径写入 zookeeper 中地址节点的数据；
+ * 客户端发现服务端地址是本机地址并且 socket 文件存在时，通过 Unix domain socket 连接，绕过 TCP 协议栈。
+ * 只在可以使用 epoll 的 Linux 上生效，其他平台仍然使用 TCP。
+ */
+@Slf4j
+public final class DomainSockets {
+
+    /**
+     * 通过 Unix domain socket 建立的连接对应的服务端 TCP 地址，连接的 remoteAddress 是 socket 文件路径，不能用来区分服务端
+     */
+    public static final AttributeKey<InetSocketAddress> ENDPOINT_ADDRESS = AttributeKey.valueOf("endpointAddress");
+
+    private static final boolean ENABLED = RpcConfigUtil.getBoolean(RpcConfigEnum.UDS_ENABLED, true) && Epoll.isAvailable();
+    // 本机地址的判断结果，key：host
+    private static final Map<String, Boolean> LOCAL_HOSTS = new ConcurrentHashMap<>();
+
+    private DomainSockets() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * @return 服务端监听的 socket 文件路径，默认是临时目录下的 my-rpc-端口号.sock
+     */
+    public static String serverPath(int port) {
+        String defaultPath = new File(System.getProperty("java.io.tmpdir"), "my-rpc-" + port + ".sock").getAbsolutePath();
+        return RpcConfigUtil.getProperty(RpcConfigEnum.UDS_PATH, defaultPath);
+    }
+
+    /**
+     * @return 地址是否是本机的地址（回环地址或者本机某个网卡的地址）
+     */
+    public static boolean isLocal(InetSocketAddress inetSocketAddress) {
+        return LOCAL_HOSTS.computeIfAbsent(inetSocketAddress.getHostString(), host -> {
+            try {
+                InetAddress inetAddress = InetAddress.getByName(host);
+                return inetAddress.isLoopbackAddress() || inetAddress.isAnyLocalAddress()
+                        || NetworkInterface.getByInetAddress(inetAddress) != null;
+            } catch (UnknownHostException | SocketException e) {
+                log.warn("can not determine whether [{}] is a local address", host, e);
+                return false;
+            }
+        });
+    }
+
+    /**
+     * @return 连接对应的服务端 TCP 地址
+     */
+    public static InetSocketAddress endpointAddress(Channel channel) {
+        InetSocketAddress endpointAddress = channel.attr(ENDPOINT_ADDRESS).get();
+        return endpointAddress != null ? endpointAddress : (InetSocketAddress) channel.remoteAddress();
+    }
+}
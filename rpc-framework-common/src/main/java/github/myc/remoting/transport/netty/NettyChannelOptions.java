@@ -0,0 +1,95 @@
+package github.myc.remoting.transport.netty;
+
+import github.myc.enums.RpcConfigEnum;
+import github.myc.utils.RpcConfigUtil;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.flush.FlushConsolidationHandler;
+
+/**
+ * 客户端和服务端共用的 socket 参数，统一从 rpc.properties 读取，保证两端的连接使用相同的配置
+ */
+public final class NettyChannelOptions {
+
+    private static final String POOLED_ALLOCATOR = "pooled";
+    private static final int DEFAULT_BACKLOG = 128;
+
+    /**
+     * 同一个 JVM 中的客户端和服务端共用一个分配器，避免池化分配器重复创建内存池
+     */
+    private static final ByteBufAllocator ALLOCATOR = createAllocator();
+
+    private NettyChannelOptions() {
+    }
+
+    public static ByteBufAllocator allocator() {
+        return ALLOCATOR;
+    }
+
+    /**
+     * 服务端参数：option 作用于监听的 ServerSocketChannel，childOption 作用于每一个接受的连接
+     */
+    public static void applyServerOptions(ServerBootstrap serverBootstrap) {
+        // 在 TCP 服务器端，当有新的客户端连接请求到达时，服务器会将其放入一个等待处理的连接队列中，SO_BACKLOG 参数用来配置这个队列的最大长度。
+        serverBootstrap.option(ChannelOption.SO_BACKLOG, RpcConfigUtil.getInt(RpcConfigEnum.NETTY_SERVER_BACKLOG, DEFAULT_BACKLOG));
+        serverBootstrap.option(ChannelOption.ALLOCATOR, ALLOCATOR);
+        // 接收缓冲区需要在监听 socket 上设置，这样 accept 出来的连接在握手时就能使用对应的窗口大小
+        int rcvBuf = RpcConfigUtil.getInt(RpcConfigEnum.NETTY_SO_RCVBUF, 0);
+        if (rcvBuf > 0) {
+            serverBootstrap.option(ChannelOption.SO_RCVBUF, rcvBuf);
+            serverBootstrap.childOption(ChannelOption.SO_RCVBUF, rcvBuf);
+        }
+        int sndBuf = RpcConfigUtil.getInt(RpcConfigEnum.NETTY_SO_SNDBUF, 0);
+        if (sndBuf > 0) {
+            serverBootstrap.childOption(ChannelOption.SO_SNDBUF, sndBuf);
+        }
+        // TCP 默认开启了 Nagle 算法，TCP_NODELAY 控制是否关闭 Nagle 算法，必须通过 childOption 设置才会作用到接受的连接上
+        serverBootstrap.childOption(ChannelOption.TCP_NODELAY, RpcConfigUtil.getBoolean(RpcConfigEnum.NETTY_TCP_NODELAY, true));
+        // 是否开启 TCP 底层心跳机制，同样是连接级别的参数
+        serverBootstrap.childOption(ChannelOption.SO_KEEPALIVE, true);
+        serverBootstrap.childOption(ChannelOption.ALLOCATOR, ALLOCATOR);
+    }
+
+    /**
+     * 客户端参数，与服务端接受的连接保持一致
+     */
+    public static void applyClientOptions(Bootstrap bootstrap) {
+        bootstrap.option(ChannelOption.TCP_NODELAY, RpcConfigUtil.getBoolean(RpcConfigEnum.NETTY_TCP_NODELAY, true));
+        bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
+        bootstrap.option(ChannelOption.ALLOCATOR, ALLOCATOR);
+        int rcvBuf = RpcConfigUtil.getInt(RpcConfigEnum.NETTY_SO_RCVBUF, 0);
+        if (rcvBuf > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, rcvBuf);
+        }
+        int sndBuf = RpcConfigUtil.getInt(RpcConfigEnum.NETTY_SO_SNDBUF, 0);
+        if (sndBuf > 0) {
+            bootstrap.option(ChannelOption.SO_SNDBUF, sndBuf);
+        }
+    }
+
+    /**
+     * 根据 rpc.properties 中的配置，在 pipeline 的最前面（最靠近 socket 的位置）加上合并 flush 的处理器。
+     * 业务线程写出的响应不在读事件中，所以 consolidateWhenNoReadInProgress 为 true，同一轮事件循环中的写出只 flush 一次
+     */
+    public static void addFlushConsolidation(ChannelPipeline pipeline) {
+        if (RpcConfigUtil.getBoolean(RpcConfigEnum.NETTY_FLUSH_CONSOLIDATION, false)) {
+            int explicitFlushAfterFlushes = RpcConfigUtil.getInt(RpcConfigEnum.NETTY_FLUSH_EXPLICIT_AFTER_FLUSHES,
+                    FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES);
+            pipeline.addLast(new FlushConsolidationHandler(Math.max(1, explicitFlushAfterFlushes), true));
+        }
+    }
+
+    private static ByteBufAllocator createAllocator() {
+        boolean preferDirect = RpcConfigUtil.getBoolean(RpcConfigEnum.NETTY_ALLOCATOR_DIRECT, true);
+        String allocator = RpcConfigUtil.getProperty(RpcConfigEnum.NETTY_ALLOCATOR, POOLED_ALLOCATOR);
+        if (POOLED_ALLOCATOR.equalsIgnoreCase(allocator)) {
+            return new PooledByteBufAllocator(preferDirect);
+        }
+        return new UnpooledByteBufAllocator(preferDirect);
+    }
+}
@@ -7,6 +7,7 @@ import java.net.InetSocketAddress;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * 保存和获取 Channel 对象
@@ -40,6 +41,21 @@ public class ChannelProvider {
         return null;
     }
 
+    /**
+     * 获取 channel，没有可用的 channel 时通过 connector 建立连接。同一个地址同时只有一个线程建立连接，
+     * 其他线程等待并复用这个连接，避免并发调用（例如启动时并行预热）建立多余的连接
+     * @param connector 建立连接，失败时抛出异常，这时不保存任何 channel
+     */
+    public Channel getOrConnect(InetSocketAddress inetSocketAddress, Function<InetSocketAddress, Channel> connector) {
+        Channel channel = get(inetSocketAddress);
+        if (channel != null) {
+            return channel;
+        }
+        // compute 对同一个 key 是原子的，等待时间受连接超时（CONNECT_TIMEOUT_MILLIS）限制
+        return channelMap.compute(inetSocketAddress.toString(), (key, existing) ->
+                existing != null && existing.isActive() ? existing : connector.apply(inetSocketAddress));
+    }
+
     public void set(InetSocketAddress inetSocketAddress, Channel channel) {
         String key = inetSocketAddress.toString();
         channelMap.put(key, channel);
@@ -0,0 +1,123 @@
+package github.myc.remoting.transport.netty.client;
+
+import github.myc.compress.Compress;
+import github.myc.config.RpcServiceConfig;
+import github.myc.enums.CompressTypeEnum;
+import github.myc.enums.SerializationTypeEnum;
+import github.myc.enums.ServiceDiscoveryEnum;
+import github.myc.extension.ExtensionLoader;
+import github.myc.registry.ServiceDiscovery;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.serialize.Serializer;
+import github.myc.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 启动时预热客户端：查询服务的所有地址并提前建立连接，同时加载序列化和压缩组件，
+ * 避免每次发布后第一次调用承担 zookeeper 查询、TCP 建连以及类加载的开销。
+ * 序列化只在 IO 线程上进行，而且 Kryo 实例用完即丢弃，所以这里只创建组件，不在预热线程上做编解码
+ */
+@Slf4j
+public class ConnectionWarmUp {
+
+    private final ServiceDiscovery serviceDiscovery;
+    private final ExecutorService warmUpPool;
+    // 序列化和压缩组件只需要加载一次
+    private final CompletableFuture<Void> codecWarmUp;
+    // 同一个服务被多个字段引用时只预热一次，key：rpc 服务名称
+    private final Map<String, CompletableFuture<Void>> warmUps = new ConcurrentHashMap<>();
+
+    public ConnectionWarmUp() {
+        this.serviceDiscovery = ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension(ServiceDiscoveryEnum.ZK.getName());
+        this.warmUpPool = ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent("rpc-client-warmup");
+        this.codecWarmUp = submit(() -> {
+            warmUpCodec();
+            return null;
+        });
+    }
+
+    /**
+     * 预热一个被 @RpcReference 引用的服务，每个服务地址的连接并行建立，同一个服务只预热一次
+     * @param serviceInterface 服务接口
+     * @param rpcServiceConfig 服务的 group 和 version
+     * @param nettyRpcClient   用来建立并缓存连接的客户端
+     * @return 所有连接建立完成（或失败）时完成的 future
+     */
+    public CompletableFuture<Void> warmUp(Class<?> serviceInterface, RpcServiceConfig rpcServiceConfig, NettyRpcClient nettyRpcClient) {
+        RpcRequest rpcRequest = RpcRequest.builder()
+                .interfaceName(serviceInterface.getName())
+                .group(rpcServiceConfig.getGroup())
+                .version(rpcServiceConfig.getVersion()).build();
+        return warmUps.computeIfAbsent(rpcRequest.getRpcServiceName(), k -> doWarmUp(rpcRequest, nettyRpcClient));
+    }
+
+    private CompletableFuture<Void> doWarmUp(RpcRequest rpcRequest, NettyRpcClient nettyRpcClient) {
+        return submit(() -> serviceDiscovery.lookupAllServices(rpcRequest))
+                .thenCompose(addresses -> connectAll(addresses, rpcRequest, nettyRpcClient))
+                .thenCombine(codecWarmUp, (v1, v2) -> v1)
+                .whenComplete((v, e) -> {
+                    if (e != null) {
+                        log.warn("warm up service [{}] failed", rpcRequest.getRpcServiceName(), e);
+                    } else {
+                        log.info("service [{}] is warmed up", rpcRequest.getRpcServiceName());
+                    }
+                });
+    }
+
+    private CompletableFuture<Void> connectAll(List<InetSocketAddress> addresses, RpcRequest rpcRequest, NettyRpcClient nettyRpcClient) {
+        CompletableFuture<?>[] futures = addresses.stream()
+                .map(address -> submit(() -> {
+                    try {
+                        nettyRpcClient.getChannel(address, rpcRequest);
+                    } catch (Exception e) {
+                        // 单个地址连接失败不影响其他地址，正式调用时会重新连接
+                        log.warn("warm up connection to [{}] failed", address, e);
+                    }
+                    return null;
+                }))
+                .toArray(CompletableFuture<?>[]::new);
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * 提交到预热线程池，线程池满时返回以 RejectedExecutionException 结束的 future，预热失败不影响启动
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, warmUpPool);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    /**
+     * 创建每一种序列化和压缩组件，触发相关类的加载和初始化；组件是所有线程共用的单例
+     */
+    private void warmUpCodec() {
+        for (SerializationTypeEnum serializationType : SerializationTypeEnum.values()) {
+            try {
+                ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(serializationType.getName());
+            } catch (Exception e) {
+                log.warn("warm up serializer [{}] failed", serializationType.getName(), e);
+            }
+        }
+        for (CompressTypeEnum compressType : CompressTypeEnum.values()) {
+            try {
+                ExtensionLoader.getExtensionLoader(Compress.class).getExtension(compressType.getName());
+            } catch (Exception e) {
+                log.warn("warm up compress [{}] failed", compressType.getName(), e);
+            }
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package github.myc.remoting.transport.netty.client;
 
+import github.myc.cluster.breaker.CircuitBreaker;
+import github.myc.cluster.breaker.CircuitBreakerRegistry;
+import github.myc.cluster.limiter.AdaptiveConcurrencyLimiter;
+import github.myc.cluster.limiter.ConcurrencyLimiterRegistry;
 import github.myc.enums.CompressTypeEnum;
+import github.myc.enums.RpcConfigEnum;
+import github.myc.enums.RpcErrorMessageEnum;
+import github.myc.enums.RpcResponseCodeEnum;
 import github.myc.enums.SerializationTypeEnum;
 import github.myc.enums.ServiceDiscoveryEnum;
+import github.myc.exception.RpcException;
 import github.myc.extension.ExtensionLoader;
 import github.myc.factory.SingletonFactory;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
-import io.netty.handler.timeout.IdleStateHandler;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import github.myc.registry.ServiceDiscovery;
@@ -20,12 +30,17 @@ import github.myc.remoting.dto.RpcMessage;
 import github.myc.remoting.dto.RpcRequest;
 import github.myc.remoting.dto.RpcResponse;
 import github.myc.remoting.transport.RpcRequestTransport;
+import github.myc.remoting.transport.netty.DomainSockets;
+import github.myc.remoting.transport.netty.NettyChannelOptions;
 import github.myc.remoting.transport.netty.codec.RpcMessageDecoder;
 import github.myc.remoting.transport.netty.codec.RpcMessageEncoder;
+import github.myc.utils.RpcConfigUtil;
 
+import java.io.File;
 import java.net.InetSocketAddress;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
 
 /**
  * 初始化以及关闭 Bootstrap 对象
@@ -36,32 +51,46 @@ public class NettyRpcClient implements RpcRequestTransport {
     private final ServiceDiscovery serviceDiscovery;
     private final UnprocessedRequest unprocessedRequest;
     private final ChannelProvider channelProvider;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final ConcurrencyLimiterRegistry concurrencyLimiterRegistry;
     private final Bootstrap bootstrap;
     private final EventLoopGroup eventLoopGroup;
+    /**
+     * TCP 连接和 Unix domain socket 连接使用同样的处理器
+     */
+    private final ChannelInitializer<Channel> channelInitializer = new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(Channel ch) throws Exception {
+            ChannelPipeline p = ch.pipeline();
+            // 合并 flush 的处理器必须在最前面，这样才能拦截编码之后的 flush
+            NettyChannelOptions.addFlushConsolidation(p);
+            // 心跳由 NettyRpcClientHandler 定期发送，不再依赖写空闲事件
+            p.addLast(new RpcMessageEncoder());
+            p.addLast(new RpcMessageDecoder());
+            p.addLast(new NettyRpcClientHandler());
+        }
+    };
+    // 连接本机服务端的 Unix domain socket 时使用，第一次需要时才创建
+    private volatile Bootstrap domainSocketBootstrap;
+    private EventLoopGroup domainSocketGroup;
 
     public NettyRpcClient() {
-        eventLoopGroup = new NioEventLoopGroup();
+        eventLoopGroup = new NioEventLoopGroup(RpcConfigUtil.getInt(RpcConfigEnum.NETTY_CLIENT_WORKER_THREADS, 0));
         bootstrap = new Bootstrap();
         bootstrap.channel(NioSocketChannel.class);
         // 一组 EventLoop 的容器，管理 EventLoop，也可以看作是一个线程池，将 channel 分配到 EventLoop 上
         bootstrap.group(eventLoopGroup);
         // 指定连接的超时时间，超过这个时间还是建立不上的话则表示连接失败
         bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000);
+        // TCP_NODELAY、缓冲区大小以及分配器与服务端接受的连接保持一致
+        NettyChannelOptions.applyClientOptions(bootstrap);
         bootstrap.handler(new LoggingHandler(LogLevel.INFO));
-        bootstrap.handler(new ChannelInitializer<NioSocketChannel>() {
-            @Override
-            protected void initChannel(NioSocketChannel ch) throws Exception {
-                ChannelPipeline p = ch.pipeline();
-                // 如果15秒内没有发送数据给服务器，则发送心跳请求，三个参数分别对应读空闲，写空闲，读写都空闲
-                p.addLast(new IdleStateHandler(0, 60, 0, TimeUnit.SECONDS));
-                p.addLast(new RpcMessageEncoder());
-                p.addLast(new RpcMessageDecoder());
-                p.addLast(new NettyRpcClientHandler());
-            }
-        });
+        bootstrap.handler(channelInitializer);
         this.serviceDiscovery = ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension(ServiceDiscoveryEnum.ZK.getName());
         this.unprocessedRequest = SingletonFactory.getInstance(UnprocessedRequest.class);
         this.channelProvider = SingletonFactory.getInstance(ChannelProvider.class);
+        this.circuitBreakerRegistry = SingletonFactory.getInstance(CircuitBreakerRegistry.class);
+        this.concurrencyLimiterRegistry = SingletonFactory.getInstance(ConcurrencyLimiterRegistry.class);
     }
 
     /**
@@ -79,7 +108,8 @@ public class NettyRpcClient implements RpcRequestTransport {
                 // 这一步不要忘了，否则发送不出去请求！！！将连接的结果 future.channel 作为 completableFuture 的结果返回。
                 completableFuture.complete(future.channel());
             } else {
-                throw new IllegalStateException();
+                // 连接失败时要让等待方立即感知，否则 completableFuture.get() 会一直阻塞
+                completableFuture.completeExceptionally(future.cause());
             }
         });
         log.info("执行到了这一步");
@@ -88,16 +118,67 @@ public class NettyRpcClient implements RpcRequestTransport {
 
     @Override
     public Object sendRpcRequest(RpcRequest rpcRequest) {
-        // 构造返回值
-        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
         // 从 zookeeper 查询服务端地址
         InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
-        // 获取与服务端连接的 channel
-        Channel channel = getChannel(inetSocketAddress);
+        return sendRpcRequest(rpcRequest, inetSocketAddress);
+    }
+
+    @Override
+    public Object sendRpcRequest(RpcRequest rpcRequest, InetSocketAddress inetSocketAddress) {
+        // 在途请求超过自适应并发限制时直接拒绝，让集群容错策略换一个服务端，避免请求在过载的服务端上排队
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiterRegistry.isEnabled() ? concurrencyLimiterRegistry.get(inetSocketAddress, rpcRequest) : null;
+        if (limiter != null && !limiter.tryAcquire()) {
+            concurrencyLimiterRegistry.rejectedCounter(inetSocketAddress).increment();
+            throw new RpcException(RpcErrorMessageEnum.CONCURRENCY_LIMIT_EXCEEDED, inetSocketAddress.toString());
+        }
+        // 熔断器打开时直接失败，不再等待连接超时
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.isEnabled() ? circuitBreakerRegistry.get(inetSocketAddress) : null;
+        if (circuitBreaker != null && !circuitBreaker.tryAcquirePermission()) {
+            if (limiter != null) {
+                limiter.release();
+            }
+            throw new RpcException(RpcErrorMessageEnum.CIRCUIT_BREAKER_OPEN, inetSocketAddress.toString());
+        }
+        long startNanos = System.nanoTime();
+        // 构造返回值
+        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
+        // 调用方取消或者以异常结束了这个请求（例如对冲请求中落后的那个），就不再等待它的响应
+        resultFuture.whenComplete((rpcResponse, throwable) -> {
+            if (throwable != null) {
+                unprocessedRequest.remove(rpcRequest.getRequestId());
+            }
+            long durationNanos = System.nanoTime() - startNanos;
+            if (hasCode(rpcResponse, RpcResponseCodeEnum.SHUTTING_DOWN)) {
+                // 服务端正在关闭，在 zookeeper 通知地址变化之前不再选择这个服务端
+                log.info("server [{}] is shutting down", inetSocketAddress);
+                if (circuitBreaker != null) {
+                    circuitBreaker.forceOpen();
+                }
+                if (limiter != null) {
+                    limiter.release();
+                }
+                return;
+            }
+            boolean overloaded = hasCode(rpcResponse, RpcResponseCodeEnum.OVERLOADED);
+            if (circuitBreaker != null) {
+                recordOutcome(circuitBreaker, throwable, overloaded, durationNanos);
+            }
+            if (limiter != null) {
+                recordOutcome(limiter, throwable, overloaded, durationNanos);
+            }
+        });
+        // 获取与服务端连接的 channel，连接失败也要计入熔断器，所以转换为以异常结束的 future
+        Channel channel;
+        try {
+            channel = getChannel(inetSocketAddress, rpcRequest);
+        } catch (Exception e) {
+            resultFuture.completeExceptionally(e);
+            return resultFuture;
+        }
         log.info("The state of channel is : [{}]", channel.isActive());
-        if(channel != null && channel.isActive()) {
+        if(channel.isActive()) {
             // 将请求放入 unprocessedRequest 中
-            unprocessedRequest.put(rpcRequest.getRequestId(), resultFuture);
+            unprocessedRequest.put(rpcRequest.getRequestId(), resultFuture, channel);
             RpcMessage rpcMessage = RpcMessage.builder().data(rpcRequest)
                     .codec(SerializationTypeEnum.KYRO.getCode())
                     .compress(CompressTypeEnum.GZIP.getCode())
@@ -114,23 +195,128 @@ public class NettyRpcClient implements RpcRequestTransport {
                 }
             });
         } else {
-            throw new IllegalStateException();
+            resultFuture.completeExceptionally(new IllegalStateException("channel to " + inetSocketAddress + " is not active"));
         }
         return resultFuture;
     }
 
-    public Channel getChannel(InetSocketAddress inetSocketAddress) {
-        Channel channel = channelProvider.get(inetSocketAddress);
-        if(channel == null) {
-            channel = doConnect(inetSocketAddress);
-            channelProvider.set(inetSocketAddress, channel);
+    /**
+     * 把一次调用的结果计入熔断器：收到响应算成功（服务方法本身抛出异常不代表服务端不可用），
+     * 连接失败、发送失败、超时以及服务端过载拒绝算失败，调用方主动取消的不计入
+     */
+    private static void recordOutcome(CircuitBreaker circuitBreaker, Throwable throwable, boolean overloaded, long durationNanos) {
+        if (throwable == null && !overloaded) {
+            circuitBreaker.onSuccess(durationNanos);
+        } else if (throwable instanceof CancellationException) {
+            circuitBreaker.releasePermission();
+        } else {
+            circuitBreaker.onError();
         }
+    }
+
+    /**
+     * 把一次调用的 RTT 计入并发限制，失败、超时和服务端过载拒绝作为过载信号，调用方主动取消的只归还名额
+     */
+    private static void recordOutcome(AdaptiveConcurrencyLimiter limiter, Throwable throwable, boolean overloaded, long rttNanos) {
+        if (throwable == null && !overloaded) {
+            limiter.onSuccess(rttNanos);
+        } else if (throwable instanceof CancellationException) {
+            limiter.release();
+        } else {
+            limiter.onDropped();
+        }
+    }
+
+    /**
+     * 服务端在执行前拒绝了请求：OVERLOADED 表示调用方应当减少发给这个服务端的请求，SHUTTING_DOWN 表示不应再发给这个服务端
+     */
+    private static boolean hasCode(RpcResponse<Object> rpcResponse, RpcResponseCodeEnum responseCode) {
+        return rpcResponse != null && rpcResponse.getCode() != null && rpcResponse.getCode() == responseCode.getCode();
+    }
+
+    public Channel getChannel(InetSocketAddress inetSocketAddress) {
+        return getChannel(inetSocketAddress, null);
+    }
+
+    /**
+     * 获取与服务端的连接，服务端在本机并且公布了 Unix domain socket 时优先通过它连接
+     * @param rpcRequest 用来查询服务端公布的 socket 路径，为 null 时只使用 TCP
+     */
+    public Channel getChannel(InetSocketAddress inetSocketAddress, RpcRequest rpcRequest) {
+        // 并发获取同一个地址的连接时只建立一次连接
+        Channel channel = channelProvider.getOrConnect(inetSocketAddress, address -> connect(address, rpcRequest));
         log.info("channel is established.");
         return channel;
     }
 
+    private Channel connect(InetSocketAddress inetSocketAddress, RpcRequest rpcRequest) {
+        String domainSocketPath = rpcRequest == null ? null : domainSocketPath(inetSocketAddress, rpcRequest);
+        Channel channel = domainSocketPath != null ? doConnectDomainSocket(inetSocketAddress, domainSocketPath) : null;
+        return channel != null ? channel : doConnect(inetSocketAddress);
+    }
+
+    /**
+     * @return 本机服务端公布的 Unix domain socket 路径，不能使用时返回 null
+     */
+    private String domainSocketPath(InetSocketAddress inetSocketAddress, RpcRequest rpcRequest) {
+        if (!DomainSockets.isEnabled() || !DomainSockets.isLocal(inetSocketAddress)) {
+            return null;
+        }
+        String path = serviceDiscovery.getDomainSocketPath(rpcRequest.getRpcServiceName(), inetSocketAddress);
+        return path != null && new File(path).exists() ? path : null;
+    }
+
+    /**
+     * 通过 Unix domain socket 连接本机的服务端，连接失败时返回 null，由调用方退回到 TCP
+     */
+    private Channel doConnectDomainSocket(InetSocketAddress inetSocketAddress, String domainSocketPath) {
+        CompletableFuture<Channel> completableFuture = new CompletableFuture<>();
+        // 连接的 remoteAddress 是 socket 文件路径，把服务端的 TCP 地址记录在连接上
+        domainSocketBootstrap().clone()
+                .attr(DomainSockets.ENDPOINT_ADDRESS, inetSocketAddress)
+                .connect(new DomainSocketAddress(domainSocketPath)).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                log.info("The client has connected [{}] through domain socket [{}]", inetSocketAddress, domainSocketPath);
+                completableFuture.complete(future.channel());
+            } else {
+                completableFuture.completeExceptionally(future.cause());
+            }
+        });
+        try {
+            return completableFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            log.warn("connect domain socket [{}] failed, fall back to tcp", domainSocketPath, e.getCause());
+            return null;
+        }
+    }
+
+    private Bootstrap domainSocketBootstrap() {
+        if (domainSocketBootstrap == null) {
+            synchronized (this) {
+                if (domainSocketBootstrap == null) {
+                    domainSocketGroup = new EpollEventLoopGroup(RpcConfigUtil.getInt(RpcConfigEnum.NETTY_CLIENT_WORKER_THREADS, 0));
+                    domainSocketBootstrap = new Bootstrap()
+                            .group(domainSocketGroup)
+                            .channel(EpollDomainSocketChannel.class)
+                            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                            .option(ChannelOption.ALLOCATOR, NettyChannelOptions.allocator())
+                            .handler(channelInitializer);
+                }
+            }
+        }
+        return domainSocketBootstrap;
+    }
+
     public void close() {
         // 优雅地关闭线程池，释放线程池拥有的资源
         eventLoopGroup.shutdownGracefully();
+        synchronized (this) {
+            if (domainSocketGroup != null) {
+                domainSocketGroup.shutdownGracefully();
+            }
+        }
     }
 }
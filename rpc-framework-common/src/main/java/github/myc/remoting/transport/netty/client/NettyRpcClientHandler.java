@@ -1,21 +1,24 @@
 package github.myc.remoting.transport.netty.client;
 
+import github.myc.cluster.health.EndpointHealth;
+import github.myc.cluster.health.EndpointHealthRegistry;
 import github.myc.enums.CompressTypeEnum;
+import github.myc.enums.RpcConfigEnum;
 import github.myc.enums.SerializationTypeEnum;
 import github.myc.factory.SingletonFactory;
-import io.netty.channel.Channel;
+import github.myc.remoting.transport.netty.DomainSockets;
+import github.myc.utils.RpcConfigUtil;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
-import io.netty.handler.timeout.IdleState;
-import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 import github.myc.remoting.constants.RpcConstants;
 import github.myc.remoting.dto.RpcMessage;
 import github.myc.remoting.dto.RpcResponse;
 
-import java.net.InetSocketAddress;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 自定义客户端 ChannelHandler，处理服务端返回的数据
@@ -26,11 +29,42 @@ import java.net.InetSocketAddress;
 public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
 
     private final UnprocessedRequest unprocessedRequest;
-    private final NettyRpcClient nettyRpcClient;
+    private final EndpointHealthRegistry endpointHealthRegistry;
+    private final long heartbeatIntervalMillis;
+    // 每个 channel 有自己的 handler 实例，下面的状态只在 channel 的 EventLoop 中访问
+    private EndpointHealth endpointHealth;
+    private ScheduledFuture<?> heartbeatTask;
 
     public NettyRpcClientHandler() {
         this.unprocessedRequest = SingletonFactory.getInstance(UnprocessedRequest.class);
-        this.nettyRpcClient = SingletonFactory.getInstance(NettyRpcClient.class);
+        this.endpointHealthRegistry = SingletonFactory.getInstance(EndpointHealthRegistry.class);
+        this.heartbeatIntervalMillis = RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_HEARTBEAT_INTERVAL_MS, 5000);
+    }
+
+    /**
+     * 连接建立后定期发送带时间戳的心跳。不论连接是否空闲都发送，这样繁忙的连接变慢时也能及时发现
+     */
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        endpointHealth = endpointHealthRegistry.get(DomainSockets.endpointAddress(ctx.channel()));
+        if (heartbeatIntervalMillis > 0) {
+            heartbeatTask = ctx.executor().scheduleAtFixedRate(() -> sendHeartbeat(ctx),
+                    heartbeatIntervalMillis, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (heartbeatTask != null) {
+            heartbeatTask.cancel(false);
+        }
+        if (endpointHealth != null) {
+            endpointHealth.onDisconnect();
+        }
+        // 连接上还未收到响应的请求不会再有响应，立即结束它们，否则没有配置超时时间的调用会一直等待
+        unprocessedRequest.failChannel(ctx.channel(), null);
+        super.channelInactive(ctx);
     }
 
     /**
@@ -48,6 +82,7 @@ public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
                 byte messageType = temp.getMessageType();
                 if (messageType == RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
                     log.info("heart [{}]", temp.getData());
+                    onPong((Long) temp.getData());
                 } else if (messageType == RpcConstants.RESPONSE_TYPE) {
                     RpcResponse<Object> rpcResponse = (RpcResponse<Object>) temp.getData();
                     unprocessedRequest.complete(rpcResponse);
@@ -60,28 +95,25 @@ public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
     }
 
     /**
-     * 连接空闲状态时处理
+     * 发送心跳，body 是当前的 System.nanoTime()，服务端会原样返回
      */
-    @Override
-    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
-        // 判断事件的类型，如果是 IdleStateEvent 事件再进行处理，该事件在连接的读操作或写操作在一定时间内没有活动（即空闲）时触发
-        if (evt instanceof IdleStateEvent) {
-            // IdleState 枚举定义了三个常量：READER_IDLE、WRITER_IDLE 和 ALL_IDLE，分别对应读空闲、写空闲和读写都空闲的状态。
-            IdleState state = ((IdleStateEvent) evt).state();
-            // 因为是客户端，所以判断的是写空闲，也就是当没有请求要发送时，发送心跳信息
-            if (state == IdleState.WRITER_IDLE) {
-                log.info("write idle happen [{}]", ctx.channel().remoteAddress());
-                Channel channel = nettyRpcClient.getChannel((InetSocketAddress) ctx.channel().remoteAddress());
-                RpcMessage rpcMessage = new RpcMessage();
-                rpcMessage.setCodec(SerializationTypeEnum.KYRO.getCode());
-                rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
-                rpcMessage.setMessageType(RpcConstants.HEARTBEAT_REQUEST_TYPE);
-                rpcMessage.setData(RpcConstants.PING);
-                channel.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
-            }
-        } else {
-            super.userEventTriggered(ctx, evt);
+    private void sendHeartbeat(ChannelHandlerContext ctx) {
+        if (endpointHealth != null) {
+            endpointHealth.onPingSent();
+        }
+        RpcMessage rpcMessage = new RpcMessage();
+        rpcMessage.setCodec(SerializationTypeEnum.KYRO.getCode());
+        rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
+        rpcMessage.setMessageType(RpcConstants.HEARTBEAT_REQUEST_TYPE);
+        rpcMessage.setData(System.nanoTime());
+        ctx.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+    }
+
+    private void onPong(long sentNanos) {
+        if (endpointHealth == null) {
+            return;
         }
+        endpointHealth.onPong(System.nanoTime() - sentNanos);
     }
 
     /**
@@ -91,6 +123,7 @@ public class NettyRpcClientHandler extends ChannelInboundHandlerAdapter {
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         log.error("client catch github.myc.exception: ", cause);
         cause.printStackTrace();
+        unprocessedRequest.failChannel(ctx.channel(), cause);
         ctx.close();
     }
 }
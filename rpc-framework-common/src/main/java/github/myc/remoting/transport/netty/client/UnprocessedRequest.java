@@ -1,30 +1,90 @@
 package github.myc.remoting.transport.netty.client;
 
 
+import github.myc.exception.RpcConnectionLostException;
 import github.myc.remoting.dto.RpcResponse;
+import io.netty.channel.Channel;
+import lombok.extern.slf4j.Slf4j;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 保存 客户端发送出去、但服务端还未返回处理结果 的请求
+ * 同时按 channel 记录请求，连接断开时以 RpcConnectionLostException 结束这个连接上所有还未收到响应的请求
  */
+@Slf4j
 public class UnprocessedRequest {
-    private static final Map<String, CompletableFuture<RpcResponse<Object>>> UNPROCESSED_RESPONSE_FUTURES = new ConcurrentHashMap<>();
+    private static final Map<String, PendingRequest> UNPROCESSED_RESPONSE_FUTURES = new ConcurrentHashMap<>();
+    // key：发送请求的 channel，value：这个 channel 上还未收到响应的 requestId
+    private static final Map<Channel, Set<String>> CHANNEL_REQUEST_IDS = new ConcurrentHashMap<>();
 
-    public void put(String requestId, CompletableFuture<RpcResponse<Object>> future) {
-        UNPROCESSED_RESPONSE_FUTURES.put(requestId, future);
+    public void put(String requestId, CompletableFuture<RpcResponse<Object>> future, Channel channel) {
+        UNPROCESSED_RESPONSE_FUTURES.put(requestId, new PendingRequest(future, channel));
+        CHANNEL_REQUEST_IDS.computeIfAbsent(channel, k -> ConcurrentHashMap.newKeySet()).add(requestId);
+        // 先登记再检查，连接在登记之前已经断开时 channelInactive 不会再处理这个请求
+        if (!channel.isActive()) {
+            failChannel(channel, null);
+        }
     }
 
     public void complete(RpcResponse<Object> rpcResponse) {
-        CompletableFuture<RpcResponse<Object>> future = UNPROCESSED_RESPONSE_FUTURES.remove(rpcResponse.getRequestId());
+        PendingRequest pendingRequest = take(rpcResponse.getRequestId());
         // CompletableFuture 的 complete() 方法用于完成一个 CompletableFuture 实例，并设置其结果值。
         // complete(T value): 将给定的值作为结果设置到 CompletableFuture 中，并将其标记为已完成。
-        if (null != future) {
-            future.complete(rpcResponse);
+        if (null != pendingRequest) {
+            pendingRequest.future.complete(rpcResponse);
         } else {
-            throw new IllegalStateException();
+            // 请求已经被调用方放弃（超时、取消或者对冲请求中已经有其他响应先到达），直接丢弃这个响应
+            log.debug("discard response of abandoned request [{}]", rpcResponse.getRequestId());
+        }
+    }
+
+    /**
+     * 放弃一个还未收到响应的请求
+     */
+    public void remove(String requestId) {
+        take(requestId);
+    }
+
+    /**
+     * 连接断开或者出现异常时调用，请求可能已经被服务端执行，由集群容错策略决定能否重试
+     * @param cause 断开的原因，正常关闭时为 null
+     */
+    public void failChannel(Channel channel, Throwable cause) {
+        Set<String> requestIds = CHANNEL_REQUEST_IDS.remove(channel);
+        if (requestIds == null) {
+            return;
+        }
+        for (String requestId : requestIds) {
+            PendingRequest pendingRequest = UNPROCESSED_RESPONSE_FUTURES.remove(requestId);
+            if (pendingRequest != null) {
+                pendingRequest.future.completeExceptionally(
+                        new RpcConnectionLostException("connection to " + channel.remoteAddress() + " is closed", cause));
+            }
+        }
+    }
+
+    private PendingRequest take(String requestId) {
+        PendingRequest pendingRequest = UNPROCESSED_RESPONSE_FUTURES.remove(requestId);
+        if (pendingRequest != null) {
+            Set<String> requestIds = CHANNEL_REQUEST_IDS.get(pendingRequest.channel);
+            if (requestIds != null) {
+                requestIds.remove(requestId);
+            }
+        }
+        return pendingRequest;
+    }
+
+    private static final class PendingRequest {
+        private final CompletableFuture<RpcResponse<Object>> future;
+        private final Channel channel;
+
+        private PendingRequest(CompletableFuture<RpcResponse<Object>> future, Channel channel) {
+            this.future = future;
+            this.channel = channel;
         }
     }
 }
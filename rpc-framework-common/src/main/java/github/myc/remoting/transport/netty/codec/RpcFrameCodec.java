@@ -0,0 +1,44 @@
+package github.myc.remoting.transport.netty.codec;
+
+import github.myc.remoting.dto.RpcMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * 在 Netty 的 ChannelPipeline 之外使用 RpcMessageEncoder 和 RpcMessageDecoder，
+ * 让不基于 Netty 的传输方式（共享内存、阻塞 socket）也使用同一份帧格式的实现。不是线程安全的，每个线程使用自己的实例。
+ */
+public final class RpcFrameCodec {
+
+    private final EmbeddedChannel encoderChannel = new EmbeddedChannel(new RpcMessageEncoder());
+    private final EmbeddedChannel decoderChannel = new EmbeddedChannel(new RpcMessageDecoder());
+
+    /**
+     * @return 一个完整的帧，包括帧头
+     */
+    public byte[] encode(RpcMessage rpcMessage) {
+        encoderChannel.writeOutbound(rpcMessage);
+        ByteBuf frame = encoderChannel.readOutbound();
+        try {
+            byte[] bytes = new byte[frame.readableBytes()];
+            frame.readBytes(bytes);
+            return bytes;
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * @param frame 一个完整的帧
+     * @return 解码后的消息
+     */
+    public RpcMessage decode(byte[] frame) {
+        decoderChannel.writeInbound(Unpooled.wrappedBuffer(frame));
+        Object decoded = decoderChannel.readInbound();
+        if (!(decoded instanceof RpcMessage)) {
+            throw new IllegalArgumentException("incomplete rpc frame of " + frame.length + " bytes");
+        }
+        return (RpcMessage) decoded;
+    }
+}
@@ -105,15 +105,21 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
                                     .codec(codecType)
                                     .compress(compressType)
                                     .requestId(requestId).build();
-        if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
-            rpcMessage.setData(RpcConstants.PING);
+        int bodyLength = fullLength - RpcConstants.HEAD_LENGTH;
+        // 心跳的 body 是 8 字节的发送时间
+        if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE || messageType == RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
+            rpcMessage.setData(in.readLong());
             return rpcMessage;
         }
-        if(messageType == RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
-            rpcMessage.setData(RpcConstants.PONG);
-            return rpcMessage;
+        String cachedRequestId = null;
+        if (messageType == RpcConstants.CACHED_RESPONSE_TYPE) {
+            // 服务端缓存的响应，读出 requestId 之后剩下的部分和普通响应一样解码
+            byte[] requestIdBytes = new byte[in.readUnsignedShort()];
+            in.readBytes(requestIdBytes);
+            cachedRequestId = new String(requestIdBytes, RpcConstants.DEFAULT_CHARSET);
+            bodyLength -= Short.BYTES + requestIdBytes.length;
+            rpcMessage.setMessageType(RpcConstants.RESPONSE_TYPE);
         }
-        int bodyLength = fullLength - RpcConstants.HEAD_LENGTH;
         if(bodyLength > 0) {
             byte[] bytes = new byte[bodyLength];
             // 把数据帧剩下的字节全部读出
@@ -128,9 +134,14 @@ public class RpcMessageDecoder extends LengthFieldBasedFrameDecoder {
             Serializer serializer = ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(codecName);
             if (messageType == RpcConstants.REQUEST_TYPE) {
                 RpcRequest tmpValue = serializer.deserialize(bytes, RpcRequest.class);
+                // 记录请求到达的时间，服务端据此计算请求的截止时间
+                tmpValue.setReceivedNanos(System.nanoTime());
                 rpcMessage.setData(tmpValue);
             } else {
                 RpcResponse tmpValue = serializer.deserialize(bytes, RpcResponse.class);
+                if (cachedRequestId != null) {
+                    tmpValue.setRequestId(cachedRequestId);
+                }
                 rpcMessage.setData(tmpValue);
             }
         }
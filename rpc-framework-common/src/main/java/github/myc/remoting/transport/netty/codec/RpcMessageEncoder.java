@@ -10,9 +10,11 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 import lombok.extern.slf4j.Slf4j;
 import github.myc.remoting.constants.RpcConstants;
+import github.myc.remoting.dto.CachedResponse;
 import github.myc.remoting.dto.RpcMessage;
 import github.myc.serialize.Serializer;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -58,7 +60,20 @@ public class RpcMessageEncoder extends MessageToByteEncoder<RpcMessage> {
              byte[] bodyBytes = null;
              int fullLength = RpcConstants.HEAD_LENGTH;
              // 如果消息类型不是心跳信息，full length = head length + body length.
-            if(messageType != RpcConstants.HEARTBEAT_REQUEST_TYPE && messageType != RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
+            if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE || messageType == RpcConstants.HEARTBEAT_RESPONSE_TYPE) {
+                // 心跳的 body 是 8 字节的发送时间，不经过序列化和压缩
+                bodyBytes = ByteBuffer.allocate(Long.BYTES).putLong((Long) rpcMessage.getData()).array();
+                fullLength += bodyBytes.length;
+            } else if (messageType == RpcConstants.CACHED_RESPONSE_TYPE) {
+                // 缓存的响应已经序列化并压缩过，只需要在前面写上本次请求的 requestId
+                CachedResponse cachedResponse = (CachedResponse) rpcMessage.getData();
+                byte[] requestIdBytes = cachedResponse.getRequestId().getBytes(RpcConstants.DEFAULT_CHARSET);
+                ByteBuffer body = cachedResponse.getBody().duplicate();
+                out.writeShort(requestIdBytes.length);
+                out.writeBytes(requestIdBytes);
+                fullLength += Short.BYTES + requestIdBytes.length + body.remaining();
+                out.writeBytes(body);
+            } else {
                 // 序列化对象
                 String codeName = SerializationTypeEnum.getName(rpcMessage.getCodec());
                 log.info("codec name : [{}]", codeName);
@@ -2,11 +2,15 @@ package github.myc.remoting.transport.netty.server;
 
 import github.myc.config.CustomShutdownHook;
 import github.myc.config.RpcServiceConfig;
+import github.myc.enums.RpcConfigEnum;
+import github.myc.enums.ServerExecutorModeEnum;
 import github.myc.factory.SingletonFactory;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
 import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
@@ -17,12 +21,19 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import github.myc.provider.ServiceProvider;
 import github.myc.provider.impl.ZkServiceProviderImpl;
+import github.myc.remoting.transport.netty.DomainSockets;
+import github.myc.remoting.transport.netty.NettyChannelOptions;
 import github.myc.remoting.transport.netty.codec.RpcMessageDecoder;
 import github.myc.remoting.transport.netty.codec.RpcMessageEncoder;
+import github.myc.utils.RpcConfigUtil;
 import github.myc.utils.RuntimeUtil;
+import github.myc.utils.concurrent.threadpool.CustomThreadPoolConfig;
 import github.myc.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
 
+import java.io.File;
 import java.net.InetAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -32,7 +43,11 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class NettyRpcServer {
 
-    public static final int PORT = 8889;
+    public static final int PORT = RpcConfigUtil.getInt(RpcConfigEnum.SERVER_PORT, 8889);
+    /**
+     * 服务端同时监听的 Unix domain socket 文件路径，不支持时为 null
+     */
+    public static final String DOMAIN_SOCKET_PATH = DomainSockets.isEnabled() ? DomainSockets.serverPath(PORT) : null;
 
     private final ServiceProvider serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
 
@@ -49,37 +64,62 @@ public class NettyRpcServer {
         CustomShutdownHook.getCustomShutdownHook().clearAll();
         String host = InetAddress.getLocalHost().getHostAddress();
         // bossGroup 是一个单线程的 EventLoopGroup，负责分发，而 workerGroup 则是相当于一个线程池，由next()选择一个eventLoop进行注册及处理
-        EventLoopGroup bossGroup = new NioEventLoopGroup();
-        EventLoopGroup workerGoup = new NioEventLoopGroup();
-        DefaultEventExecutorGroup serviceHandlerGroup = new DefaultEventExecutorGroup(
-                RuntimeUtil.cpus() * 2,
-                ThreadPoolFactoryUtil.createThreadFactory("service-handler-group", false)
+        // 线程数为 0 时由 Netty 使用默认值（CPU 核心数 * 2）
+        EventLoopGroup bossGroup = new NioEventLoopGroup(RpcConfigUtil.getInt(RpcConfigEnum.NETTY_SERVER_BOSS_THREADS, 0));
+        EventLoopGroup workerGoup = new NioEventLoopGroup(RpcConfigUtil.getInt(RpcConfigEnum.NETTY_SERVER_WORKER_THREADS, 0));
+        // DefaultEventExecutorGroup 不接受 0，和 Netty 的 EventLoopGroup 一样把小于等于 0 的值换成 CPU 核心数 * 2
+        int businessThreads = RpcConfigUtil.getInt(RpcConfigEnum.NETTY_SERVER_BUSINESS_THREADS, 0);
+        if (businessThreads <= 0) {
+            businessThreads = RuntimeUtil.cpus() * 2;
+        }
+        // pinned 模式下每个连接的请求固定由 serviceHandlerGroup 中的一个线程处理；shared 模式下请求提交到共享线程池
+        boolean shared = executorMode() == ServerExecutorModeEnum.SHARED;
+        DefaultEventExecutorGroup serviceHandlerGroup = shared ? null : new DefaultEventExecutorGroup(
+                businessThreads, ThreadPoolFactoryUtil.createThreadFactory("service-handler-group", false)
         );
+        ExecutorService sharedExecutor = shared ? createSharedExecutor(businessThreads) : null;
+        EventLoopGroup domainSocketGroup = DOMAIN_SOCKET_PATH != null
+                ? new EpollEventLoopGroup(RpcConfigUtil.getInt(RpcConfigEnum.NETTY_SERVER_WORKER_THREADS, 0)) : null;
+        // 关闭钩子等已经接收的请求处理完之后再关闭这些线程池，共享线程池由 ThreadPoolFactoryUtil 统一关闭
+        CustomShutdownHook.getCustomShutdownHook().addCloseAction(() -> {
+            if (domainSocketGroup != null) {
+                // 先停止监听 Unix domain socket 并删除 socket 文件，否则客户端看到文件存在会尝试连接一个已经关闭的服务端
+                domainSocketGroup.shutdownGracefully().syncUninterruptibly();
+                deleteDomainSocketFile();
+            }
+            bossGroup.shutdownGracefully().syncUninterruptibly();
+            workerGoup.shutdownGracefully().syncUninterruptibly();
+            if (serviceHandlerGroup != null) {
+                serviceHandlerGroup.shutdownGracefully().syncUninterruptibly();
+            }
+        });
+        ChannelInitializer<Channel> childInitializer = new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                ChannelPipeline p = ch.pipeline();
+                // 合并 flush 的处理器必须在最前面，这样才能拦截编码之后的 flush
+                NettyChannelOptions.addFlushConsolidation(p);
+                // 30 秒内没有收到客户端请求的话就关闭连接
+                p.addLast(new IdleStateHandler(60, 0, 0, TimeUnit.SECONDS));
+                p.addLast(new RpcMessageEncoder());
+                p.addLast(new RpcMessageDecoder());
+                // 处理器运行在 IO 线程上，限流等检查之后再把请求交给业务线程：
+                // pinned 模式下是 serviceHandlerGroup 中固定处理这个连接的线程，shared 模式下是共享线程池
+                p.addLast(new NettyRpcServerHandler(serviceHandlerGroup != null ? serviceHandlerGroup.next() : sharedExecutor));
+            }
+        };
         try {
+            if (domainSocketGroup != null) {
+                bindDomainSocket(domainSocketGroup, childInitializer);
+            }
             ServerBootstrap serverBootstrap = new ServerBootstrap();
             serverBootstrap.group(bossGroup, workerGoup);
             serverBootstrap.channel(NioServerSocketChannel.class);
-            // TCP 默认开启了 Nagle 算法，该算法的作用就是尽可能地发送大数据块，减少网络传输。TCP_NODELAY 参数的作用就是控制是否开启 Nagle 算法
-            serverBootstrap.option(ChannelOption.TCP_NODELAY, true);
-            // 是否开启 TCP 底层心跳机制，心跳机制主要用于检测连接是否存活，帮助维持长时间的连接，以及超时处理。
-            serverBootstrap.option(ChannelOption.SO_KEEPALIVE, true);
-            // 在 TCP 服务器端，当有新的客户端连接请求到达时，服务器会将其放入一个等待处理的连接队列中，等待服务器处理。
-            // 当服务器的连接队列已满时，新的连接请求将会被拒绝或者丢弃。SO_BACKLOG 参数用来配置服务器的连接队列的最大长度。
-            serverBootstrap.option(ChannelOption.SO_BACKLOG, 128);
+            // TCP_NODELAY、SO_KEEPALIVE、SO_BACKLOG、缓冲区大小以及分配器等参数统一从 rpc.properties 读取
+            NettyChannelOptions.applyServerOptions(serverBootstrap);
             serverBootstrap.handler(new LoggingHandler(LogLevel.INFO));
-            // 当客户端第一次进行请求的时候才会进行初始化
-            serverBootstrap.childHandler(new ChannelInitializer<SocketChannel>() {
-                @Override
-                protected void initChannel(SocketChannel ch) {
-                    ChannelPipeline p = ch.pipeline();
-                    // 30 秒内没有收到客户端请求的话就关闭连接
-                    p.addLast(new IdleStateHandler(60, 0, 0, TimeUnit.SECONDS));
-                    p.addLast(new RpcMessageEncoder());
-                    p.addLast(new RpcMessageDecoder());
-                    // 自定义服务端处理器处理请求，这些处理器用的是 serviceHandlerGroup 线程池
-                    p.addLast(serviceHandlerGroup, new NettyRpcServerHandler());
-                }
-            });
+            // 当客户端第一次进行请求的时候才会进行初始化，TCP 连接和 Unix domain socket 连接使用同样的处理器
+            serverBootstrap.childHandler(childInitializer);
 
             // 绑定服务器侦听的端口，同步等待绑定成功
             ChannelFuture cf = serverBootstrap.bind(host, PORT).sync();
@@ -92,7 +132,63 @@ public class NettyRpcServer {
             // 将三个线程池关闭
             bossGroup.shutdownGracefully();
             workerGoup.shutdownGracefully();
-            serviceHandlerGroup.shutdownGracefully();
+            if (serviceHandlerGroup != null) {
+                serviceHandlerGroup.shutdownGracefully();
+            } else {
+                sharedExecutor.shutdown();
+            }
+            if (domainSocketGroup != null) {
+                domainSocketGroup.shutdownGracefully();
+                deleteDomainSocketFile();
+            }
+        }
+    }
+
+    private static ServerExecutorModeEnum executorMode() {
+        String name = RpcConfigUtil.getProperty(RpcConfigEnum.SERVER_EXECUTOR_MODE, ServerExecutorModeEnum.PINNED.getName());
+        ServerExecutorModeEnum mode = ServerExecutorModeEnum.of(name);
+        if (mode == null) {
+            log.warn("unknown server executor mode [{}], use [{}]", name, ServerExecutorModeEnum.PINNED.getName());
+            return ServerExecutorModeEnum.PINNED;
+        }
+        return mode;
+    }
+
+    private static ExecutorService createSharedExecutor(int threads) {
+        CustomThreadPoolConfig config = new CustomThreadPoolConfig();
+        config.setCorePoolSize(threads);
+        config.setMaximumPoolSize(threads);
+        config.setWorkQueue(new ArrayBlockingQueue<>(RpcConfigUtil.getInt(RpcConfigEnum.SERVER_EXECUTOR_QUEUE_CAPACITY, 1024)));
+        return ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent(config, "service-handler-pool", false);
+    }
+
+    private static void deleteDomainSocketFile() {
+        File socketFile = new File(DOMAIN_SOCKET_PATH);
+        if (socketFile.exists() && !socketFile.delete()) {
+            log.warn("can not delete domain socket file [{}]", DOMAIN_SOCKET_PATH);
+        }
+    }
+
+    /**
+     * 监听 Unix domain socket，同一台机器上的客户端可以绕过 TCP 协议栈连接。监听失败时只影响这种连接方式，客户端会退回到 TCP
+     */
+    private void bindDomainSocket(EventLoopGroup domainSocketGroup, ChannelInitializer<Channel> childInitializer) {
+        // 上次异常退出时留下的 socket 文件会导致监听失败
+        File socketFile = new File(DOMAIN_SOCKET_PATH);
+        if (socketFile.exists() && !socketFile.delete()) {
+            log.warn("can not delete stale domain socket file [{}]", DOMAIN_SOCKET_PATH);
         }
+        ServerBootstrap domainSocketBootstrap = new ServerBootstrap();
+        domainSocketBootstrap.group(domainSocketGroup)
+                .channel(EpollServerDomainSocketChannel.class)
+                .childOption(ChannelOption.ALLOCATOR, NettyChannelOptions.allocator())
+                .childHandler(childInitializer);
+        domainSocketBootstrap.bind(new DomainSocketAddress(DOMAIN_SOCKET_PATH)).addListener((ChannelFutureListener) future -> {
+            if (future.isSuccess()) {
+                log.info("server is listening on domain socket [{}]", DOMAIN_SOCKET_PATH);
+            } else {
+                log.error("bind domain socket [{}] failed", DOMAIN_SOCKET_PATH, future.cause());
+            }
+        });
     }
 }
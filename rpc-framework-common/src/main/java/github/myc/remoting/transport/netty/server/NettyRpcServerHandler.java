@@ -3,6 +3,7 @@ package github.myc.remoting.transport.netty.server;
 import github.myc.enums.CompressTypeEnum;
 import github.myc.enums.RpcResponseCodeEnum;
 import github.myc.enums.SerializationTypeEnum;
+import github.myc.exception.RpcRejectedException;
 import github.myc.factory.SingletonFactory;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
@@ -12,10 +13,16 @@ import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 import github.myc.remoting.constants.RpcConstants;
+import github.myc.remoting.dto.CachedResponse;
 import github.myc.remoting.dto.RpcMessage;
 import github.myc.remoting.dto.RpcRequest;
 import github.myc.remoting.dto.RpcResponse;
 import github.myc.remoting.handler.RpcRequestHandler;
+import github.myc.remoting.handler.cache.ResponseCache;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 自定义服务端的 channelHandler 来处理客户端的请求
@@ -26,9 +33,18 @@ import github.myc.remoting.handler.RpcRequestHandler;
 public class NettyRpcServerHandler extends ChannelInboundHandlerAdapter {
 
     private final RpcRequestHandler rpcRequestHandler;
+    private final ResponseCache responseCache;
+    // 执行请求的线程池：共享线程池，或者固定处理这个连接的业务线程；为 null 时在 IO 线程上执行
+    private final Executor requestExecutor;
 
     public NettyRpcServerHandler() {
+        this(null);
+    }
+
+    public NettyRpcServerHandler(Executor requestExecutor) {
         this.rpcRequestHandler = SingletonFactory.getInstance(RpcRequestHandler.class);
+        this.responseCache = SingletonFactory.getInstance(ResponseCache.class);
+        this.requestExecutor = requestExecutor;
     }
 
     @Override
@@ -43,24 +59,30 @@ public class NettyRpcServerHandler extends ChannelInboundHandlerAdapter {
                 rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
                 if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
                     rpcMessage.setMessageType(RpcConstants.HEARTBEAT_RESPONSE_TYPE);
-                    rpcMessage.setData(RpcConstants.PONG);
+                    // 原样返回心跳中的时间戳，客户端据此计算 RTT
+                    rpcMessage.setData(((RpcMessage) msg).getData());
+                    // 当写出 rpcMessage 操作失败时，会触发监听器回调方法，关闭关联的 channel
+                    ctx.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
                 } else {
                     RpcRequest rpcRequest = (RpcRequest) ((RpcMessage) msg).getData();
-                    // 执行请求的目标方法并将方法执行结果返回给客户端
-                    Object result = rpcRequestHandler.handle(rpcRequest);
-                    log.info(String.format("server get result； %s", result.toString()));
                     rpcMessage.setMessageType(RpcConstants.RESPONSE_TYPE);
-                    if (ctx.channel().isActive() && ctx.channel().isWritable()) {
-                        RpcResponse<Object> rpcResponse = RpcResponse.success(result, rpcRequest.getRequestId());
-                        rpcMessage.setData(rpcResponse);
+                    // 在 IO 线程上先做限流等检查，被拒绝的请求不进入业务线程池的队列
+                    RpcResponseCodeEnum rejectCode = rpcRequestHandler.precheck(rpcRequest);
+                    if (rejectCode != null) {
+                        writeResponse(ctx, rpcMessage, rpcRequest, null, new RpcRejectedException(rejectCode, rpcRequest.getRpcServiceName()));
+                    } else if (requestExecutor == null) {
+                        handleRequest(ctx, rpcMessage, rpcRequest);
                     } else {
-                        RpcResponse<Object> rpcResponse = RpcResponse.fail(RpcResponseCodeEnum.FAIL);
-                        rpcMessage.setData(rpcResponse);
-                        log.error("not writable now, message dropped");
+                        // 提交到业务线程后立即读取下一个请求，慢请求不会阻塞 IO 线程
+                        try {
+                            requestExecutor.execute(() -> handleRequest(ctx, rpcMessage, rpcRequest));
+                        } catch (RejectedExecutionException e) {
+                            log.warn("server executor is full, reject request [{}]", rpcRequest.getRequestId());
+                            writeResponse(ctx, rpcMessage, rpcRequest, null,
+                                    new RpcRejectedException(RpcResponseCodeEnum.OVERLOADED, "server executor is full"));
+                        }
                     }
                 }
-                // 当写出 rpcMessage 操作失败时，会触发监听器回调方法，关闭关联的 channel
-                ctx.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
             }
         } finally {
             // 将对象的引用计数减 1。如果引用计数变为 0，该方法将负责释放对象，并确保资源得到正确地释放。
@@ -68,6 +90,56 @@ public class NettyRpcServerHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    private void handleRequest(ChannelHandlerContext ctx, RpcMessage rpcMessage, RpcRequest rpcRequest) {
+        // 标记了 @ResponseCacheable 的方法，缓存命中时直接写出缓存的响应，不执行方法也不序列化结果。
+        // 关闭状态、限流和截止时间已经在 channelRead 中检查过，缓存命中的请求同样受这些限制；命中的请求不经过准入控制，因为它不占用业务线程执行方法
+        ResponseCache.Key cacheKey = responseCache.keyOf(rpcRequest, rpcMessage.getCodec());
+        if (cacheKey != null) {
+            ByteBuffer cached = responseCache.get(cacheKey);
+            if (cached != null) {
+                writeCachedResponse(ctx, rpcMessage, rpcRequest, cached);
+                return;
+            }
+        }
+        // 执行请求的目标方法，方法执行完成后再将结果返回给客户端。
+        // 异步方法返回后当前线程就可以处理下一个请求，响应在 future 完成的线程上写出
+        rpcRequestHandler.handleChecked(rpcRequest).whenComplete((result, throwable) -> {
+            if (cacheKey != null && throwable == null) {
+                // 响应只编码一次，同时用于缓存和本次写出
+                ByteBuffer encoded = responseCache.encodeAndPut(cacheKey, result, rpcMessage.getCodec(), rpcMessage.getCompress());
+                if (encoded != null) {
+                    writeCachedResponse(ctx, rpcMessage, rpcRequest, encoded);
+                    return;
+                }
+            }
+            writeResponse(ctx, rpcMessage, rpcRequest, result, throwable);
+        });
+    }
+
+    private void writeCachedResponse(ChannelHandlerContext ctx, RpcMessage rpcMessage, RpcRequest rpcRequest, ByteBuffer body) {
+        rpcMessage.setMessageType(RpcConstants.CACHED_RESPONSE_TYPE);
+        rpcMessage.setData(new CachedResponse(rpcRequest.getRequestId(), body));
+        ctx.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, RpcMessage rpcMessage, RpcRequest rpcRequest, Object result, Throwable throwable) {
+        RpcResponse<Object> rpcResponse;
+        if (throwable != null) {
+            // 服务方法执行失败时返回失败的响应，不关闭连接，同一连接上的其他请求不受影响
+            log.error("handle request [{}] failed", rpcRequest.getRequestId(), throwable);
+            rpcResponse = RpcResponse.fail(throwable, rpcRequest.getRequestId());
+        } else if (ctx.channel().isActive() && ctx.channel().isWritable()) {
+            log.info("server get result: [{}]", result);
+            rpcResponse = RpcResponse.success(result, rpcRequest.getRequestId());
+        } else {
+            rpcResponse = RpcResponse.fail(RpcResponseCodeEnum.FAIL, rpcRequest.getRequestId());
+            log.error("not writable now, message dropped");
+        }
+        rpcMessage.setData(rpcResponse);
+        // 当写出 rpcMessage 操作失败时，会触发监听器回调方法，关闭关联的 channel
+        ctx.writeAndFlush(rpcMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+    }
+
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
         // 判断事件的类型，如果是 IdleStateEvent 事件再进行处理，该事件在连接的读操作或写操作在一定时间内没有活动（即空闲）时触发
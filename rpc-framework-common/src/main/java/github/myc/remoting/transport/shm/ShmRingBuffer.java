@@ -0,0 +1,109 @@
+package github.myc.remoting.transport.shm;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 共享内存中的单生产者单消费者环形缓冲区，生产者和消费者可以在不同的进程中
+ * <pre>
+ *   0          8                 64         72                128
+ *   +----------+-----------------+----------+-----------------+--------------------------+
+ *   | 写位置    |     填充         | 读位置    |      填充        | 数据区（capacity 字节）     |
+ *   +----------+-----------------+----------+-----------------+--------------------------+
+ * </pre>
+ * 读写位置是单调递增的字节数，分别放在不同的缓存行中避免伪共享。每条记录是 4 字节的长度加上帧数据，
+ * 记录可以跨越数据区的末尾。生产者写完数据后以 release 语义更新写位置，消费者以 acquire 语义读取写位置，
+ * 从而保证消费者看到写位置时一定能看到完整的数据；读位置同理。
+ */
+final class ShmRingBuffer {
+
+    static final int HEADER_BYTES = 128;
+    private static final int WRITE_POSITION_OFFSET = 0;
+    private static final int READ_POSITION_OFFSET = 64;
+    private static final int LENGTH_BYTES = Integer.BYTES;
+    private static final VarHandle LONG_VIEW = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+    // 长度字段的临时缓冲，只在生产者或消费者自己的线程中使用
+    private final byte[] lengthBytes = new byte[LENGTH_BYTES];
+
+    /**
+     * @param buffer   映射的共享内存中属于这个环形缓冲区的部分，大小为 HEADER_BYTES + capacity
+     * @param capacity 数据区大小，必须是 2 的幂
+     */
+    ShmRingBuffer(ByteBuffer buffer, int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("ring capacity must be a power of two: " + capacity);
+        }
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * 写入一帧，只能由生产者调用
+     * @return 剩余空间不足时返回 false
+     */
+    boolean offer(byte[] frame) {
+        int recordLength = LENGTH_BYTES + frame.length;
+        if (recordLength > capacity) {
+            throw new IllegalArgumentException("frame of " + frame.length + " bytes exceeds ring capacity " + capacity);
+        }
+        long write = (long) LONG_VIEW.get(buffer, WRITE_POSITION_OFFSET);
+        long read = (long) LONG_VIEW.getAcquire(buffer, READ_POSITION_OFFSET);
+        if (capacity - (write - read) < recordLength) {
+            return false;
+        }
+        int length = frame.length;
+        lengthBytes[0] = (byte) (length >>> 24);
+        lengthBytes[1] = (byte) (length >>> 16);
+        lengthBytes[2] = (byte) (length >>> 8);
+        lengthBytes[3] = (byte) length;
+        put(write, lengthBytes);
+        put(write + LENGTH_BYTES, frame);
+        LONG_VIEW.setRelease(buffer, WRITE_POSITION_OFFSET, write + recordLength);
+        return true;
+    }
+
+    /**
+     * 读取一帧，只能由消费者调用
+     * @return 没有数据时返回 null
+     */
+    byte[] poll() {
+        long read = (long) LONG_VIEW.get(buffer, READ_POSITION_OFFSET);
+        long write = (long) LONG_VIEW.getAcquire(buffer, WRITE_POSITION_OFFSET);
+        if (read == write) {
+            return null;
+        }
+        get(read, lengthBytes);
+        int length = ((lengthBytes[0] & 0xff) << 24) | ((lengthBytes[1] & 0xff) << 16)
+                | ((lengthBytes[2] & 0xff) << 8) | (lengthBytes[3] & 0xff);
+        byte[] frame = new byte[length];
+        get(read + LENGTH_BYTES, frame);
+        LONG_VIEW.setRelease(buffer, READ_POSITION_OFFSET, read + LENGTH_BYTES + length);
+        return frame;
+    }
+
+    private void put(long position, byte[] src) {
+        int index = (int) (position & mask);
+        int first = Math.min(src.length, capacity - index);
+        buffer.put(HEADER_BYTES + index, src, 0, first);
+        if (first < src.length) {
+            // 跨越数据区末尾的部分写到开头
+            buffer.put(HEADER_BYTES, src, first, src.length - first);
+        }
+    }
+
+    private void get(long position, byte[] dst) {
+        int index = (int) (position & mask);
+        int first = Math.min(dst.length, capacity - index);
+        buffer.get(HEADER_BYTES + index, dst, 0, first);
+        if (first < dst.length) {
+            buffer.get(HEADER_BYTES, dst, first, dst.length - first);
+        }
+    }
+}
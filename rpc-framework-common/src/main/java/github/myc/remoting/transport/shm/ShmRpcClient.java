@@ -0,0 +1,102 @@
+package github.myc.remoting.transport.shm;
+
+import github.myc.enums.CompressTypeEnum;
+import github.myc.enums.SerializationTypeEnum;
+import github.myc.remoting.constants.RpcConstants;
+import github.myc.remoting.dto.RpcMessage;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.transport.LocalTransport;
+import github.myc.remoting.transport.RpcRequestTransport;
+import github.myc.remoting.transport.netty.codec.RpcFrameCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 实验性的共享内存传输客户端，通过 /dev/shm 下的内存映射文件与同一台机器上的 ShmRpcServer 交换 RpcMessage 帧，
+ * 帧格式与 Netty 传输相同。多个调用线程写请求环时通过锁保证只有一个生产者，响应由一个读线程接收。
+ */
+@Slf4j
+public class ShmRpcClient implements RpcRequestTransport, LocalTransport {
+
+    private final ShmRingBuffer requestRing;
+    private final ShmRingBuffer responseRing;
+    private final SpinThenParkWaitStrategy waitStrategy = new SpinThenParkWaitStrategy();
+    // 编码只在持有 requestRing 锁时进行
+    private final RpcFrameCodec encoder = new RpcFrameCodec();
+    private final Map<String, CompletableFuture<RpcResponse<Object>>> pendingResponses = new ConcurrentHashMap<>();
+
+    public ShmRpcClient() {
+        ShmSegment segment = ShmSegment.open(ShmSegment.configuredPath());
+        this.requestRing = segment.requestRing();
+        this.responseRing = segment.responseRing();
+        Thread reader = new Thread(this::readResponses, "rpc-shm-client-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public Object sendRpcRequest(RpcRequest rpcRequest) {
+        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
+        resultFuture.whenComplete((rpcResponse, throwable) -> {
+            if (throwable != null) {
+                pendingResponses.remove(rpcRequest.getRequestId());
+            }
+        });
+        pendingResponses.put(rpcRequest.getRequestId(), resultFuture);
+        RpcMessage rpcMessage = RpcMessage.builder().data(rpcRequest)
+                .codec(SerializationTypeEnum.KYRO.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .messageType(RpcConstants.REQUEST_TYPE).build();
+        try {
+            synchronized (requestRing) {
+                byte[] frame = encoder.encode(rpcMessage);
+                int idleCount = 0;
+                while (!requestRing.offer(frame)) {
+                    waitStrategy.idle(idleCount++);
+                }
+            }
+        } catch (RuntimeException e) {
+            resultFuture.completeExceptionally(e);
+        }
+        return resultFuture;
+    }
+
+    /**
+     * 共享内存只连接一个服务端，忽略指定的地址
+     */
+    @Override
+    public Object sendRpcRequest(RpcRequest rpcRequest, InetSocketAddress inetSocketAddress) {
+        return sendRpcRequest(rpcRequest);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readResponses() {
+        RpcFrameCodec decoder = new RpcFrameCodec();
+        int idleCount = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            byte[] frame = responseRing.poll();
+            if (frame == null) {
+                waitStrategy.idle(idleCount++);
+                continue;
+            }
+            idleCount = 0;
+            try {
+                RpcMessage rpcMessage = decoder.decode(frame);
+                if (rpcMessage.getMessageType() == RpcConstants.RESPONSE_TYPE) {
+                    RpcResponse<Object> rpcResponse = (RpcResponse<Object>) rpcMessage.getData();
+                    CompletableFuture<RpcResponse<Object>> future = pendingResponses.remove(rpcResponse.getRequestId());
+                    if (future != null) {
+                        future.complete(rpcResponse);
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("decode shared memory frame failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package github.myc.remoting.transport.shm;
+
+import github.myc.config.RpcServiceConfig;
+import github.myc.enums.CompressTypeEnum;
+import github.myc.enums.RpcResponseCodeEnum;
+import github.myc.enums.SerializationTypeEnum;
+import github.myc.factory.SingletonFactory;
+import github.myc.provider.ServiceProvider;
+import github.myc.provider.impl.ZkServiceProviderImpl;
+import github.myc.remoting.constants.RpcConstants;
+import github.myc.remoting.dto.RpcMessage;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.handler.RpcRequestHandler;
+import github.myc.remoting.transport.netty.codec.RpcFrameCodec;
+import github.myc.utils.concurrent.threadpool.ThreadPoolFactoryUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 实验性的共享内存传输服务端，创建 /dev/shm 下的内存映射文件，由一个线程轮询请求环，
+ * 请求交给业务线程池处理，处理结果写入响应环。写响应环时通过锁保证只有一个生产者。
+ * 服务只保存在本地，不注册到 zookeeper。
+ */
+@Slf4j
+public class ShmRpcServer {
+
+    private final ServiceProvider serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
+    private final RpcRequestHandler rpcRequestHandler = SingletonFactory.getInstance(RpcRequestHandler.class);
+    private final ExecutorService threadPool = ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent("shm-rpc-server-handler-pool");
+    private final SpinThenParkWaitStrategy waitStrategy = new SpinThenParkWaitStrategy();
+    // 编码只在持有 responseRing 锁时进行
+    private final RpcFrameCodec encoder = new RpcFrameCodec();
+    private ShmRingBuffer responseRing;
+
+    public void registerService(RpcServiceConfig rpcServiceConfig) {
+        serviceProvider.addService(rpcServiceConfig);
+    }
+
+    /**
+     * 创建共享内存段并开始处理请求，调用线程会一直轮询请求环
+     */
+    public void start() {
+        Path path = ShmSegment.configuredPath();
+        ShmSegment segment = ShmSegment.create(path);
+        ShmRingBuffer requestRing = segment.requestRing();
+        responseRing = segment.responseRing();
+        log.info("shared memory server is listening on [{}]", path);
+        RpcFrameCodec decoder = new RpcFrameCodec();
+        int idleCount = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            byte[] frame = requestRing.poll();
+            if (frame == null) {
+                waitStrategy.idle(idleCount++);
+                continue;
+            }
+            idleCount = 0;
+            RpcMessage rpcMessage;
+            try {
+                rpcMessage = decoder.decode(frame);
+            } catch (RuntimeException e) {
+                log.error("decode shared memory frame failed", e);
+                continue;
+            }
+            if (rpcMessage.getMessageType() == RpcConstants.REQUEST_TYPE) {
+                RpcRequest rpcRequest = (RpcRequest) rpcMessage.getData();
+                try {
+                    threadPool.execute(() -> handle(rpcRequest));
+                } catch (RejectedExecutionException e) {
+                    // 线程池已满时不能让轮询线程退出，直接告诉客户端服务端过载
+                    log.warn("shared memory server is busy, reject request [{}]", rpcRequest.getRequestId());
+                    writeResponse(RpcResponse.fail(RpcResponseCodeEnum.OVERLOADED, rpcRequest.getRequestId()));
+                }
+            }
+        }
+    }
+
+    private void handle(RpcRequest rpcRequest) {
+        rpcRequestHandler.handleAsync(rpcRequest).whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                log.error("handle shared memory request [{}] failed", rpcRequest.getRequestId(), throwable);
+                writeResponse(RpcResponse.fail(throwable, rpcRequest.getRequestId()));
+            } else {
+                writeResponse(RpcResponse.success(result, rpcRequest.getRequestId()));
+            }
+        });
+    }
+
+    private void writeResponse(RpcResponse<Object> rpcResponse) {
+        RpcMessage rpcMessage = RpcMessage.builder().data(rpcResponse)
+                .codec(SerializationTypeEnum.KYRO.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .messageType(RpcConstants.RESPONSE_TYPE).build();
+        synchronized (responseRing) {
+            byte[] frame = encoder.encode(rpcMessage);
+            int idleCount = 0;
+            while (!responseRing.offer(frame)) {
+                waitStrategy.idle(idleCount++);
+            }
+        }
+    }
+}
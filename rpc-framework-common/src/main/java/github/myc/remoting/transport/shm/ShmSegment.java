@@ -0,0 +1,97 @@
+package github.myc.remoting.transport.shm;
+
+import github.myc.enums.RpcConfigEnum;
+import github.myc.utils.RpcConfigUtil;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 一个共享内存段，即 /dev/shm 下的一个内存映射文件，包含两个方向的环形缓冲区
+ * <pre>
+ *   0              8              64                                  64 + ring
+ *   +--------------+--------------+-----------------------------------+-----------------------------------+
+ *   | 数据区大小     | 就绪标记       | 请求环（客户端 -> 服务端）            | 响应环（服务端 -> 客户端）            |
+ *   +--------------+--------------+-----------------------------------+-----------------------------------+
+ * </pre>
+ * 由服务端创建，一个内存段只能连接一个客户端进程。
+ */
+final class ShmSegment {
+
+    private static final int HEADER_BYTES = 64;
+    private static final int CAPACITY_OFFSET = 0;
+    private static final int READY_OFFSET = 8;
+    private static final long READY = 0x67727063L;
+    private static final int DEFAULT_RING_CAPACITY = 1 << 20;
+    private static final VarHandle LONG_VIEW = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ShmRingBuffer requestRing;
+    private final ShmRingBuffer responseRing;
+
+    private ShmSegment(MappedByteBuffer mapped, int capacity) {
+        int ringBytes = ShmRingBuffer.HEADER_BYTES + capacity;
+        this.requestRing = new ShmRingBuffer(mapped.slice(HEADER_BYTES, ringBytes), capacity);
+        this.responseRing = new ShmRingBuffer(mapped.slice(HEADER_BYTES + ringBytes, ringBytes), capacity);
+    }
+
+    /**
+     * @return 配置的共享内存文件路径，默认是 /dev/shm/my-rpc.shm
+     */
+    static Path configuredPath() {
+        return Paths.get(RpcConfigUtil.getProperty(RpcConfigEnum.SHM_PATH, "/dev/shm/my-rpc.shm"));
+    }
+
+    /**
+     * 服务端创建内存段，已经存在的文件会被清空
+     */
+    static ShmSegment create(Path path) {
+        int capacity = RpcConfigUtil.getInt(RpcConfigEnum.SHM_RING_BYTES, DEFAULT_RING_CAPACITY);
+        long size = HEADER_BYTES + 2L * (ShmRingBuffer.HEADER_BYTES + capacity);
+        try {
+            Files.deleteIfExists(path);
+            try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer mapped = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                LONG_VIEW.set(mapped, CAPACITY_OFFSET, (long) capacity);
+                ShmSegment segment = new ShmSegment(mapped, capacity);
+                // 数据区大小写好之后客户端才能连接
+                LONG_VIEW.setRelease(mapped, READY_OFFSET, READY);
+                return segment;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("create shared memory segment " + path + " failed", e);
+        }
+    }
+
+    /**
+     * 客户端打开服务端创建的内存段
+     */
+    static ShmSegment open(Path path) {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapped = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, fileChannel.size());
+            if ((long) LONG_VIEW.getAcquire(mapped, READY_OFFSET) != READY) {
+                throw new IllegalStateException("shared memory segment " + path + " is not initialized");
+            }
+            int capacity = (int) (long) LONG_VIEW.get(mapped, CAPACITY_OFFSET);
+            return new ShmSegment(mapped, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("open shared memory segment " + path + " failed", e);
+        }
+    }
+
+    ShmRingBuffer requestRing() {
+        return requestRing;
+    }
+
+    ShmRingBuffer responseRing() {
+        return responseRing;
+    }
+}
@@ -0,0 +1,29 @@
+package github.myc.remoting.transport.shm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 等待环形缓冲区有数据或者有空间时的策略：先忙等，再用 Thread.onSpinWait 提示 CPU，最后短暂挂起线程，
+ * 在低延迟和空闲时的 CPU 占用之间取得平衡
+ */
+final class SpinThenParkWaitStrategy {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int ON_SPIN_WAIT_TRIES = 10_000;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * @param idleCount 连续没有取得进展的次数，有进展时调用方要把它清零
+     */
+    void idle(int idleCount) {
+        if (idleCount < SPIN_TRIES) {
+            return;
+        }
+        if (idleCount < SPIN_TRIES + ON_SPIN_WAIT_TRIES) {
+            Thread.onSpinWait();
+            return;
+        }
+        LockSupport.parkNanos(PARK_NANOS);
+    }
+}
@@ -0,0 +1,137 @@
+package github.myc.remoting.transport.socket;
+
+import github.myc.enums.CompressTypeEnum;
+import github.myc.enums.RpcErrorMessageEnum;
+import github.myc.enums.SerializationTypeEnum;
+import github.myc.exception.RpcConnectionLostException;
+import github.myc.exception.RpcException;
+import github.myc.remoting.constants.RpcConstants;
+import github.myc.remoting.dto.RpcMessage;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 客户端到一个服务端的长连接。多个请求可以同时在途：调用线程加锁写出请求后立即返回，
+ * 由连接自己的读线程接收响应，按 requestId 完成对应的 future。连接出错后所有在途请求都会失败。
+ */
+@Slf4j
+final class SocketConnection {
+
+    private final InetSocketAddress address;
+    private final Socket socket;
+    private final DataInputStream in;
+    // 写出时以 out 为锁
+    private final DataOutputStream out;
+    private final Map<String, CompletableFuture<RpcResponse<Object>>> pendingResponses = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    SocketConnection(InetSocketAddress address, int connectTimeoutMillis) throws IOException {
+        this.address = address;
+        this.socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(address, connectTimeoutMillis);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        Thread reader = new Thread(this::readResponses, "rpc-socket-client-reader-" + address);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    CompletableFuture<RpcResponse<Object>> send(RpcRequest rpcRequest) {
+        String requestId = rpcRequest.getRequestId();
+        CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
+        // 超时或者被取消的请求不再等待响应
+        resultFuture.whenComplete((rpcResponse, throwable) -> pendingResponses.remove(requestId, resultFuture));
+        pendingResponses.put(requestId, resultFuture);
+        // 放入 pendingResponses 之后再检查，保证与 close 并发时请求也一定会结束
+        if (closed) {
+            resultFuture.completeExceptionally(new RpcException(RpcErrorMessageEnum.CLIENT_CONNECT_SERVER_FAILURE, address.toString()));
+            return resultFuture;
+        }
+        RpcMessage rpcMessage = RpcMessage.builder().data(rpcRequest)
+                .codec(SerializationTypeEnum.KYRO.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .messageType(RpcConstants.REQUEST_TYPE).build();
+        try {
+            synchronized (out) {
+                SocketFrameCodec.write(out, rpcMessage);
+                out.flush();
+            }
+        } catch (IOException e) {
+            close(e);
+        } catch (RuntimeException e) {
+            // 序列化失败只影响这一个请求
+            resultFuture.completeExceptionally(e);
+        }
+        return resultFuture;
+    }
+
+    boolean isActive() {
+        return !closed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readResponses() {
+        try {
+            while (!closed) {
+                RpcMessage rpcMessage = SocketFrameCodec.read(in);
+                if (rpcMessage.getMessageType() != RpcConstants.RESPONSE_TYPE) {
+                    continue;
+                }
+                RpcResponse<Object> rpcResponse = (RpcResponse<Object>) rpcMessage.getData();
+                CompletableFuture<RpcResponse<Object>> future = pendingResponses.remove(rpcResponse.getRequestId());
+                if (future != null) {
+                    future.complete(rpcResponse);
+                }
+            }
+        } catch (EOFException e) {
+            log.info("connection to [{}] is closed by server", address);
+            close(e);
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                log.error("read from [{}] failed", address, e);
+            }
+            close(e);
+        }
+    }
+
+    void close(Throwable cause) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.warn("close connection to [{}] failed", address, e);
+        }
+        List<CompletableFuture<RpcResponse<Object>>> pending = new ArrayList<>(pendingResponses.values());
+        pendingResponses.clear();
+        for (CompletableFuture<RpcResponse<Object>> future : pending) {
+            future.completeExceptionally(new RpcConnectionLostException("connection to " + address + " is closed", cause));
+        }
+    }
+}
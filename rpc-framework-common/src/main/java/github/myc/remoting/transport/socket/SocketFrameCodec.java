@@ -0,0 +1,49 @@
+package github.myc.remoting.transport.socket;
+
+import github.myc.remoting.constants.RpcConstants;
+import github.myc.remoting.dto.RpcMessage;
+import github.myc.remoting.transport.netty.codec.RpcFrameCodec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 在阻塞流上读写 RpcMessage 帧。帧的编码和解码交给 RpcFrameCodec，与 Netty 传输和共享内存传输使用同一份实现，
+ * 心跳、缓存的响应等消息类型只在 RpcMessageEncoder 和 RpcMessageDecoder 中处理，这里只负责从流中切分出完整的帧
+ */
+final class SocketFrameCodec {
+
+    // 魔数、版本和长度字段，读出这部分之后才能知道整个帧的长度
+    private static final int LENGTH_PREFIX = RpcConstants.MAGIC_NUMBER.length + 1 + Integer.BYTES;
+    // RpcFrameCodec 不是线程安全的，每个读写流的线程使用自己的实例
+    private static final ThreadLocal<RpcFrameCodec> FRAME_CODEC = ThreadLocal.withInitial(RpcFrameCodec::new);
+
+    private SocketFrameCodec() {
+    }
+
+    /**
+     * 写出一个完整的帧，调用方负责 flush，并保证同一个流不会被多个线程同时写
+     */
+    static void write(DataOutputStream out, RpcMessage rpcMessage) throws IOException {
+        out.write(FRAME_CODEC.get().encode(rpcMessage));
+    }
+
+    /**
+     * 读取一个完整的帧，流结束时抛出 EOFException
+     */
+    static RpcMessage read(DataInputStream in) throws IOException {
+        byte[] prefix = new byte[LENGTH_PREFIX];
+        in.readFully(prefix);
+        int fullLength = ((prefix[LENGTH_PREFIX - 4] & 0xFF) << 24) | ((prefix[LENGTH_PREFIX - 3] & 0xFF) << 16)
+                | ((prefix[LENGTH_PREFIX - 2] & 0xFF) << 8) | (prefix[LENGTH_PREFIX - 1] & 0xFF);
+        if (fullLength < RpcConstants.HEAD_LENGTH || fullLength > RpcConstants.MAX_FRAME_LENGTH) {
+            throw new IllegalArgumentException("illegal frame length " + fullLength);
+        }
+        byte[] frame = new byte[fullLength];
+        System.arraycopy(prefix, 0, frame, 0, LENGTH_PREFIX);
+        in.readFully(frame, LENGTH_PREFIX, fullLength - LENGTH_PREFIX);
+        // 魔数和版本由 RpcMessageDecoder 检查
+        return FRAME_CODEC.get().decode(frame);
+    }
+}
@@ -1,31 +1,45 @@
 package github.myc.remoting.transport.socket;
 
+import github.myc.enums.RpcConfigEnum;
+import github.myc.enums.RpcErrorMessageEnum;
 import github.myc.enums.ServiceDiscoveryEnum;
 import github.myc.exception.RpcException;
 import github.myc.extension.ExtensionLoader;
-import lombok.AllArgsConstructor;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.utils.RpcConfigUtil;
 import lombok.extern.slf4j.Slf4j;
 import github.myc.registry.ServiceDiscovery;
 import github.myc.remoting.dto.RpcRequest;
 import github.myc.remoting.transport.RpcRequestTransport;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基于 Socket 传输 RpcRequest
+ * 与 Netty 传输使用相同的帧格式和序列化方式，每个服务端地址保持一个长连接，同一个连接上可以有多个请求同时在途，
+ * 返回的是 CompletableFuture
  */
-@AllArgsConstructor
 @Slf4j
 public class SocketRpcClient implements RpcRequestTransport {
 
+    private static final int DEFAULT_CONNECT_TIMEOUT_MS = 5000;
+
     private final ServiceDiscovery serviceDiscovery;
+    private final int connectTimeoutMillis;
+    // key：服务端地址
+    private final Map<String, SocketConnection> connections = new ConcurrentHashMap<>();
 
     public SocketRpcClient(){
-        this.serviceDiscovery = ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension(ServiceDiscoveryEnum.ZK.getName());
+        this(ExtensionLoader.getExtensionLoader(ServiceDiscovery.class).getExtension(ServiceDiscoveryEnum.ZK.getName()));
+    }
+
+    public SocketRpcClient(ServiceDiscovery serviceDiscovery) {
+        this.serviceDiscovery = serviceDiscovery;
+        this.connectTimeoutMillis = RpcConfigUtil.getInt(RpcConfigEnum.SOCKET_CONNECT_TIMEOUT_MS, DEFAULT_CONNECT_TIMEOUT_MS);
     }
 
     @Override
@@ -33,21 +47,51 @@ public class SocketRpcClient implements RpcRequestTransport {
         // 1.从 zookeeper 查询服务端地址
         InetSocketAddress inetSocketAddress = serviceDiscovery.lookupService(rpcRequest);
         log.info("服务查询结果：" + inetSocketAddress.toString());
-        try(Socket socket = new Socket()){
-            // 2.通过查询的地址连接服务端
-            socket.connect(inetSocketAddress);
-            ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
-            // 3.通过输出流向服务端发送请求信息
-            oos.writeObject(rpcRequest);
-            log.info("rpc 请求已发送");
-            // 4.通过输入流获取服务端响应的信息
-            ObjectInputStream ois = new ObjectInputStream(socket.getInputStream());
-            log.info("已接收到服务端的响应");
-            return ois.readObject();
-        } catch (IOException | ClassNotFoundException e){
-            throw new RpcException("调用服务失败：", e);
+        return sendRpcRequest(rpcRequest, inetSocketAddress);
+    }
+
+    @Override
+    public Object sendRpcRequest(RpcRequest rpcRequest, InetSocketAddress inetSocketAddress) {
+        try {
+            // 2.获取到服务端的长连接，3.写出请求，响应由连接的读线程接收
+            return getConnection(inetSocketAddress).send(rpcRequest);
+        } catch (RpcException e) {
+            CompletableFuture<RpcResponse<Object>> resultFuture = new CompletableFuture<>();
+            resultFuture.completeExceptionally(e);
+            return resultFuture;
         }
     }
 
+    private SocketConnection getConnection(InetSocketAddress inetSocketAddress) {
+        String key = inetSocketAddress.toString();
+        SocketConnection connection = connections.get(key);
+        if (connection != null && connection.isActive()) {
+            return connection;
+        }
+        // 建立连接较慢，加锁避免并发调用对同一个地址重复建连
+        synchronized (connections) {
+            connection = connections.get(key);
+            if (connection != null && connection.isActive()) {
+                return connection;
+            }
+            try {
+                connection = new SocketConnection(inetSocketAddress, connectTimeoutMillis);
+            } catch (IOException e) {
+                throw new RpcException(RpcErrorMessageEnum.CLIENT_CONNECT_SERVER_FAILURE.getMessage() + ":" + key, e);
+            }
+            connections.put(key, connection);
+            log.info("socket connection to [{}] established", key);
+            return connection;
+        }
+    }
 
+    /**
+     * 关闭所有连接，在途的请求都会失败
+     */
+    public void close() {
+        for (SocketConnection connection : connections.values()) {
+            connection.close(new RpcException("socket client is closed", null));
+        }
+        connections.clear();
+    }
 }
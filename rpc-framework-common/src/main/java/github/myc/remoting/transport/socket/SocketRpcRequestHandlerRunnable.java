@@ -1,40 +1,102 @@
 package github.myc.remoting.transport.socket;
 
 
+import github.myc.enums.CompressTypeEnum;
+import github.myc.enums.RpcResponseCodeEnum;
+import github.myc.enums.SerializationTypeEnum;
 import github.myc.factory.SingletonFactory;
+import github.myc.remoting.constants.RpcConstants;
+import github.myc.remoting.dto.RpcMessage;
 import lombok.extern.slf4j.Slf4j;
 import github.myc.remoting.dto.RpcRequest;
 import github.myc.remoting.dto.RpcResponse;
 import github.myc.remoting.handler.RpcRequestHandler;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * 处理一个客户端连接：循环读取请求帧，把请求交给业务线程池处理，
+ * 响应按处理完成的先后写回，所以同一个连接上的多个请求可以同时处理，由客户端按 requestId 匹配
+ */
 @Slf4j
 public class SocketRpcRequestHandlerRunnable implements Runnable{
 
     private final Socket socket;
+    private final ExecutorService threadPool;
     private final RpcRequestHandler rpcRequestHandler;
+    // 写出时以 out 为锁
+    private DataOutputStream out;
 
-    public SocketRpcRequestHandlerRunnable(Socket socket) {
+    public SocketRpcRequestHandlerRunnable(Socket socket, ExecutorService threadPool) {
         this.socket = socket;
+        this.threadPool = threadPool;
         this.rpcRequestHandler = SingletonFactory.getInstance(RpcRequestHandler.class);
     }
 
     @Override
     public void run() {
-        log.info("server handle message from client by thread: [{}]", Thread.currentThread().getName());
-        try (ObjectInputStream ois = new ObjectInputStream(socket.getInputStream());
-             ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream())) {
-            RpcRequest rpcRequest = (RpcRequest) ois.readObject();
-            Object result = rpcRequestHandler.handle(rpcRequest);
-            oos.writeObject(RpcResponse.success(result, rpcRequest.getRequestId()));
-            oos.flush();
-            log.info("request from client has been handled and response has been sent.");
-        } catch (IOException | ClassNotFoundException e) {
+        log.info("server handle connection from [{}] by thread: [{}]", socket.getRemoteSocketAddress(), Thread.currentThread().getName());
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            while (true) {
+                RpcMessage rpcMessage = SocketFrameCodec.read(in);
+                byte messageType = rpcMessage.getMessageType();
+                if (messageType == RpcConstants.HEARTBEAT_REQUEST_TYPE) {
+                    // 原样带回客户端的发送时间
+                    write(RpcConstants.HEARTBEAT_RESPONSE_TYPE, rpcMessage.getData());
+                } else if (messageType == RpcConstants.REQUEST_TYPE) {
+                    RpcRequest rpcRequest = (RpcRequest) rpcMessage.getData();
+                    try {
+                        threadPool.execute(() -> handle(rpcRequest));
+                    } catch (RejectedExecutionException e) {
+                        log.warn("socket server is busy, reject request [{}]", rpcRequest.getRequestId());
+                        write(RpcConstants.RESPONSE_TYPE, RpcResponse.fail(RpcResponseCodeEnum.OVERLOADED, rpcRequest.getRequestId()));
+                    }
+                }
+            }
+        } catch (EOFException e) {
+            log.info("client [{}] closed the connection", socket.getRemoteSocketAddress());
+        } catch (IOException | RuntimeException e) {
             log.error("occur github.myc.exception: ", e);
         }
     }
+
+    private void handle(RpcRequest rpcRequest) {
+        rpcRequestHandler.handleAsync(rpcRequest).whenComplete((result, throwable) -> {
+            RpcResponse<Object> rpcResponse;
+            if (throwable != null) {
+                log.error("handle request [{}] failed", rpcRequest.getRequestId(), throwable);
+                rpcResponse = RpcResponse.fail(throwable, rpcRequest.getRequestId());
+            } else {
+                rpcResponse = RpcResponse.success(result, rpcRequest.getRequestId());
+            }
+            try {
+                write(RpcConstants.RESPONSE_TYPE, rpcResponse);
+            } catch (IOException e) {
+                // 读线程也会因为连接断开而结束
+                log.error("send response of [{}] failed", rpcRequest.getRequestId(), e);
+            }
+        });
+    }
+
+    private void write(byte messageType, Object data) throws IOException {
+        RpcMessage rpcMessage = RpcMessage.builder().data(data)
+                .codec(SerializationTypeEnum.KYRO.getCode())
+                .compress(CompressTypeEnum.GZIP.getCode())
+                .messageType(messageType).build();
+        synchronized (out) {
+            SocketFrameCodec.write(out, rpcMessage);
+            out.flush();
+        }
+    }
 }
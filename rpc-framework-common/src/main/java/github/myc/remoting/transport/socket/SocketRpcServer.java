@@ -15,6 +15,7 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 基于 Socket 传输的服务端
@@ -22,11 +23,15 @@ import java.util.concurrent.ExecutorService;
 @Slf4j
 public class SocketRpcServer {
 
+    // 处理请求的业务线程池
     private final ExecutorService threadPool;
+    // 每个连接占用一个线程循环读取请求，连接是长连接，不能占用业务线程池
+    private final ExecutorService connectionPool;
     private final ServiceProvider serviceProvider;
 
     public SocketRpcServer() {
         threadPool = ThreadPoolFactoryUtil.createCustomThreadPoolIfAbsent("socket-server-rpc-pool");
+        connectionPool = Executors.newCachedThreadPool(ThreadPoolFactoryUtil.createThreadFactory("socket-server-connection", true));
         serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
     }
 
@@ -46,8 +51,9 @@ public class SocketRpcServer {
             Socket socket;
             while((socket = server.accept()) != null){
                 log.info("client connected [{}]", socket.getInetAddress());
-                threadPool.execute(new SocketRpcRequestHandlerRunnable(socket));
+                connectionPool.execute(new SocketRpcRequestHandlerRunnable(socket, threadPool));
             }
+            connectionPool.shutdown();
             threadPool.shutdown();
         } catch (IOException e) {
             log.error("occur IOException: ", e);
@@ -3,19 +3,30 @@ package github.myc.spring;
 import github.myc.annotation.RpcReference;
 import github.myc.annotation.RpcService;
 import github.myc.config.RpcServiceConfig;
+import github.myc.enums.RpcConfigEnum;
 import github.myc.enums.RpcRequestTransportEnum;
 import github.myc.extension.ExtensionLoader;
 import github.myc.factory.SingletonFactory;
 import github.myc.provider.impl.ZkServiceProviderImpl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.stereotype.Component;
 import github.myc.provider.ServiceProvider;
 import github.myc.proxy.RpcClientProxy;
 import github.myc.remoting.transport.RpcRequestTransport;
+import github.myc.remoting.transport.netty.client.ConnectionWarmUp;
+import github.myc.remoting.transport.netty.client.NettyRpcClient;
+import github.myc.utils.RpcConfigUtil;
 
 import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 在 Bean 初始化前后执行一些处理操作
@@ -23,14 +34,21 @@ import java.lang.reflect.Field;
  */
 @Slf4j
 @Component
-public class SpringBeanPostProcessor implements BeanPostProcessor {
+public class SpringBeanPostProcessor implements BeanPostProcessor, SmartInitializingSingleton {
+
+    private static final int DEFAULT_WARMUP_TIMEOUT_MS = 10000;
 
     private final ServiceProvider serviceProvider;
     private final RpcRequestTransport rpcClient;
+    // 是否在启动时预热 @RpcReference 引用的服务
+    private final boolean warmUpEnabled;
+    // 还未完成的预热任务，在所有单例 bean 初始化完成后统一等待
+    private final List<CompletableFuture<Void>> warmUpFutures = new CopyOnWriteArrayList<>();
 
     public SpringBeanPostProcessor() {
         this.serviceProvider = SingletonFactory.getInstance(ZkServiceProviderImpl.class);
         rpcClient = ExtensionLoader.getExtensionLoader(RpcRequestTransport.class).getExtension(RpcRequestTransportEnum.NETTY.getName());
+        this.warmUpEnabled = RpcConfigUtil.getBoolean(RpcConfigEnum.CLIENT_WARMUP_ENABLED, false);
     }
 
     /**
@@ -47,6 +65,10 @@ public class SpringBeanPostProcessor implements BeanPostProcessor {
             RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder()
                     .group(rpcService.group())
                     .version(rpcService.version())
+                    .threads(rpcService.threads())
+                    .maxThreads(rpcService.maxThreads())
+                    .queueSize(rpcService.queueSize())
+                    .rejectPolicy(rpcService.rejectPolicy())
                     .service(bean).build();
             serviceProvider.publishService(rpcServiceConfig);
         }
@@ -69,7 +91,12 @@ public class SpringBeanPostProcessor implements BeanPostProcessor {
                 // 若有该注解注释的字段，表明该对象属于要远程方法的对象，将其替换为其代理对象
                 RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder()
                         .group(rpcReference.group())
-                        .version(rpcReference.version()).build();
+                        .version(rpcReference.version())
+                        .cluster(rpcReference.cluster())
+                        .retries(rpcReference.retries())
+                        .forks(rpcReference.forks())
+                        .timeout(rpcReference.timeout())
+                        .priority(rpcReference.priority()).build();
                 RpcClientProxy rpcClientProxy = new RpcClientProxy(rpcClient, rpcServiceConfig);
                 // 得到代理对象
                 Object clientProxy = rpcClientProxy.getProxy(declaredField.getType());
@@ -81,8 +108,37 @@ public class SpringBeanPostProcessor implements BeanPostProcessor {
                 } catch (IllegalAccessException e) {
                     e.printStackTrace();
                 }
+                if (warmUpEnabled && rpcClient instanceof NettyRpcClient) {
+                    // 预热是异步并行进行的，不阻塞其他 bean 的初始化
+                    warmUpFutures.add(SingletonFactory.getInstance(ConnectionWarmUp.class)
+                            .warmUp(declaredField.getType(), rpcServiceConfig, (NettyRpcClient) rpcClient));
+                }
             }
         }
         return bean;
     }
+
+    /**
+     * 所有单例 bean 初始化完成之后、容器发布启动完成事件之前调用，在这里等待预热完成，保证应用就绪时连接已经建立
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (warmUpFutures.isEmpty()) {
+            return;
+        }
+        long timeout = RpcConfigUtil.getInt(RpcConfigEnum.CLIENT_WARMUP_TIMEOUT_MS, DEFAULT_WARMUP_TIMEOUT_MS);
+        long start = System.currentTimeMillis();
+        try {
+            CompletableFuture.allOf(warmUpFutures.toArray(new CompletableFuture<?>[0])).get(timeout, TimeUnit.MILLISECONDS);
+            log.info("warm up [{}] rpc references in [{}] ms", warmUpFutures.size(), System.currentTimeMillis() - start);
+        } catch (TimeoutException e) {
+            log.warn("warm up rpc references not finished in [{}] ms, continue starting", timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("warm up rpc references failed", e);
+        } finally {
+            warmUpFutures.clear();
+        }
+    }
 }
@@ -7,6 +7,7 @@ import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.imps.CuratorFrameworkState;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.PathChildrenCache;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
 import org.apache.curator.framework.recipes.cache.PathChildrenCacheListener;
@@ -14,6 +15,7 @@ import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.zookeeper.CreateMode;
 
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -32,6 +34,8 @@ public final class CuratorUtils {
     public static final String ZK_REGISTER_ROOT_PATH = "/my-rpc";
     // 该服务对应的节点下的所有子节点
     private static final Map<String, List<String>> SERVICE_ADDRESS_MAP = new ConcurrentHashMap<>();
+    // 服务地址节点的数据，key：节点路径
+    private static final Map<String, String> SERVICE_NODE_DATA_MAP = new ConcurrentHashMap<>();
     private static final Set<String> REGISTERED_PATH_SET = ConcurrentHashMap.newKeySet();
     private static CuratorFramework zkClient;
     private static final String DEFAULT_ZOOKEEPER_ADDRESS = "127.0.0.1:2281";
@@ -44,11 +48,21 @@ public final class CuratorUtils {
      * @param path      节点路径
      */
     public static void createPersistentNode(CuratorFramework zkClient, String path){
+        createPersistentNode(zkClient, path, new byte[0]);
+    }
+
+    /**
+     * 在 zookeeper 中建立持久化节点并设置节点的数据，节点已经存在时更新数据
+     * @param path      节点路径
+     * @param data      节点数据
+     */
+    public static void createPersistentNode(CuratorFramework zkClient, String path, byte[] data){
         try {
             if(REGISTERED_PATH_SET.contains(path) || zkClient.checkExists().forPath(path) != null) {
                 log.info("The node already exits. The node is: [{}]", path);
+                zkClient.setData().forPath(path, data);
             } else {
-                zkClient.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(path);
+                zkClient.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(path, data);
                 log.info("The node was created successfully. The node is: [{}]", path);
             }
             REGISTERED_PATH_SET.add(path);
@@ -57,6 +71,33 @@ public final class CuratorUtils {
         }
     }
 
+    /**
+     * 获取一个服务地址节点的数据
+     * @param rpcServiceName rpc 服务的名称
+     * @param serviceUrl     host:port 形式的服务地址
+     * @return 节点数据，没有数据或者获取失败时返回空字符串。获取失败的结果不会被缓存，下次调用时重新获取
+     */
+    public static String getNodeData(CuratorFramework zkClient, String rpcServiceName, String serviceUrl){
+        String path = ZK_REGISTER_ROOT_PATH + "/" + rpcServiceName + "/" + serviceUrl;
+        String nodeData = SERVICE_NODE_DATA_MAP.get(path);
+        if (nodeData != null) {
+            return nodeData;
+        }
+        try {
+            nodeData = dataToString(zkClient.getData().forPath(path));
+        } catch (Exception e) {
+            log.error("get data of node [{}] fail", path);
+            return "";
+        }
+        // 监听器可能已经写入了更新的数据，以监听器的为准
+        String previous = SERVICE_NODE_DATA_MAP.putIfAbsent(path, nodeData);
+        return previous != null ? previous : nodeData;
+    }
+
+    private static String dataToString(byte[] data) {
+        return data == null ? "" : new String(data, StandardCharsets.UTF_8);
+    }
+
     /**
      * 获取一个节点下的所有子节点
      * @param rpcServiceName rpc 服务的名称
@@ -92,6 +133,20 @@ public final class CuratorUtils {
             public void childEvent(CuratorFramework curatorFramework, PathChildrenCacheEvent pathChildrenCacheEvent) throws Exception {
                 List<String> serviceAddresses = curatorFramework.getChildren().forPath(servicePath);
                 SERVICE_ADDRESS_MAP.put(rpcServiceName, serviceAddresses);
+                // 节点新增或者数据有变化时使用事件中的最新数据（PathChildrenCache 开启了缓存数据），节点被删除时清除
+                ChildData childData = pathChildrenCacheEvent.getData();
+                if (childData == null) {
+                    return;
+                }
+                switch (pathChildrenCacheEvent.getType()) {
+                    case CHILD_ADDED:
+                    case CHILD_UPDATED:
+                        SERVICE_NODE_DATA_MAP.put(childData.getPath(), dataToString(childData.getData()));
+                        break;
+                    default:
+                        SERVICE_NODE_DATA_MAP.remove(childData.getPath());
+                        break;
+                }
             }
         });
         pathChildrenCache.start();
@@ -0,0 +1,67 @@
+package github.myc.utils;
+
+import github.myc.enums.RpcConfigEnum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Properties;
+
+/**
+ * rpc.properties 配置读取工具类
+ * 配置文件只在第一次使用时读取一次，之后从缓存中获取，没有配置的项使用调用方给出的默认值
+ */
+@Slf4j
+public final class RpcConfigUtil {
+
+    private static volatile Properties properties;
+
+    private RpcConfigUtil() {
+    }
+
+    public static String getProperty(RpcConfigEnum rpcConfigEnum, String defaultValue) {
+        String value = getProperties().getProperty(rpcConfigEnum.getPropertyValue());
+        return StringUtil.isBlank(value) ? defaultValue : value.trim();
+    }
+
+    public static int getInt(RpcConfigEnum rpcConfigEnum, int defaultValue) {
+        String value = getProperty(rpcConfigEnum, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            log.error("invalid value [{}] for property [{}], use default [{}]", value, rpcConfigEnum.getPropertyValue(), defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static double getDouble(RpcConfigEnum rpcConfigEnum, double defaultValue) {
+        String value = getProperty(rpcConfigEnum, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            log.error("invalid value [{}] for property [{}], use default [{}]", value, rpcConfigEnum.getPropertyValue(), defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(RpcConfigEnum rpcConfigEnum, boolean defaultValue) {
+        String value = getProperty(rpcConfigEnum, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    private static Properties getProperties() {
+        if (properties == null) {
+            synchronized (RpcConfigUtil.class) {
+                if (properties == null) {
+                    Properties loaded = PropertiesFileUtil.readPropertiesFile(RpcConfigEnum.RPC_CONFIG_PATH.getPropertyValue());
+                    properties = loaded != null ? loaded : new Properties();
+                }
+            }
+        }
+        return properties;
+    }
+}
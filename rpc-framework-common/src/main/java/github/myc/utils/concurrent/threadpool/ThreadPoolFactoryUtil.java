@@ -55,7 +55,7 @@ public final class ThreadPoolFactoryUtil {
         ThreadFactory threadFactory = createThreadFactory(threadNamePrefix, daemon);
         return new ThreadPoolExecutor(customThreadPoolConfig.getCorePoolSize(), customThreadPoolConfig.getMaximumPoolSize(),
                 customThreadPoolConfig.getKeepAliveTime(), customThreadPoolConfig.getUnit(), customThreadPoolConfig.getWorkQueue(),
-                threadFactory);
+                threadFactory, customThreadPoolConfig.getRejectedExecutionHandler());
     }
 
     /**
@@ -0,0 +1,102 @@
+package github.myc.cluster.breaker;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试配置：窗口 10 次调用，至少 5 次调用才计算失败率，失败率阈值 0.5，打开后等待 50ms，半开状态放行 2 个探测调用
+ */
+public class CircuitBreakerTest {
+
+    private static final long FAST_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("127.0.0.1:9001", new CircuitBreakerConfig());
+
+    @Test
+    public void staysClosedBelowMinimumCalls() {
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onError();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void opensWhenFailureRateReachesThreshold() {
+        circuitBreaker.onSuccess(FAST_CALL_NANOS);
+        circuitBreaker.onSuccess(FAST_CALL_NANOS);
+        circuitBreaker.onError();
+        circuitBreaker.onError();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.onError();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.isCallPermitted());
+    }
+
+    @Test
+    public void halfOpenLimitsProbesAndClosesAfterThemSucceed() throws InterruptedException {
+        circuitBreaker.forceOpen();
+        TimeUnit.MILLISECONDS.sleep(80);
+
+        assertTrue(circuitBreaker.isCallPermitted());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onSuccess(FAST_CALL_NANOS);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        circuitBreaker.onSuccess(FAST_CALL_NANOS);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getFailureRate(), 0);
+    }
+
+    @Test
+    public void failedProbeReopens() throws InterruptedException {
+        circuitBreaker.forceOpen();
+        TimeUnit.MILLISECONDS.sleep(80);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onError();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void releasedProbeCanBeReused() throws InterruptedException {
+        circuitBreaker.forceOpen();
+        TimeUnit.MILLISECONDS.sleep(80);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.releasePermission();
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void oldOutcomesLeaveTheWindow() {
+        for (int i = 0; i < 6; i++) {
+            circuitBreaker.onSuccess(FAST_CALL_NANOS);
+        }
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onError();
+        }
+        assertEquals(0.4, circuitBreaker.getFailureRate(), 0.001);
+        // 窗口大小为 10，之后的成功调用把失败挤出窗口
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.onSuccess(FAST_CALL_NANOS);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getFailureRate(), 0);
+    }
+}
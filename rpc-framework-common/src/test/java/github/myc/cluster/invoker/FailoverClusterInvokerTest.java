@@ -0,0 +1,173 @@
+package github.myc.cluster.invoker;
+
+import github.myc.config.RpcServiceConfig;
+import github.myc.enums.RpcErrorMessageEnum;
+import github.myc.enums.RpcResponseCodeEnum;
+import github.myc.exception.RpcConnectionLostException;
+import github.myc.exception.RpcException;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FailoverClusterInvokerTest {
+
+    private static final InetSocketAddress A = new InetSocketAddress("127.0.0.1", 9001);
+    private static final InetSocketAddress B = new InetSocketAddress("127.0.0.1", 9002);
+    private static final InetSocketAddress C = new InetSocketAddress("127.0.0.1", 9003);
+
+    private final StubTransport transport = new StubTransport();
+    private final FailoverClusterInvoker invoker = new FailoverClusterInvoker() {
+        @Override
+        protected InetSocketAddress select(RpcRequest rpcRequest, Collection<InetSocketAddress> excludedAddresses) {
+            // 按固定顺序选择还没有失败过的服务端
+            List<InetSocketAddress> addresses = Arrays.asList(A, B, C);
+            for (InetSocketAddress address : addresses) {
+                if (!excludedAddresses.contains(address)) {
+                    return address;
+                }
+            }
+            throw new RpcException(RpcErrorMessageEnum.SERVICE_CAN_NOT_BE_FOUND, rpcRequest.getRpcServiceName());
+        }
+    };
+
+    @Test
+    public void retriesConnectFailureOnAnotherProvider() throws Exception {
+        transport.on(A, request -> {
+            throw new RpcException(RpcErrorMessageEnum.CLIENT_CONNECT_SERVER_FAILURE, A.toString());
+        });
+        transport.on(B, request -> StubTransport.success(request, "b"));
+        RpcRequest rpcRequest = request(false);
+
+        RpcResponse<Object> rpcResponse = invoke(rpcRequest, 2).get(1, TimeUnit.SECONDS);
+
+        assertEquals("b", rpcResponse.getData());
+        assertEquals(Arrays.asList(A, B), transport.sentTo);
+        // 重试使用新的 requestId，返回给调用方的响应还原为原来的 requestId
+        assertNotEquals(rpcRequest.getRequestId(), transport.sentRequests.get(1).getRequestId());
+        assertEquals(rpcRequest.getRequestId(), rpcResponse.getRequestId());
+    }
+
+    @Test
+    public void retriesWhenProviderDidNotExecute() throws Exception {
+        transport.on(A, request -> CompletableFuture.completedFuture(RpcResponse.fail(RpcResponseCodeEnum.OVERLOADED, request.getRequestId())));
+        transport.on(B, request -> CompletableFuture.completedFuture(RpcResponse.fail(RpcResponseCodeEnum.SHUTTING_DOWN, request.getRequestId())));
+        transport.on(C, request -> StubTransport.success(request, "c"));
+
+        RpcResponse<Object> rpcResponse = invoke(request(false), 2).get(1, TimeUnit.SECONDS);
+
+        assertEquals("c", rpcResponse.getData());
+        assertEquals(Arrays.asList(A, B, C), transport.sentTo);
+    }
+
+    @Test
+    public void doesNotRetryServiceFailure() throws Exception {
+        transport.on(A, request -> CompletableFuture.completedFuture(RpcResponse.fail(RpcResponseCodeEnum.FAIL, request.getRequestId())));
+        transport.on(B, request -> StubTransport.success(request, "b"));
+
+        RpcResponse<Object> rpcResponse = invoke(request(false), 2).get(1, TimeUnit.SECONDS);
+
+        assertEquals(RpcResponseCodeEnum.FAIL.getCode(), (int) rpcResponse.getCode());
+        assertEquals(Arrays.asList(A), transport.sentTo);
+    }
+
+    @Test
+    public void doesNotRetryTimeoutOfNonIdempotentMethod() throws Exception {
+        transport.on(A, request -> StubTransport.failed(new TimeoutException()));
+        transport.on(B, request -> StubTransport.success(request, "b"));
+
+        assertFailedWith(invoke(request(false), 2), TimeoutException.class);
+        assertEquals(Arrays.asList(A), transport.sentTo);
+    }
+
+    @Test
+    public void doesNotRetryLostConnectionOfNonIdempotentMethod() throws Exception {
+        transport.on(A, request -> StubTransport.failed(new RpcConnectionLostException("connection to " + A + " is closed", null)));
+        transport.on(B, request -> StubTransport.success(request, "b"));
+
+        assertFailedWith(invoke(request(false), 2), RpcConnectionLostException.class);
+        assertEquals(Arrays.asList(A), transport.sentTo);
+    }
+
+    @Test
+    public void retriesTimeoutOfIdempotentMethod() throws Exception {
+        transport.on(A, request -> StubTransport.failed(new TimeoutException()));
+        transport.on(B, request -> StubTransport.success(request, "b"));
+
+        RpcResponse<Object> rpcResponse = invoke(request(true), 2).get(1, TimeUnit.SECONDS);
+
+        assertEquals("b", rpcResponse.getData());
+        assertEquals(Arrays.asList(A, B), transport.sentTo);
+    }
+
+    @Test
+    public void failsWithLastFailureWhenRetriesAreExhausted() throws Exception {
+        transport.on(A, request -> {
+            throw new RpcException(RpcErrorMessageEnum.CLIENT_CONNECT_SERVER_FAILURE, A.toString());
+        });
+        transport.on(B, request -> StubTransport.failed(new IllegalStateException("b is down")));
+        transport.on(C, request -> StubTransport.success(request, "c"));
+
+        assertFailedWith(invoke(request(false), 1), IllegalStateException.class);
+        assertEquals(Arrays.asList(A, B), transport.sentTo);
+    }
+
+    @Test
+    public void retryCarriesTheRemainingTime() throws Exception {
+        transport.on(A, request -> {
+            throw new RpcException(RpcErrorMessageEnum.CLIENT_CONNECT_SERVER_FAILURE, A.toString());
+        });
+        transport.on(B, request -> StubTransport.success(request, "b"));
+        RpcRequest rpcRequest = request(false).toBuilder()
+                .timeout(10000)
+                .clientDeadlineNanos(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500)).build();
+
+        invoke(rpcRequest, 2).get(1, TimeUnit.SECONDS);
+
+        long retryTimeout = transport.sentRequests.get(1).getTimeout();
+        assertTrue("retry timeout " + retryTimeout, retryTimeout > 0 && retryTimeout <= 500);
+    }
+
+    @Test
+    public void failsFastWhenTheDeadlineIsSpent() throws Exception {
+        transport.on(A, request -> StubTransport.success(request, "a"));
+        RpcRequest rpcRequest = request(false).toBuilder()
+                .timeout(100)
+                .clientDeadlineNanos(System.nanoTime() - 1).build();
+
+        assertFailedWith(invoke(rpcRequest, 2), RpcException.class);
+        assertTrue(transport.sentTo.isEmpty());
+    }
+
+    private CompletableFuture<RpcResponse<Object>> invoke(RpcRequest rpcRequest, int retries) {
+        RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder().retries(retries).timeout(1000).build();
+        return invoker.invoke(rpcRequest, rpcServiceConfig, transport);
+    }
+
+    private static RpcRequest request(boolean idempotent) {
+        return RpcRequest.builder().requestId("request-1").interfaceName("github.myc.HelloService")
+                .methodName("hello").group("").version("").idempotent(idempotent).build();
+    }
+
+    private static void assertFailedWith(CompletableFuture<RpcResponse<Object>> future, Class<? extends Throwable> type) throws Exception {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("expected " + type.getSimpleName());
+        } catch (ExecutionException e) {
+            assertTrue("unexpected failure " + e.getCause(), type.isInstance(e.getCause()));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package github.myc.cluster.invoker;
+
+import github.myc.config.RpcServiceConfig;
+import github.myc.enums.RpcErrorMessageEnum;
+import github.myc.exception.RpcException;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ForkingClusterInvokerTest {
+
+    private static final InetSocketAddress A = new InetSocketAddress("127.0.0.1", 9001);
+    private static final InetSocketAddress B = new InetSocketAddress("127.0.0.1", 9002);
+
+    private final StubTransport transport = new StubTransport();
+    private final ForkingClusterInvoker invoker = new ForkingClusterInvoker() {
+        @Override
+        protected InetSocketAddress select(RpcRequest rpcRequest, Collection<InetSocketAddress> excludedAddresses) {
+            for (InetSocketAddress address : Arrays.asList(A, B)) {
+                if (!excludedAddresses.contains(address)) {
+                    return address;
+                }
+            }
+            throw new RpcException(RpcErrorMessageEnum.SERVICE_CAN_NOT_BE_FOUND, rpcRequest.getRpcServiceName());
+        }
+    };
+
+    @Test
+    public void firstSuccessWinsAndCancelsTheRest() throws Exception {
+        CompletableFuture<RpcResponse<Object>> slow = new CompletableFuture<>();
+        transport.on(A, request -> slow);
+        transport.on(B, request -> StubTransport.success(request, "b"));
+        RpcRequest rpcRequest = request();
+
+        RpcResponse<Object> rpcResponse = invoke(rpcRequest, 3).get(1, TimeUnit.SECONDS);
+
+        assertEquals("b", rpcResponse.getData());
+        assertEquals(rpcRequest.getRequestId(), rpcResponse.getRequestId());
+        // 只有两个服务端可选，并行请求使用不同的 requestId
+        assertEquals(Arrays.asList(A, B), transport.sentTo);
+        assertNotEquals(transport.sentRequests.get(0).getRequestId(), transport.sentRequests.get(1).getRequestId());
+        assertTrue(slow.isCancelled());
+    }
+
+    @Test
+    public void failsOnlyWhenEveryForkFails() throws Exception {
+        CompletableFuture<RpcResponse<Object>> later = new CompletableFuture<>();
+        transport.on(A, request -> StubTransport.failed(new IllegalStateException("a is down")));
+        transport.on(B, request -> later);
+
+        CompletableFuture<RpcResponse<Object>> result = invoke(request(), 2);
+        assertTrue("one fork is still pending", !result.isDone());
+        later.completeExceptionally(new IllegalArgumentException("b is down"));
+
+        try {
+            result.get(1, TimeUnit.SECONDS);
+            fail("expected the last failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    private CompletableFuture<RpcResponse<Object>> invoke(RpcRequest rpcRequest, int forks) {
+        RpcServiceConfig rpcServiceConfig = RpcServiceConfig.builder().forks(forks).timeout(1000).build();
+        return invoker.invoke(rpcRequest, rpcServiceConfig, transport);
+    }
+
+    private static RpcRequest request() {
+        return RpcRequest.builder().requestId("request-1").interfaceName("github.myc.HelloService")
+                .methodName("hello").group("").version("").build();
+    }
+}
@@ -0,0 +1,49 @@
+package github.myc.cluster.invoker;
+
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.transport.RpcRequestTransport;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * 按服务端地址返回预先设置好的结果，并记录发出的请求
+ */
+class StubTransport implements RpcRequestTransport {
+
+    private final Map<InetSocketAddress, Function<RpcRequest, CompletableFuture<RpcResponse<Object>>>> behaviors = new ConcurrentHashMap<>();
+    final List<InetSocketAddress> sentTo = new CopyOnWriteArrayList<>();
+    final List<RpcRequest> sentRequests = new CopyOnWriteArrayList<>();
+
+    void on(InetSocketAddress address, Function<RpcRequest, CompletableFuture<RpcResponse<Object>>> behavior) {
+        behaviors.put(address, behavior);
+    }
+
+    @Override
+    public Object sendRpcRequest(RpcRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object sendRpcRequest(RpcRequest request, InetSocketAddress inetSocketAddress) {
+        sentTo.add(inetSocketAddress);
+        sentRequests.add(request);
+        return behaviors.get(inetSocketAddress).apply(request);
+    }
+
+    static CompletableFuture<RpcResponse<Object>> success(RpcRequest request, Object data) {
+        return CompletableFuture.completedFuture(RpcResponse.success(data, request.getRequestId()));
+    }
+
+    static CompletableFuture<RpcResponse<Object>> failed(Throwable throwable) {
+        CompletableFuture<RpcResponse<Object>> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+}
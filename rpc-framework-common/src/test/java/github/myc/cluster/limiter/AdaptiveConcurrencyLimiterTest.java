@@ -0,0 +1,68 @@
+package github.myc.cluster.limiter;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试配置：初始限制 10，最小 2，最大 20，每次减半，RTT 超过基线 2 倍视为拥塞
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(new LimiterConfig());
+
+    @Test
+    public void rejectsWhenLimitIsReached() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        assertEquals(10, limiter.getInflight());
+
+        limiter.release();
+
+        assertEquals(10, limiter.getLimit());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void growsWhenBusyAndBacksOffOnCongestion() {
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+        }
+        limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(11, limiter.getLimit());
+        assertEquals(1000, limiter.getBaselineRttMicros());
+
+        limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(5, limiter.getLimit());
+
+        // 同一个 RTT 内的第二个慢样本不再减小
+        limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    public void doesNotGrowWhenMostlyIdle() {
+        limiter.tryAcquire();
+        limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void droppedRequestsBackOffToTheMinimum() throws InterruptedException {
+        limiter.tryAcquire();
+        limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(1));
+        for (int i = 0; i < 3; i++) {
+            TimeUnit.MILLISECONDS.sleep(5);
+            limiter.tryAcquire();
+            limiter.onDropped();
+        }
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+    }
+}
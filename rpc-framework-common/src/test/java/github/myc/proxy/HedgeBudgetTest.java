@@ -0,0 +1,46 @@
+package github.myc.proxy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HedgeBudgetTest {
+
+    @Test
+    public void startsFullAndRunsOut() {
+        HedgeBudget hedgeBudget = new HedgeBudget();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(hedgeBudget.tryAcquire());
+        }
+        assertFalse(hedgeBudget.tryAcquire());
+    }
+
+    @Test
+    public void requestsRefillTheBudget() {
+        HedgeBudget hedgeBudget = new HedgeBudget();
+        while (hedgeBudget.tryAcquire()) {
+            // 用完初始的令牌
+        }
+        // rpc.client.hedge.budget.ratio=0.5，两个普通请求积累一个令牌
+        hedgeBudget.onRequest();
+        assertFalse(hedgeBudget.tryAcquire());
+        hedgeBudget.onRequest();
+        assertTrue(hedgeBudget.tryAcquire());
+        assertFalse(hedgeBudget.tryAcquire());
+    }
+
+    @Test
+    public void budgetIsCapped() {
+        HedgeBudget hedgeBudget = new HedgeBudget();
+        for (int i = 0; i < 100; i++) {
+            hedgeBudget.onRequest();
+        }
+        int acquired = 0;
+        while (hedgeBudget.tryAcquire()) {
+            acquired++;
+        }
+        assertEquals(10, acquired);
+    }
+}
@@ -0,0 +1,125 @@
+package github.myc.proxy;
+
+import github.myc.annotation.Hedging;
+import github.myc.enums.RpcErrorMessageEnum;
+import github.myc.exception.RpcException;
+import github.myc.registry.ServiceDiscovery;
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.transport.RpcRequestTransport;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HedgingInvokerTest {
+
+    private static final InetSocketAddress A = new InetSocketAddress("127.0.0.1", 9001);
+    private static final InetSocketAddress B = new InetSocketAddress("127.0.0.1", 9002);
+
+    // 所有服务端都不返回响应
+    private final List<CompletableFuture<RpcResponse<Object>>> attempts = new CopyOnWriteArrayList<>();
+    private final RpcRequestTransport transport = new RpcRequestTransport() {
+        @Override
+        public Object sendRpcRequest(RpcRequest rpcRequest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object sendRpcRequest(RpcRequest rpcRequest, InetSocketAddress inetSocketAddress) {
+            CompletableFuture<RpcResponse<Object>> attempt = new CompletableFuture<>();
+            attempts.add(attempt);
+            return attempt;
+        }
+    };
+    private final ServiceDiscovery serviceDiscovery = new ServiceDiscovery() {
+        @Override
+        public InetSocketAddress lookupService(RpcRequest rpcRequest) {
+            return A;
+        }
+
+        @Override
+        public InetSocketAddress lookupService(RpcRequest rpcRequest, Collection<InetSocketAddress> excludedAddresses) {
+            for (InetSocketAddress address : Arrays.asList(A, B)) {
+                if (!excludedAddresses.contains(address)) {
+                    return address;
+                }
+            }
+            throw new RpcException(RpcErrorMessageEnum.SERVICE_CAN_NOT_BE_FOUND, rpcRequest.getRpcServiceName());
+        }
+
+        @Override
+        public List<InetSocketAddress> lookupAllServices(RpcRequest rpcRequest) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String getDomainSocketPath(String rpcServiceName, InetSocketAddress inetSocketAddress) {
+            return null;
+        }
+    };
+    private final HedgingInvoker hedgingInvoker = new HedgingInvoker(transport, serviceDiscovery);
+
+    @Test
+    public void hangingProvidersTimeOutAtTheDeadline() throws Exception {
+        RpcRequest rpcRequest = request(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100));
+
+        CompletableFuture<RpcResponse<Object>> result = hedgingInvoker.invoke(rpcRequest, hedging(), 0);
+
+        assertFailedWith(result, TimeoutException.class);
+        // 对冲请求已经发出，调用结束后所有请求都被取消
+        assertEquals(2, attempts.size());
+        for (CompletableFuture<RpcResponse<Object>> attempt : attempts) {
+            assertTrue(attempt.isCancelled());
+        }
+    }
+
+    @Test
+    public void configuredTimeoutAppliesWithoutDeadline() throws Exception {
+        CompletableFuture<RpcResponse<Object>> result = hedgingInvoker.invoke(request(0), hedging(), 100);
+
+        assertFailedWith(result, TimeoutException.class);
+    }
+
+    @Test
+    public void spentDeadlineSendsNothing() throws Exception {
+        CompletableFuture<RpcResponse<Object>> result = hedgingInvoker.invoke(request(System.nanoTime() - 1), hedging(), 1000);
+
+        assertFailedWith(result, RpcException.class);
+        assertTrue(attempts.isEmpty());
+    }
+
+    private static RpcRequest request(long clientDeadlineNanos) {
+        return RpcRequest.builder().requestId("request-1").interfaceName("github.myc.HelloService")
+                .methodName("hello").group("").version("").clientDeadlineNanos(clientDeadlineNanos).build();
+    }
+
+    private static Hedging hedging() throws NoSuchMethodException {
+        return HedgingInvokerTest.class.getDeclaredMethod("hedged").getAnnotation(Hedging.class);
+    }
+
+    @Hedging(delayMs = 20)
+    private static void hedged() {
+    }
+
+    private static void assertFailedWith(CompletableFuture<RpcResponse<Object>> future, Class<? extends Throwable> type) throws Exception {
+        try {
+            future.get(2, TimeUnit.SECONDS);
+            fail("expected " + type.getSimpleName());
+        } catch (ExecutionException e) {
+            assertTrue("unexpected failure " + e.getCause(), type.isInstance(e.getCause()));
+        }
+    }
+}
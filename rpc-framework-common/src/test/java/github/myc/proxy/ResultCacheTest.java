@@ -0,0 +1,87 @@
+package github.myc.proxy;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ResultCacheTest {
+
+    private static final InvocationKey A = key("a");
+    private static final InvocationKey B = key("b");
+    private static final InvocationKey C = key("c");
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        ResultCache resultCache = new ResultCache(60_000, 2);
+        resultCache.put(A, "hello a", resultCache.epoch());
+        resultCache.put(B, "hello b", resultCache.epoch());
+        // 访问 a 之后 b 成为最久没有被访问的结果
+        assertEquals("hello a", resultCache.get(A).value);
+
+        resultCache.put(C, "hello c", resultCache.epoch());
+
+        assertEquals(2, resultCache.size());
+        assertEquals(1, resultCache.evictions());
+        assertNull(resultCache.get(B));
+        assertNotNull(resultCache.get(A));
+        assertNotNull(resultCache.get(C));
+    }
+
+    @Test
+    public void cachesNullResults() {
+        ResultCache resultCache = new ResultCache(60_000, 2);
+        resultCache.put(A, null, resultCache.epoch());
+
+        ResultCache.Entry entry = resultCache.get(A);
+
+        assertNotNull(entry);
+        assertNull(entry.value);
+    }
+
+    @Test
+    public void expiresAfterTtl() throws InterruptedException {
+        ResultCache resultCache = new ResultCache(20, 2);
+        resultCache.put(A, "hello a", resultCache.epoch());
+        assertNotNull(resultCache.get(A));
+
+        TimeUnit.MILLISECONDS.sleep(40);
+
+        assertNull(resultCache.get(A));
+        assertEquals(0, resultCache.size());
+    }
+
+    @Test
+    public void expiredResultsAreDroppedBeforeLiveOnes() throws InterruptedException {
+        ResultCache resultCache = new ResultCache(30, 2);
+        resultCache.put(A, "hello a", resultCache.epoch());
+        TimeUnit.MILLISECONDS.sleep(40);
+        resultCache.put(B, "hello b", resultCache.epoch());
+        resultCache.put(C, "hello c", resultCache.epoch());
+
+        // 过期的 a 被清理，不算作淘汰
+        assertEquals(0, resultCache.evictions());
+        assertNotNull(resultCache.get(B));
+        assertNotNull(resultCache.get(C));
+    }
+
+    @Test
+    public void resultQueriedBeforeClearIsNotCached() {
+        ResultCache resultCache = new ResultCache(60_000, 2);
+        long epoch = resultCache.epoch();
+
+        resultCache.clear();
+        resultCache.put(A, "stale", epoch);
+
+        assertNull(resultCache.get(A));
+        resultCache.put(A, "fresh", resultCache.epoch());
+        assertEquals("fresh", resultCache.get(A).value);
+    }
+
+    private static InvocationKey key(String name) {
+        return new InvocationKey(SingleFlightGroupTest.request("request-" + name, name));
+    }
+}
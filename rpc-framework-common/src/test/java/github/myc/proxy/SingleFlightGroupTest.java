@@ -0,0 +1,106 @@
+package github.myc.proxy;
+
+import github.myc.remoting.dto.RpcRequest;
+import github.myc.remoting.dto.RpcResponse;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightGroupTest {
+
+    private final SingleFlightGroup singleFlightGroup = new SingleFlightGroup();
+    private final AtomicInteger sent = new AtomicInteger();
+
+    @Test
+    public void concurrentIdenticalCallsShareOneRequest() throws Exception {
+        CompletableFuture<RpcResponse<Object>> pending = new CompletableFuture<>();
+
+        CompletableFuture<RpcResponse<Object>> first = singleFlightGroup.execute(request("request-1", "a"), () -> send(pending));
+        CompletableFuture<RpcResponse<Object>> second = singleFlightGroup.execute(request("request-2", "a"), () -> send(pending));
+        assertEquals(1, sent.get());
+        assertFalse(first.isDone());
+
+        pending.complete(RpcResponse.success("hello a", "request-1"));
+
+        assertEquals("hello a", first.get(1, TimeUnit.SECONDS).getData());
+        // 每个调用方拿到的响应带着自己的 requestId
+        assertEquals("request-1", first.get().getRequestId());
+        assertEquals("hello a", second.get(1, TimeUnit.SECONDS).getData());
+        assertEquals("request-2", second.get().getRequestId());
+    }
+
+    @Test
+    public void differentParametersAreNotMerged() {
+        singleFlightGroup.execute(request("request-1", "a"), () -> send(new CompletableFuture<>()));
+        singleFlightGroup.execute(request("request-2", "b"), () -> send(new CompletableFuture<>()));
+        assertEquals(2, sent.get());
+    }
+
+    @Test
+    public void completedCallIsNotReused() throws Exception {
+        singleFlightGroup.execute(request("request-1", "a"), () -> send(CompletableFuture.completedFuture(RpcResponse.success("first", "request-1"))))
+                .get(1, TimeUnit.SECONDS);
+
+        RpcResponse<Object> rpcResponse = singleFlightGroup.execute(request("request-2", "a"),
+                () -> send(CompletableFuture.completedFuture(RpcResponse.success("second", "request-2")))).get(1, TimeUnit.SECONDS);
+
+        assertEquals(2, sent.get());
+        assertEquals("second", rpcResponse.getData());
+    }
+
+    @Test
+    public void failureReachesEveryCaller() throws Exception {
+        CompletableFuture<RpcResponse<Object>> pending = new CompletableFuture<>();
+        CompletableFuture<RpcResponse<Object>> first = singleFlightGroup.execute(request("request-1", "a"), () -> send(pending));
+        CompletableFuture<RpcResponse<Object>> second = singleFlightGroup.execute(request("request-2", "a"), () -> send(pending));
+
+        pending.completeExceptionally(new IllegalStateException("server is down"));
+
+        assertFailed(first);
+        assertFailed(second);
+        // 失败的调用同样从在途列表中移除
+        singleFlightGroup.execute(request("request-3", "a"), () -> send(new CompletableFuture<>()));
+        assertEquals(2, sent.get());
+    }
+
+    @Test
+    public void cancellingOneCallerDoesNotAffectTheOthers() throws Exception {
+        CompletableFuture<RpcResponse<Object>> pending = new CompletableFuture<>();
+        CompletableFuture<RpcResponse<Object>> first = singleFlightGroup.execute(request("request-1", "a"), () -> send(pending));
+        CompletableFuture<RpcResponse<Object>> second = singleFlightGroup.execute(request("request-2", "a"), () -> send(pending));
+
+        first.cancel(true);
+        pending.complete(RpcResponse.success("hello a", "request-1"));
+
+        assertTrue(first.isCancelled());
+        assertEquals("hello a", second.get(1, TimeUnit.SECONDS).getData());
+    }
+
+    private CompletableFuture<RpcResponse<Object>> send(CompletableFuture<RpcResponse<Object>> response) {
+        sent.incrementAndGet();
+        return response;
+    }
+
+    private static void assertFailed(CompletableFuture<RpcResponse<Object>> future) throws Exception {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    static RpcRequest request(String requestId, String name) {
+        return RpcRequest.builder().requestId(requestId).interfaceName("github.myc.HelloService")
+                .methodName("hello").group("").version("")
+                .paramTypes(new Class<?>[]{String.class}).parameters(new Object[]{name}).build();
+    }
+}
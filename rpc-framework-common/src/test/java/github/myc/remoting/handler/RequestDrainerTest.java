@@ -0,0 +1,55 @@
+package github.myc.remoting.handler;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RequestDrainerTest {
+
+    private final RequestDrainer requestDrainer = new RequestDrainer();
+
+    @Test
+    public void rejectsNewRequestsAfterShutdownStarts() {
+        assertTrue(requestDrainer.tryEnter());
+        assertFalse(requestDrainer.isShuttingDown());
+
+        requestDrainer.startShutdown();
+
+        assertTrue(requestDrainer.isShuttingDown());
+        assertFalse(requestDrainer.tryEnter());
+        // 被拒绝的请求不计入在途请求
+        assertEquals(1, requestDrainer.getInflight());
+    }
+
+    @Test
+    public void drainedImmediatelyWhenIdle() throws InterruptedException {
+        requestDrainer.startShutdown();
+        assertTrue(requestDrainer.awaitDrained(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void waitsForRequestsInFlight() throws InterruptedException {
+        assertTrue(requestDrainer.tryEnter());
+        requestDrainer.startShutdown();
+
+        assertFalse(requestDrainer.awaitDrained(20, TimeUnit.MILLISECONDS));
+
+        Thread worker = new Thread(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            requestDrainer.exit();
+        });
+        worker.start();
+
+        assertTrue(requestDrainer.awaitDrained(1, TimeUnit.SECONDS));
+        assertEquals(0, requestDrainer.getInflight());
+        worker.join();
+    }
+}
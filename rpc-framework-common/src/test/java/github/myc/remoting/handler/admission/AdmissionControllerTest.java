@@ -0,0 +1,110 @@
+package github.myc.remoting.handler.admission;
+
+import github.myc.remoting.dto.RpcRequest;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试配置：目标排队时间 5ms，观察周期 20ms，在途请求上限 10
+ */
+public class AdmissionControllerTest {
+
+    private static final long INTERVAL_MILLIS = 25;
+
+    private final AdmissionController admissionController = new AdmissionController();
+
+    @Test
+    public void inflightLimitDependsOnPriority() {
+        // 低优先级请求在 5 个在途请求时被拒绝，普通请求在 9 个时被拒绝，高优先级请求在 10 个时被拒绝
+        for (int i = 0; i < 5; i++) {
+            assertTrue(admissionController.tryAcquire(request(-1, 0)));
+        }
+        assertFalse(admissionController.tryAcquire(request(-1, 0)));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(admissionController.tryAcquire(request(0, 0)));
+        }
+        assertFalse(admissionController.tryAcquire(request(0, 0)));
+        assertTrue(admissionController.tryAcquire(request(1, 0)));
+        assertFalse(admissionController.tryAcquire(request(1, 0)));
+
+        admissionController.release();
+
+        assertTrue(admissionController.tryAcquire(request(1, 0)));
+    }
+
+    @Test
+    public void shortQueueDelayDoesNotOverload() throws InterruptedException {
+        RpcRequest rpcRequest = request(0, 1);
+        assertTrue(admissionController.tryAcquire(rpcRequest));
+        assertTrue(admissionController.admitExecution(rpcRequest));
+        TimeUnit.MILLISECONDS.sleep(INTERVAL_MILLIS);
+
+        RpcRequest next = request(0, 1);
+        assertTrue(admissionController.tryAcquire(next));
+        assertTrue(admissionController.admitExecution(next));
+        assertFalse(admissionController.isOverloaded());
+    }
+
+    @Test
+    public void standingQueueShedsByPriorityUntilItDrains() throws InterruptedException {
+        RpcRequest first = request(0, 50);
+        assertTrue(admissionController.tryAcquire(first));
+        assertTrue(admissionController.admitExecution(first));
+        assertFalse(admissionController.isOverloaded());
+
+        // 整个观察周期内的最小排队时间超过目标值
+        TimeUnit.MILLISECONDS.sleep(INTERVAL_MILLIS);
+        RpcRequest delayed = request(0, 50);
+        assertTrue(admissionController.tryAcquire(delayed));
+        assertTrue(admissionController.isOverloaded());
+        assertFalse(admissionController.admitExecution(delayed));
+
+        RpcRequest fresh = request(0, 0);
+        assertTrue(admissionController.tryAcquire(fresh));
+        assertTrue(admissionController.admitExecution(fresh));
+        RpcRequest critical = request(1, 50);
+        assertTrue(admissionController.tryAcquire(critical));
+        assertTrue(admissionController.admitExecution(critical));
+        assertFalse(admissionController.tryAcquire(request(-1, 0)));
+
+        for (int i = 0; i < 4; i++) {
+            admissionController.release();
+        }
+        // 排队时间很短的请求说明队列已经排空，这个周期结束后解除过载
+        TimeUnit.MILLISECONDS.sleep(INTERVAL_MILLIS);
+        assertTrue(admissionController.tryAcquire(request(-1, 0)));
+        assertFalse(admissionController.isOverloaded());
+    }
+
+    @Test
+    public void idleIntervalClearsOverload() throws InterruptedException {
+        RpcRequest first = request(0, 50);
+        admissionController.tryAcquire(first);
+        admissionController.admitExecution(first);
+        TimeUnit.MILLISECONDS.sleep(INTERVAL_MILLIS);
+        RpcRequest delayed = request(0, 50);
+        admissionController.tryAcquire(delayed);
+        assertFalse(admissionController.admitExecution(delayed));
+        admissionController.release();
+        admissionController.release();
+
+        // 被丢弃的请求的排队时间也记录在当前周期，这个周期结束时仍然过载
+        TimeUnit.MILLISECONDS.sleep(INTERVAL_MILLIS);
+        assertFalse(admissionController.tryAcquire(request(-1, 0)));
+        // 一个没有请求执行、也没有在途请求的周期之后解除过载，低优先级请求不会因为一直被拒绝而永远无法进入
+        TimeUnit.MILLISECONDS.sleep(INTERVAL_MILLIS);
+        assertTrue(admissionController.tryAcquire(request(-1, 0)));
+        assertFalse(admissionController.isOverloaded());
+    }
+
+    private static RpcRequest request(int priority, long queuedMillis) {
+        RpcRequest rpcRequest = RpcRequest.builder().requestId("request").interfaceName("github.myc.HelloService")
+                .methodName("hello").group("").version("").priority(priority).build();
+        rpcRequest.setReceivedNanos(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(queuedMillis));
+        return rpcRequest;
+    }
+}
@@ -0,0 +1,127 @@
+package github.myc.remoting.handler.cache;
+
+import github.myc.annotation.ResponseCacheable;
+import github.myc.enums.CompressTypeEnum;
+import github.myc.enums.SerializationTypeEnum;
+import github.myc.remoting.dto.RpcRequest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试配置：缓存上限 1MB
+ */
+public class ResponseCacheTest {
+
+    private static final String SERVICE_NAME = "github.myc.BlobService";
+    private static final byte CODEC = SerializationTypeEnum.HESSIAN.getCode();
+    private static final byte COMPRESS = CompressTypeEnum.GZIP.getCode();
+
+    private final ResponseCache responseCache = new ResponseCache();
+
+    @Before
+    public void setUp() {
+        responseCache.register(SERVICE_NAME, new BlobService());
+    }
+
+    @Test
+    public void onlyAnnotatedMethodsAreCacheable() {
+        assertNull(responseCache.keyOf(request("uncached", 1), CODEC));
+        assertNull(responseCache.keyOf(request("blob", 1).toBuilder().interfaceName("github.myc.OtherService").build(), CODEC));
+        assertNotNull(responseCache.keyOf(request("blob", 1), CODEC));
+    }
+
+    @Test
+    public void missThenHit() {
+        ResponseCache.Key key = responseCache.keyOf(request("blob", 1), CODEC);
+        assertNull(responseCache.get(key));
+
+        ByteBuffer encoded = responseCache.encodeAndPut(key, new byte[]{1, 2, 3}, CODEC, COMPRESS);
+
+        ByteBuffer cached = responseCache.get(responseCache.keyOf(request("blob", 1), CODEC));
+        assertEquals(encoded, cached);
+        assertNull(responseCache.get(responseCache.keyOf(request("blob", 2), CODEC)));
+        assertEquals(1, responseCache.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWhenOverTheByteLimit() {
+        ResponseCache.Key first = put(1);
+        ResponseCache.Key second = put(2);
+        // 访问第一个响应之后第二个成为最久没有被访问的响应
+        assertNotNull(responseCache.get(first));
+
+        ResponseCache.Key third = put(3);
+
+        assertEquals(2, responseCache.size());
+        assertTrue(responseCache.bytes() <= 1024 * 1024);
+        assertNull(responseCache.get(second));
+        assertNotNull(responseCache.get(first));
+        assertNotNull(responseCache.get(third));
+    }
+
+    @Test
+    public void expiresAfterTtl() throws InterruptedException {
+        ResponseCache.Key key = responseCache.keyOf(request("shortLived", 1), CODEC);
+        responseCache.encodeAndPut(key, "hello", CODEC, COMPRESS);
+        assertNotNull(responseCache.get(key));
+
+        TimeUnit.MILLISECONDS.sleep(40);
+
+        assertNull(responseCache.get(key));
+        assertEquals(0, responseCache.bytes());
+    }
+
+    @Test
+    public void invalidateDropsTheWholeService() {
+        put(1);
+        put(2);
+
+        responseCache.invalidate(SERVICE_NAME);
+
+        assertEquals(0, responseCache.size());
+        assertEquals(0, responseCache.bytes());
+    }
+
+    /**
+     * 随机数据压缩不了，每个响应大约 400KB，缓存最多放下两个
+     */
+    private ResponseCache.Key put(int id) {
+        byte[] blob = new byte[400 * 1024];
+        new Random(id).nextBytes(blob);
+        ResponseCache.Key key = responseCache.keyOf(request("blob", id), CODEC);
+        assertNotNull(responseCache.encodeAndPut(key, blob, CODEC, COMPRESS));
+        return key;
+    }
+
+    private static RpcRequest request(String methodName, int id) {
+        return RpcRequest.builder().requestId("request-" + id).interfaceName(SERVICE_NAME)
+                .methodName(methodName).group("").version("")
+                .paramTypes(new Class<?>[]{int.class}).parameters(new Object[]{id}).build();
+    }
+
+    public static class BlobService {
+
+        @ResponseCacheable
+        public byte[] blob(int id) {
+            return new byte[0];
+        }
+
+        @ResponseCacheable(ttlMs = 20)
+        public String shortLived(int id) {
+            return "hello";
+        }
+
+        public String uncached(int id) {
+            return "hello";
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package github.myc.remoting.handler.ratelimit;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+
+    @Test
+    public void allowsBurstThenRejects() {
+        TokenBucket tokenBucket = new TokenBucket(1, 3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(tokenBucket.tryAcquire());
+        }
+        assertFalse(tokenBucket.tryAcquire());
+    }
+
+    @Test
+    public void releasedTokenCanBeReused() {
+        TokenBucket tokenBucket = new TokenBucket(1, 1);
+        assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+
+        tokenBucket.release();
+
+        assertTrue(tokenBucket.tryAcquire());
+    }
+
+    @Test
+    public void refillsOverTime() throws InterruptedException {
+        TokenBucket tokenBucket = new TokenBucket(100, 1);
+        assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+
+        // 每 10ms 放入一个令牌
+        TimeUnit.MILLISECONDS.sleep(30);
+
+        assertTrue(tokenBucket.tryAcquire());
+        // 桶的容量是 1，多出来的令牌被丢弃
+        assertFalse(tokenBucket.tryAcquire());
+    }
+
+    @Test
+    public void smallerCapacityDropsExtraTokens() {
+        TokenBucket tokenBucket = new TokenBucket(1, 5);
+
+        tokenBucket.setRate(1, 2);
+
+        assertTrue(tokenBucket.tryAcquire());
+        assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+    }
+
+    @Test
+    public void burstDefaultsToOneSecondOfPermits() {
+        TokenBucket tokenBucket = new TokenBucket(2, 0);
+        assertTrue(tokenBucket.tryAcquire());
+        assertTrue(tokenBucket.tryAcquire());
+        assertFalse(tokenBucket.tryAcquire());
+    }
+}
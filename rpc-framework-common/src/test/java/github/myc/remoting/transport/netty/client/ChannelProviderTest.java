@@ -0,0 +1,87 @@
+package github.myc.remoting.transport.netty.client;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ChannelProviderTest {
+
+    private static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 9001);
+
+    private final ChannelProvider channelProvider = new ChannelProvider();
+    private final AtomicInteger connects = new AtomicInteger();
+
+    @Test
+    public void concurrentCallersShareOneConnection() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Channel>> channels = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            channels.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return channelProvider.getOrConnect(ADDRESS, address -> slowConnect());
+            }));
+        }
+
+        start.countDown();
+
+        Channel first = channels.get(0).get(1, TimeUnit.SECONDS);
+        for (CompletableFuture<Channel> channel : channels) {
+            assertSame(first, channel.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, connects.get());
+    }
+
+    @Test
+    public void inactiveChannelIsReplaced() {
+        Channel closed = channelProvider.getOrConnect(ADDRESS, address -> slowConnect());
+        closed.close();
+
+        Channel reconnected = channelProvider.getOrConnect(ADDRESS, address -> slowConnect());
+
+        assertNotSame(closed, reconnected);
+        assertEquals(2, connects.get());
+    }
+
+    @Test
+    public void failedConnectIsNotCached() {
+        try {
+            channelProvider.getOrConnect(ADDRESS, address -> {
+                throw new IllegalStateException("connection refused");
+            });
+            fail("expected the connect failure");
+        } catch (IllegalStateException expected) {
+            // 连接失败时不保存任何 channel
+        }
+
+        channelProvider.getOrConnect(ADDRESS, address -> slowConnect());
+
+        assertEquals(1, connects.get());
+    }
+
+    private Channel slowConnect() {
+        connects.incrementAndGet();
+        try {
+            TimeUnit.MILLISECONDS.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new EmbeddedChannel();
+    }
+}
@@ -0,0 +1,98 @@
+package github.myc.remoting.transport.netty.client;
+
+import github.myc.exception.RpcConnectionLostException;
+import github.myc.factory.SingletonFactory;
+import github.myc.remoting.constants.RpcConstants;
+import github.myc.remoting.dto.RpcMessage;
+import github.myc.remoting.dto.RpcResponse;
+import github.myc.remoting.transport.netty.DomainSockets;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NettyRpcClientHandlerTest {
+
+    private final UnprocessedRequest unprocessedRequest = SingletonFactory.getInstance(UnprocessedRequest.class);
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        channel = new EmbeddedChannel();
+        channel.attr(DomainSockets.ENDPOINT_ADDRESS).set(new InetSocketAddress("127.0.0.1", 9001));
+        channel.pipeline().addLast(new NettyRpcClientHandler());
+    }
+
+    @Test
+    public void closingTheChannelFailsRequestsInFlight() throws Exception {
+        CompletableFuture<RpcResponse<Object>> inFlight = new CompletableFuture<>();
+        unprocessedRequest.put("request-1", inFlight, channel);
+
+        channel.close();
+
+        assertTrue(failure(inFlight) instanceof RpcConnectionLostException);
+    }
+
+    @Test
+    public void exceptionFailsRequestsInFlightWithTheCause() throws Exception {
+        CompletableFuture<RpcResponse<Object>> inFlight = new CompletableFuture<>();
+        unprocessedRequest.put("request-1", inFlight, channel);
+        IOException cause = new IOException("connection reset by peer");
+
+        channel.pipeline().fireExceptionCaught(cause);
+
+        Throwable failure = failure(inFlight);
+        assertTrue(failure instanceof RpcConnectionLostException);
+        assertSame(cause, failure.getCause());
+        assertFalse(channel.isActive());
+    }
+
+    @Test
+    public void answeredRequestsAreNotFailed() throws Exception {
+        CompletableFuture<RpcResponse<Object>> answered = new CompletableFuture<>();
+        unprocessedRequest.put("request-1", answered, channel);
+
+        channel.writeInbound(response("request-1"));
+        channel.close();
+
+        assertEquals("hello", answered.get(1, TimeUnit.SECONDS).getData());
+    }
+
+    @Test
+    public void requestRegisteredAfterTheChannelClosedFailsImmediately() throws Exception {
+        channel.close();
+        CompletableFuture<RpcResponse<Object>> late = new CompletableFuture<>();
+
+        unprocessedRequest.put("request-1", late, channel);
+
+        assertTrue(failure(late) instanceof RpcConnectionLostException);
+    }
+
+    private static RpcMessage response(String requestId) {
+        RpcMessage rpcMessage = new RpcMessage();
+        rpcMessage.setMessageType(RpcConstants.RESPONSE_TYPE);
+        rpcMessage.setData(RpcResponse.success("hello", requestId));
+        return rpcMessage;
+    }
+
+    private static Throwable failure(CompletableFuture<RpcResponse<Object>> future) throws Exception {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("expected the request to fail");
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+}
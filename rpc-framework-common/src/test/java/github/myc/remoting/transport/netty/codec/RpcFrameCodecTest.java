@@ -0,0 +1,44 @@
+package github.myc.remoting.transport.netty.codec;
+
+import github.myc.enums.CompressTypeEnum;
+import github.myc.enums.SerializationTypeEnum;
+import github.myc.remoting.constants.RpcConstants;
+import github.myc.remoting.dto.RpcMessage;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RpcFrameCodecTest {
+
+    private final RpcFrameCodec rpcFrameCodec = new RpcFrameCodec();
+
+    @Test
+    public void heartbeatCarriesTheSendTime() {
+        long sentNanos = System.nanoTime();
+
+        byte[] frame = rpcFrameCodec.encode(heartbeat(RpcConstants.HEARTBEAT_REQUEST_TYPE, sentNanos));
+        RpcMessage decoded = rpcFrameCodec.decode(frame);
+
+        // 帧头之后只有 8 字节的发送时间
+        assertEquals(RpcConstants.HEAD_LENGTH + Long.BYTES, frame.length);
+        assertEquals(RpcConstants.HEARTBEAT_REQUEST_TYPE, decoded.getMessageType());
+        assertEquals(sentNanos, decoded.getData());
+    }
+
+    @Test
+    public void pongEchoesThePingTime() {
+        RpcMessage decoded = rpcFrameCodec.decode(rpcFrameCodec.encode(heartbeat(RpcConstants.HEARTBEAT_RESPONSE_TYPE, 42L)));
+
+        assertEquals(RpcConstants.HEARTBEAT_RESPONSE_TYPE, decoded.getMessageType());
+        assertEquals(42L, decoded.getData());
+    }
+
+    private static RpcMessage heartbeat(byte messageType, long sentNanos) {
+        RpcMessage rpcMessage = new RpcMessage();
+        rpcMessage.setCodec(SerializationTypeEnum.KYRO.getCode());
+        rpcMessage.setCompress(CompressTypeEnum.GZIP.getCode());
+        rpcMessage.setMessageType(messageType);
+        rpcMessage.setData(sentNanos);
+        return rpcMessage;
+    }
+}
@@ -0,0 +1,84 @@
+package github.myc.remoting.transport.shm;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShmRingBufferTest {
+
+    private static final int CAPACITY = 64;
+
+    private final ShmRingBuffer ringBuffer = new ShmRingBuffer(ByteBuffer.allocateDirect(ShmRingBuffer.HEADER_BYTES + CAPACITY), CAPACITY);
+
+    @Test
+    public void pollReturnsNullWhenEmpty() {
+        assertNull(ringBuffer.poll());
+    }
+
+    @Test
+    public void offerFailsWhenFull() {
+        // 每条记录 4 字节长度加 20 字节数据，两条之后只剩 16 字节
+        assertTrue(ringBuffer.offer(frame(20, 1)));
+        assertTrue(ringBuffer.offer(frame(20, 2)));
+        assertFalse(ringBuffer.offer(frame(20, 3)));
+
+        assertArrayEquals(frame(20, 1), ringBuffer.poll());
+        assertTrue(ringBuffer.offer(frame(20, 3)));
+    }
+
+    @Test
+    public void framesSurviveWrapAround() {
+        ringBuffer.offer(frame(20, 1));
+        ringBuffer.offer(frame(20, 2));
+        ringBuffer.poll();
+        // 第三条记录从 48 开始，跨越数据区的末尾
+        assertTrue(ringBuffer.offer(frame(20, 3)));
+
+        assertArrayEquals(frame(20, 2), ringBuffer.poll());
+        assertArrayEquals(frame(20, 3), ringBuffer.poll());
+        assertNull(ringBuffer.poll());
+    }
+
+    @Test
+    public void framesOfVaryingSizeStayInOrder() {
+        Random random = new Random(42);
+        Deque<byte[]> expected = new ArrayDeque<>();
+        for (int i = 0; i < 10_000; i++) {
+            byte[] frame = new byte[random.nextInt(CAPACITY - 4)];
+            random.nextBytes(frame);
+            while (!ringBuffer.offer(frame)) {
+                assertArrayEquals(expected.poll(), ringBuffer.poll());
+            }
+            expected.add(frame);
+        }
+        while (!expected.isEmpty()) {
+            assertArrayEquals(expected.poll(), ringBuffer.poll());
+        }
+        assertNull(ringBuffer.poll());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBeAPowerOfTwo() {
+        new ShmRingBuffer(ByteBuffer.allocateDirect(ShmRingBuffer.HEADER_BYTES + 48), 48);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void frameLargerThanTheRingIsRejected() {
+        ringBuffer.offer(new byte[CAPACITY - 3]);
+    }
+
+    private static byte[] frame(int length, int value) {
+        byte[] frame = new byte[length];
+        Arrays.fill(frame, (byte) value);
+        return frame;
+    }
+}